@@ -19,6 +19,12 @@ public abstract class AbstractListCoordinator implements IListCoordinator {
         // Implementación vacía por defecto.
     } // end of method
 
+    // Sólo la lista principal se carga por lotes; el resto de coordinadores no necesita hacer nada.
+    @Override
+    public void reubicarSeleccionTrasInsercion() {
+        // Implementación vacía por defecto.
+    } // end of method
+
     // También podemos mover aquí otros métodos que podrían tener implementaciones por defecto.
     // Por ahora, solo necesitamos este.
 
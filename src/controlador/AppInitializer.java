@@ -45,6 +45,7 @@ import modelo.VisorModel;
 import servicios.ConfigKeys;
 import servicios.ConfigurationManager;
 import servicios.ProjectManager;
+import servicios.image.ImagePrefetchRing;
 import servicios.image.ThumbnailService;
 import servicios.zoom.ZoomModeEnum;
 import vista.VisorView;
@@ -72,7 +73,6 @@ public class AppInitializer {
     private ThemeManager 				themeManager;
     private IconUtils 					iconUtils;
     private ThumbnailService 			thumbnailServiceGlobal;
-    private ThumbnailService 			gridThumbnailService;
     private ProjectManager 				projectManagerService;
     private ComponentRegistry 			registry;
     
@@ -156,8 +156,7 @@ public class AppInitializer {
         this.themeManager = new ThemeManager(this.configuration);
         this.themeManager.install();
         this.iconUtils = new IconUtils(this.themeManager);
-        this.thumbnailServiceGlobal = new ThumbnailService();
-        this.gridThumbnailService = new ThumbnailService();
+        this.thumbnailServiceGlobal = new ThumbnailService(); // Único almacén de miniaturas (tira, grid y previsualización)
         this.projectManagerService = new ProjectManager();
         this.registry = new ComponentRegistry();
 
@@ -193,7 +192,7 @@ public class AppInitializer {
         
         logger.info("Inicializando Construccion del Visor");
         // Usar el projectBuilder del campo de la clase (this.projectBuilder) para el ViewBuilder
-        this.viewBuilder = new ViewBuilder(this.registry, this.model, this.themeManager, this.configuration, this.iconUtils, this.thumbnailServiceGlobal, this.gridThumbnailService, this.projectBuilder);
+        this.viewBuilder = new ViewBuilder(this.registry, this.model, this.themeManager, this.configuration, this.iconUtils, this.thumbnailServiceGlobal, this.projectBuilder);
         
         this.menuBuilder = new MenuBarBuilder(this.controller, this.configuration, this.viewManager, this.registry, this.themeManager);
 
@@ -236,6 +235,10 @@ public class AppInitializer {
         this.controller.setThemeManager(this.themeManager);
         this.controller.setIconUtils(this.iconUtils);
         this.controller.setServicioMiniaturas(this.thumbnailServiceGlobal);
+        this.controller.setPrecargaImagenes(new ImagePrefetchRing(
+                configuration.getInt(ConfigKeys.COMPORTAMIENTO_PRECARGA_SIGUIENTES, 3),
+                configuration.getInt(ConfigKeys.COMPORTAMIENTO_PRECARGA_ANTERIORES, 1),
+                configuration.getInt(ConfigKeys.COMPORTAMIENTO_PRECARGA_MEMORIA_MAX_MB, 256) * 1024L * 1024L));
         this.controller.setExecutorService(Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2)));
         this.controller.setViewManager(this.viewManager);
         this.controller.setComponentRegistry(this.registry);
@@ -278,6 +281,7 @@ public class AppInitializer {
         zoomManager.setViewManager(this.viewManager);
         zoomManager.setListCoordinator(this.listCoordinator);
         zoomManager.setInfobarImageManager(this.infobarImageManager);
+        zoomManager.setVisorController(this.controller); // Para pedir la resolución completa de imágenes reducidas
         
         zoomManager.setConfigApplicationManager(this.configAppManager);
         
@@ -626,7 +630,7 @@ public class AppInitializer {
     private void instalarPreviewers() {
         JList<String> miniaturasList = registry.get("list.miniaturas");
         if (miniaturasList != null) {
-            this.activePreviewers.add(new ThumbnailPreviewer(miniaturasList, this.model, this.themeManager, this.viewManager, registry));
+            this.activePreviewers.add(new ThumbnailPreviewer(miniaturasList, this.model, this.themeManager, this.viewManager, registry, this.thumbnailServiceGlobal));
             logger.debug("  -> Previsualizador de doble clic instalado en 'list.miniaturas'.");
         } else {
             logger.warn("WARN: No se pudo instalar ThumbnailPreviewer, 'list.miniaturas' no encontrada.");
@@ -634,7 +638,7 @@ public class AppInitializer {
 
         JList<String> gridList = registry.get("list.grid");
         if (gridList != null) {
-            this.activePreviewers.add(new ThumbnailPreviewer(gridList, this.model, this.themeManager, this.viewManager, registry));
+            this.activePreviewers.add(new ThumbnailPreviewer(gridList, this.model, this.themeManager, this.viewManager, registry, this.thumbnailServiceGlobal));
             logger.debug("  -> Previsualizador de doble clic instalado en 'list.grid'.");
         } else {
             logger.warn("WARN: No se pudo instalar ThumbnailPreviewer, 'list.grid' no encontrada.");
@@ -642,7 +646,7 @@ public class AppInitializer {
 
         JList<String> projectGridList = registry.get("list.grid.proyecto");
         if (projectGridList != null) {
-            this.activePreviewers.add(new ThumbnailPreviewer(projectGridList, this.model, this.themeManager, this.viewManager, registry));
+            this.activePreviewers.add(new ThumbnailPreviewer(projectGridList, this.model, this.themeManager, this.viewManager, registry, this.thumbnailServiceGlobal));
             logger.debug("  -> Previsualizador de doble clic instalado en 'list.grid.proyecto'.");
         } else {
             logger.warn("WARN: No se pudo instalar ThumbnailPreviewer, 'list.grid.proyecto' no encontrada.");
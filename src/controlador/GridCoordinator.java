@@ -176,6 +176,9 @@ public class GridCoordinator implements MasterListChangeListener {
             pathsForCache.add(visorModel.getRutaCompleta(key));
         }
 
+        if (gridThumbnailService != null) {
+            gridThumbnailService.actualizarRangoVisible(ThumbnailService.VISTA_GRID_VISUALIZADOR, newFirstMasterIndex, newFirstMasterIndex + (visibleRows * currentNumColumns) - 1);
+        }
         precacheThumbnailsAsync(pathsForCache);
         
         gridViewModel.clear();
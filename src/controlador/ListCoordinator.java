@@ -18,6 +18,8 @@ import modelo.MasterSelectionChangeListener;
 import modelo.VisorModel;
 import modelo.VisorModel.WorkMode;
 import servicios.ConfigKeys;
+import servicios.image.ImagePrefetchRing;
+import servicios.image.ThumbnailService;
 
 /**
  * Servicio especializado en coordinar la selección y sincronización entre
@@ -112,6 +114,7 @@ public class ListCoordinator extends AbstractListCoordinator {
             
             sincronizarSeleccionJList(getMainJListForCurrentMode(), desiredIndex);
             actualizarTiraDeMiniaturas(desiredIndex);
+            recentrarPrecarga(desiredIndex);
 
             logger.debug("[ListCoordinator] Notificando a {} listeners del cambio de selección al índice {}.", selectionListeners.size(), desiredIndex);
             fireMasterSelectionChanged(desiredIndex);
@@ -173,7 +176,12 @@ public class ListCoordinator extends AbstractListCoordinator {
             rutasParaCache.add(model.getCurrentListContext().getRutaCompleta(clave));
         }
         
-        controller.getImageListManager().precalentarCacheMiniaturasAsync(rutasParaCache);
+        // Informamos al servicio del rango que se va a ver para que priorice (y descarte lo lejano)
+        // antes de encolar las nuevas peticiones.
+        if (controller.getServicioMiniaturas() != null) {
+            controller.getServicioMiniaturas().actualizarRangoVisible(ThumbnailService.VISTA_TIRA, inicio, fin);
+        }
+        controller.getImageListManager().precalentarCacheMiniaturasAsync(rutasParaCache, inicio);
         
         modeloMiniaturas.clear();
         modeloMiniaturas.addAll(clavesParaMiniaturas);
@@ -189,6 +197,102 @@ public class ListCoordinator extends AbstractListCoordinator {
 
     } // --- Fin del método actualizarTiraDeMiniaturas ---
 
+    /**
+     * Recentra el anillo de precarga sobre la nueva selección. Las rutas se pasan en orden
+     * de navegación: la seleccionada, la siguiente, la anterior, la segunda siguiente...
+     * Con navegación circular la ventana da la vuelta por los extremos de la lista.
+     */
+    private void recentrarPrecarga(int selectedIndex) {
+        ImagePrefetchRing precarga = controller.getPrecargaImagenes();
+        if (precarga == null || model.getCurrentListContext() == null) return;
+
+        DefaultListModel<String> modeloPrincipal = model.getCurrentListContext().getModeloLista();
+        int total = modeloPrincipal.getSize();
+        if (selectedIndex < 0 || total == 0) {
+            precarga.recentrar(Collections.emptyList(), null);
+            return;
+        }
+
+        boolean circular = model.isNavegacionCircularActivada();
+        List<Path> ventana = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        indices.add(selectedIndex);
+        for (int paso = 1; paso <= Math.max(precarga.getSiguientes(), precarga.getAnteriores()); paso++) {
+            if (paso <= precarga.getSiguientes()) indices.add(selectedIndex + paso);
+            if (paso <= precarga.getAnteriores()) indices.add(selectedIndex - paso);
+        }
+        for (int indice : indices) {
+            if (circular) {
+                indice = Math.floorMod(indice, total);
+            } else if (indice < 0 || indice >= total) {
+                continue;
+            }
+            Path ruta = model.getCurrentListContext().getRutaCompleta(modeloPrincipal.getElementAt(indice));
+            if (ruta != null && !ventana.contains(ruta)) {
+                ventana.add(ruta);
+            }
+        }
+        precarga.recentrar(ventana, controller.calcularEscalaPantallaActual());
+    } // --- Fin del método recentrarPrecarga ---
+
+    /**
+     * Llamado tras añadir un lote de claves a la lista maestra mientras la carpeta se sigue
+     * escaneando. Las inserciones anteriores a la selección desplazan su índice, así que se
+     * busca de nuevo la clave seleccionada y se ajustan el índice oficial, la JList principal,
+     * la tira y la precarga. La imagen principal no se recarga: sigue siendo la misma.
+     */
+    @Override
+    public synchronized void reubicarSeleccionTrasInsercion() {
+        ListContext currentContext = model.getCurrentListContext();
+        if (currentContext == null || currentContext.getModeloLista() == null) return;
+
+        String selectedKey = currentContext.getSelectedImageKey();
+        if (selectedKey == null || isSincronizandoUI()) {
+            forzarActualizacionEstadoAcciones();
+            return;
+        }
+
+        int nuevoIndice = currentContext.getModeloLista().indexOf(selectedKey);
+        if (nuevoIndice < 0) return;
+
+        try {
+            setSincronizandoUI(true);
+            if (nuevoIndice != this.officialSelectedIndex) {
+                logger.trace("[ListCoordinator] Selección desplazada por inserción: {} -> {}", this.officialSelectedIndex, nuevoIndice);
+                this.officialSelectedIndex = nuevoIndice;
+                sincronizarSeleccionJList(getMainJListForCurrentMode(), nuevoIndice);
+            }
+            // Los vecinos pueden haber cambiado aunque el índice no lo haya hecho.
+            if (tiraDeMiniaturasDesactualizada(nuevoIndice)) {
+                actualizarTiraDeMiniaturas(nuevoIndice);
+                recentrarPrecarga(nuevoIndice);
+            }
+            forzarActualizacionEstadoAcciones();
+        } finally {
+            setSincronizandoUI(false);
+        }
+    } // --- Fin del método reubicarSeleccionTrasInsercion ---
+
+    /**
+     * Indica si el contenido de la tira ya no coincide con la ventana de la lista maestra
+     * alrededor del índice dado (por ejemplo, porque se han insertado claves cerca).
+     */
+    private boolean tiraDeMiniaturasDesactualizada(int selectedIndex) {
+        DefaultListModel<String> modeloMiniaturas = controller.getModeloMiniaturas();
+        if (modeloMiniaturas == null || model.getCurrentDisplayMode() == VisorModel.DisplayMode.GRID) return false;
+
+        DefaultListModel<String> modeloPrincipal = model.getCurrentListContext().getModeloLista();
+        VisorController.RangoMiniaturasCalculado rango = controller.calcularNumMiniaturasDinamicas();
+        int inicio = Math.max(0, selectedIndex - rango.antes);
+        int fin = Math.min(modeloPrincipal.getSize() - 1, selectedIndex + rango.despues);
+
+        if (modeloMiniaturas.getSize() != fin - inicio + 1) return true;
+        for (int i = inicio; i <= fin; i++) {
+            if (!modeloPrincipal.getElementAt(i).equals(modeloMiniaturas.getElementAt(i - inicio))) return true;
+        }
+        return false;
+    } // --- Fin del método tiraDeMiniaturasDesactualizada ---
+
     /**
      * Sincroniza de forma segura la selección de una JList.
      */
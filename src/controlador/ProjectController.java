@@ -1742,6 +1742,7 @@ public void notificarCambioEnProyecto() {
                 String etiqueta = etiquetasExistentes.get(clave); // Recuperar etiqueta si existía
                 modeloActual.getSelectedImages().put(clave, etiqueta);
             }
+            projectManager.reconstruirIndiceEtiquetas();
         }
 
         // 2. Sincronizar la lista de DESCARTES desde la UI al Modelo
@@ -16,13 +16,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToDoubleBiFunction;
 
-import javax.imageio.ImageIO;
 import javax.swing.AbstractAction;
 import javax.swing.AbstractButton;
 import javax.swing.Action;
@@ -72,7 +75,10 @@ import modelo.VisorModel.WorkMode;
 import servicios.ConfigKeys;
 import servicios.ConfigurationManager;
 import servicios.ProjectManager;
+import servicios.image.ImageDecoder;
+import servicios.image.ImagePrefetchRing;
 import servicios.image.ThumbnailService;
+import servicios.zoom.ZoomModeEnum;
 import vista.VisorView;
 import vista.config.ViewUIConfig;
 import vista.panels.GridDisplayPanel;
@@ -102,6 +108,7 @@ public class VisorController implements IModoController, ThemeChangeListener {
     private IconUtils iconUtils;					// utilidad para cargar y gestionar iconos de la aplicación
     private ThemeManager themeManager;				// Gestor de tema visual de la interfaz
     private ThumbnailService servicioMiniaturas;	// Servicio para gestionar las miniaturas
+    private ImagePrefetchRing precargaImagenes;		// Imágenes vecinas ya decodificadas para navegar sin esperas
     private ProjectManager projectManager;			// Gestor de proyectos (imagenes favoritas)
     private ComponentRegistry registry;
     private InfobarImageManager infobarImageManager; 
@@ -124,6 +131,10 @@ public class VisorController implements IModoController, ThemeChangeListener {
     
     // --- 2. Estado Interno del Controlador ---
     private Future<?> cargaImagenPrincipalFuture;
+    private Future<?> cargaVistaPreviaFuture;										// Vista previa desde la miniatura embebida
+    private Future<?> cargaResolucionCompletaFuture;								// Sustitución de una imagen reducida por la completa
+    private String claveResolucionCompletaEnCurso;
+    private final List<Runnable> pendientesResolucionCompleta = new ArrayList<>();	// Sólo se toca en el EDT
     
     private DefaultListModel<String> modeloMiniaturasVisualizador;
     private DefaultListModel<String> modeloMiniaturasCarrusel;
@@ -527,6 +538,12 @@ public class VisorController implements IModoController, ThemeChangeListener {
      * GeneralController durante el proceso de cierre.
      */
     public void apagarExecutorServiceOrdenadamente() {
+        if (imageListManager != null) {
+            imageListManager.detenerVigilancia();
+        }
+        if (precargaImagenes != null) {
+            precargaImagenes.apagar();
+        }
         if (executorService != null && !executorService.isShutdown()) {
            executorService.shutdown();
            try {
@@ -1026,16 +1043,61 @@ public class VisorController implements IModoController, ThemeChangeListener {
         if (cargaImagenPrincipalFuture != null && !cargaImagenPrincipalFuture.isDone()) {
             cargaImagenPrincipalFuture.cancel(true);
         }
+        if (cargaVistaPreviaFuture != null && !cargaVistaPreviaFuture.isDone()) {
+            cargaVistaPreviaFuture.cancel(true);
+        }
         final Path rutaCompleta = model.getRutaCompleta(archivoSeleccionadoKey); // La ruta también se hace final aquí
         if (rutaCompleta == null) {
             displayPanel.mostrarError("Ruta no encontrada para:\n" + archivoSeleccionadoKey, null);
             return;
         }
+        // En los modos que ajustan al panel basta con decodificar a resolución de pantalla.
+        // La resolución completa se pide después sólo si el zoom pasa de 1:1.
+        final ToDoubleBiFunction<Integer, Integer> escalaPantalla = calcularEscalaPantalla(displayPanel, model.getCurrentZoomMode());
+        
+        // --- 5. INTERCAMBIO INMEDIATO SI LA IMAGEN YA ESTÁ PRECARGADA ---
+        // La fecha del archivo no se mira aquí (estamos en el EDT): se comprueba justo después
+        // en segundo plano y, si el archivo ha cambiado, se vuelve a cargar.
+        ImageDecoder.ImagenDecodificada precargada = (precargaImagenes != null) ? precargaImagenes.obtener(rutaCompleta, escalaPantalla) : null;
+        if (precargada != null) {
+            logger.debug("  [actualizarImagenPrincipal] '{}' servida desde el anillo de precarga.", archivoSeleccionadoKey);
+            mostrarImagenPrincipalCargada(displayPanel, archivoSeleccionadoKey, rutaCompleta, precargada.imagen(), precargada.escala());
+            cargaImagenPrincipalFuture = executorService.submit(() -> {
+                if (!precargaImagenes.validar(rutaCompleta)) {
+                    logger.debug("  [actualizarImagenPrincipal] '{}' ha cambiado en disco. Se vuelve a cargar.", archivoSeleccionadoKey);
+                    SwingUtilities.invokeLater(() -> {
+                        if (Objects.equals(archivoSeleccionadoKey, model.getSelectedImageKey())) {
+                            actualizarImagenPrincipal(indiceSeleccionado);
+                        }
+                    });
+                }
+            });
+            return;
+        }
+        
         displayPanel.mostrarCargando("Cargando: " + rutaCompleta.getFileName() + "...");
         
-        // --- 5. EJECUTAR LA CARGA EN SEGUNDO PLANO ---
+        // --- 6. CARGA PROGRESIVA: FASE 1 (VISTA PREVIA) ---
+        // Sólo se usan fuentes baratas: un nivel del almacén de miniaturas que ya esté en
+        // memoria (se muestra en este mismo frame) o la miniatura embebida del archivo. Si la
+        // fase 2 va a leer a resolución de pantalla, llega casi tan pronto como una vista
+        // previa y no se lanza; si va a leer completa, la miniatura se lee en paralelo.
+        // Sólo se modifica en el EDT: marca que la imagen definitiva ya está en pantalla.
+        final AtomicBoolean definitivaMostrada = new AtomicBoolean(false);
+        BufferedImage vistaPreviaEnMemoria = (servicioMiniaturas != null && isCargaProgresivaActivada())
+                ? servicioMiniaturas.buscarImagenDeNivelEnMemoria(rutaCompleta)
+                : null;
+        if (vistaPreviaEnMemoria != null) {
+            displayPanel.mostrarVistaPrevia(vistaPreviaEnMemoria);
+        } else if (escalaPantalla == null && debeCargarseProgresivamente(rutaCompleta)) {
+            cargaVistaPreviaFuture = executorService.submit(
+                    () -> publicarVistaPrevia(displayPanel, archivoSeleccionadoKey, rutaCompleta, definitivaMostrada));
+        }
+        
+        // --- 7. EJECUTAR LA CARGA EN SEGUNDO PLANO (FASE 2: RESOLUCIÓN COMPLETA) ---
         cargaImagenPrincipalFuture = executorService.submit(() -> {
-            BufferedImage imagenCargadaDesdeDisco = null;
+            BufferedImage imagenCargada = null;
+            double escalaCargada = 1.0;
             try {
                 // Comprobación temprana de interrupción
                 if (Thread.currentThread().isInterrupted()) {
@@ -1043,10 +1105,36 @@ public class VisorController implements IModoController, ThemeChangeListener {
                     return;
                 }
 
-                if (!Files.exists(rutaCompleta)) throw new IOException("El archivo no existe: " + rutaCompleta);
-                imagenCargadaDesdeDisco = ImageIO.read(rutaCompleta.toFile());
-                if (imagenCargadaDesdeDisco == null) throw new IOException("Formato no soportado o archivo inválido.");
+                // Si el anillo de precarga está decodificando justo esta imagen, la esperamos
+                // en lugar de leerla dos veces (ya viene con la orientación corregida).
+                ImageDecoder.ImagenDecodificada dePrecarga = (precargaImagenes != null)
+                        ? precargaImagenes.obtenerOEsperar(rutaCompleta, escalaPantalla)
+                        : null;
+                if (dePrecarga != null && precargaImagenes.validar(rutaCompleta)) {
+                    imagenCargada = dePrecarga.imagen();
+                    escalaCargada = dePrecarga.escala();
+                }
+                if (imagenCargada == null) {
+                    if (!Files.exists(rutaCompleta)) throw new IOException("El archivo no existe: " + rutaCompleta);
+                    BufferedImage imagenCargadaDesdeDisco;
+                    if (escalaPantalla != null) {
+                        ImageDecoder.ImagenDecodificada decodificada = ImageDecoder.leerParaPantalla(rutaCompleta, escalaPantalla);
+                        imagenCargadaDesdeDisco = (decodificada != null) ? decodificada.imagen() : null;
+                        escalaCargada = (decodificada != null) ? decodificada.escala() : 1.0;
+                    } else {
+                        imagenCargadaDesdeDisco = ImageDecoder.leerCompleta(rutaCompleta);
+                    }
+                    if (imagenCargadaDesdeDisco == null) throw new IOException("Formato no soportado o archivo inválido.");
+                    imagenCargada = utils.ImageUtils.correctImageOrientation(imagenCargadaDesdeDisco, rutaCompleta);
+                    if (precargaImagenes != null) {
+                        precargaImagenes.registrar(rutaCompleta, imagenCargada, escalaCargada);
+                    }
+                }
 
+            } catch (InterruptedException ie) {
+                logger.debug("La carga de la imagen '{}' fue interrumpida mientras esperaba la precarga.", rutaCompleta.getFileName());
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception ex) {
                 // --- INICIO DE LA MODIFICACIÓN CLAVE ---
                 // Si el hilo ha sido interrumpido, no es un error real, es una cancelación.
@@ -1057,7 +1145,7 @@ public class VisorController implements IModoController, ThemeChangeListener {
                     logger.error("Error al cargar la imagen '{}': {}", rutaCompleta.getFileName(), ex.getMessage());
                 }
                 // En ambos casos (cancelación o error real), la imagen cargada será null.
-                imagenCargadaDesdeDisco = null; 
+                imagenCargada = null; 
                 // --- FIN DE LA MODIFICACIÓN CLAVE ---
             }
             
@@ -1067,50 +1155,219 @@ public class VisorController implements IModoController, ThemeChangeListener {
                  return;
             }
 
-            final BufferedImage imagenCorregida = utils.ImageUtils.correctImageOrientation(imagenCargadaDesdeDisco, rutaCompleta);
-            
-            final BufferedImage finalImagenCargada = imagenCorregida;
+            final BufferedImage finalImagenCargada = imagenCargada;
+            final double finalEscalaCargada = escalaCargada;
 
             SwingUtilities.invokeLater(() -> {
-                // ... el resto del método SwingUtilities.invokeLater se queda exactamente igual ...
                 // Doble chequeo: solo actualizar si la imagen que hemos cargado sigue siendo la seleccionada.
                 if (!Objects.equals(archivoSeleccionadoKey, model.getSelectedImageKey())) {
                     logger.debug("  [actualizarImagenPrincipal EDT] Carga de '" + archivoSeleccionadoKey + "' descartada. La selección ha cambiado.");
                     return;
                 }
+                definitivaMostrada.set(true);
+                mostrarImagenPrincipalCargada(displayPanel, archivoSeleccionadoKey, rutaCompleta, finalImagenCargada, finalEscalaCargada);
+            });
+        });
+        
+    } // --- Fin del método actualizarImagenPrincipal ---
+    
+    
+    /**
+     * Devuelve, para el modo de zoom y el tamaño actual del panel, la escala de pantalla que
+     * tendría una imagen de ancho x alto (en píxeles de dispositivo, teniendo en cuenta HiDPI).
+     * Null si el modo no ajusta al panel o la opción está desactivada: entonces se lee completa.
+     */
+    private ToDoubleBiFunction<Integer, Integer> calcularEscalaPantalla(ImageDisplayPanel displayPanel, ZoomModeEnum modo) {
+        if (modo == null || !modo.isAjusteAlPanel()) return null;
+        if (configuration != null && !configuration.getBoolean(ConfigKeys.COMPORTAMIENTO_DECODIFICACION_A_PANTALLA, true)) return null;
+        
+        double escalaDispositivo = 1.0;
+        if (displayPanel.getGraphicsConfiguration() != null) {
+            escalaDispositivo = Math.max(1.0, displayPanel.getGraphicsConfiguration().getDefaultTransform().getScaleX());
+        }
+        final double panelAncho = displayPanel.getWidth() * escalaDispositivo;
+        final double panelAlto = displayPanel.getHeight() * escalaDispositivo;
+        if (panelAncho <= 0 || panelAlto <= 0) return null;
+        
+        switch (modo) {
+            case FIT_TO_WIDTH:  return (ancho, alto) -> panelAncho / ancho;
+            case FIT_TO_HEIGHT: return (ancho, alto) -> panelAlto / alto;
+            case FILL:          return (ancho, alto) -> Math.max(panelAncho / ancho, panelAlto / alto);
+            default:            return (ancho, alto) -> Math.min(panelAncho / ancho, panelAlto / alto); // FIT_TO_SCREEN y SMART_FIT
+        }
+    } // --- Fin del método calcularEscalaPantalla ---
+    
+    
+    /**
+     * Escala de pantalla del panel de imagen activo con el modo de zoom actual (ver
+     * {@link #calcularEscalaPantalla}). La usa el anillo de precarga para decodificar las
+     * vecinas igual que se decodificará la seleccionada. Debe llamarse en el EDT.
+     */
+    public ToDoubleBiFunction<Integer, Integer> calcularEscalaPantallaActual() {
+        if (model == null || registry == null) return null;
+        ImageDisplayPanel displayPanel = (model.getCurrentWorkMode() == VisorModel.WorkMode.PROYECTO)
+                                       ? registry.get("panel.proyecto.display")
+                                       : registry.get("panel.display.imagen");
+        return (displayPanel != null) ? calcularEscalaPantalla(displayPanel, model.getCurrentZoomMode()) : null;
+    } // --- Fin del método calcularEscalaPantallaActual ---
+    
+    
+    /**
+     * Sustituye la imagen actual, si está decodificada a resolución de pantalla, por la
+     * versión completa. El zoom se convierte para que el tamaño en pantalla no cambie.
+     * Las peticiones repetidas mientras hay una carga en curso se agrupan.
+     *
+     * @param alCompletar Se ejecuta en el EDT cuando la imagen completa ya está en el modelo
+     *                    (inmediatamente si ya lo estaba). Puede ser null.
+     */
+    public void solicitarResolucionCompleta(Runnable alCompletar) {
+        if (model == null || !model.isImagenReducida()) {
+            if (alCompletar != null) alCompletar.run();
+            return;
+        }
+        final String clave = model.getSelectedImageKey();
+        final Path ruta = (clave != null) ? model.getRutaCompleta(clave) : null;
+        if (ruta == null || executorService == null || executorService.isShutdown()) return;
+        
+        if (!Objects.equals(clave, claveResolucionCompletaEnCurso)) {
+            // La petición anterior era de otra imagen: ya no interesa.
+            if (cargaResolucionCompletaFuture != null) cargaResolucionCompletaFuture.cancel(true);
+            pendientesResolucionCompleta.clear();
+            cargaResolucionCompletaFuture = null;
+        }
+        if (alCompletar != null) pendientesResolucionCompleta.add(alCompletar);
+        if (cargaResolucionCompletaFuture != null && !cargaResolucionCompletaFuture.isDone()) return;
+        
+        claveResolucionCompletaEnCurso = clave;
+        cargaResolucionCompletaFuture = executorService.submit(() -> {
+            BufferedImage completa = null;
+            try {
+                ImageDecoder.ImagenDecodificada dePrecarga = (precargaImagenes != null) ? precargaImagenes.obtenerOEsperar(ruta, null) : null;
+                if (dePrecarga != null && precargaImagenes.validar(ruta)) {
+                    completa = dePrecarga.imagen();
+                }
+                if (completa == null) {
+                    BufferedImage leida = ImageDecoder.leerCompleta(ruta);
+                    if (leida == null) throw new IOException("Formato no soportado o archivo inválido.");
+                    completa = utils.ImageUtils.correctImageOrientation(leida, ruta);
+                    if (precargaImagenes != null) precargaImagenes.registrar(ruta, completa, 1.0);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    logger.error("Error al cargar la resolución completa de '{}': {}", ruta.getFileName(), ex.getMessage());
+                }
+                completa = null;
+            }
+            if (Thread.currentThread().isInterrupted()) return;
+            
+            final BufferedImage finalCompleta = completa;
+            SwingUtilities.invokeLater(() -> {
+                if (!Objects.equals(clave, claveResolucionCompletaEnCurso)) return; // Ya se pidió otra
+                List<Runnable> pendientes = new ArrayList<>(pendientesResolucionCompleta);
+                pendientesResolucionCompleta.clear();
+                claveResolucionCompletaEnCurso = null;
                 
-                if (view == null || model == null || zoomManager == null || registry == null || projectManager == null) return;
+                if (finalCompleta == null || !Objects.equals(clave, model.getSelectedImageKey()) || !model.isImagenReducida()) return;
                 
-                if (finalImagenCargada != null) {
-                    // --- Caso de Éxito ---
-                    model.setCurrentImage(finalImagenCargada);
-                    displayPanel.limpiar();
-
-                    if (zoomManager != null) {
-                        logger.debug("  [actualizarImagenPrincipal] Aplicando modo de zoom actual...");
-                        zoomManager.aplicarModoDeZoom(model.getCurrentZoomMode());
-                    }
-
-                    boolean estaMarcada = projectManager.estaMarcada(rutaCompleta);
-                    actualizarEstadoVisualBotonMarcarYBarraEstado(estaMarcada, rutaCompleta);
-
-                } else { 
-                    // --- Caso de Error de Carga ---
-                    model.setCurrentImage(null);
-                    if (iconUtils != null) {
-                         ImageIcon errorIcon = iconUtils.getScaledCommonIcon("imagen-rota.png", 128, 128);
-                         displayPanel.mostrarError("Error al cargar: \n" + rutaCompleta.getFileName().toString(), errorIcon);
-                    }
-                    actualizarEstadoVisualBotonMarcarYBarraEstado(false, null);
-                }
-
+                double escalaAnterior = model.getEscalaDecodificacion();
+                model.setCurrentImage(finalCompleta);
+                model.setZoomFactor(model.getZoomFactor() / escalaAnterior);
+                logger.debug("  [solicitarResolucionCompleta] '{}' sustituida por su resolución completa.", clave);
+                
+                if (zoomManager != null) zoomManager.refrescarVistaSincrono();
                 if (infobarImageManager != null) infobarImageManager.actualizar();
-                if (statusBarManager != null) statusBarManager.actualizar();
-                if (listCoordinator != null) listCoordinator.forzarActualizacionEstadoAcciones();
+                pendientes.forEach(Runnable::run);
             });
         });
+    } // --- Fin del método solicitarResolucionCompleta ---
+    
+    
+    private boolean isCargaProgresivaActivada() {
+        return configuration == null || configuration.getBoolean(ConfigKeys.COMPORTAMIENTO_CARGA_PROGRESIVA, true);
+    } // --- Fin del método isCargaProgresivaActivada ---
+    
+    
+    /**
+     * La vista previa sólo compensa en archivos grandes: en los pequeños la lectura completa
+     * es casi tan rápida como la reducida y sólo añadiría un parpadeo.
+     */
+    private boolean debeCargarseProgresivamente(Path rutaCompleta) {
+        if (servicioMiniaturas == null || !isCargaProgresivaActivada()) {
+            return false;
+        }
+        long umbralBytes = (configuration != null)
+                ? configuration.getInt(ConfigKeys.COMPORTAMIENTO_CARGA_PROGRESIVA_UMBRAL_KB, 1024) * 1024L
+                : 1024L * 1024L;
+        try {
+            return Files.size(rutaCompleta) >= umbralBytes;
+        } catch (IOException e) {
+            return false;
+        }
+    } // --- Fin del método debeCargarseProgresivamente ---
+    
+    
+    /**
+     * Lee la miniatura embebida del archivo (sin decodificar la imagen principal) y la publica
+     * en el EDT como vista previa. Corre en paralelo con la lectura completa: si ésta ya se ha
+     * mostrado, la vista previa se descarta para no tapar la imagen definitiva.
+     */
+    private void publicarVistaPrevia(ImageDisplayPanel displayPanel, String archivoSeleccionadoKey, Path rutaCompleta, AtomicBoolean definitivaMostrada) {
+        BufferedImage vistaPrevia;
+        try {
+            BufferedImage miniatura = ImageDecoder.leerMiniaturaEmbebida(rutaCompleta);
+            vistaPrevia = (miniatura != null) ? utils.ImageUtils.correctImageOrientation(miniatura, rutaCompleta) : null;
+        } catch (Exception e) {
+            logger.trace("Sin vista previa embebida para '{}': {}", rutaCompleta.getFileName(), e.getMessage());
+            return;
+        }
+        if (vistaPrevia == null || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (!definitivaMostrada.get() && Objects.equals(archivoSeleccionadoKey, model.getSelectedImageKey())) {
+                displayPanel.mostrarVistaPrevia(vistaPrevia);
+            }
+        });
+    } // --- Fin del método publicarVistaPrevia ---
+    
+    
+    /**
+     * Aplica en la UI el resultado de cargar la imagen principal (éxito o error).
+     * Debe llamarse en el EDT.
+     */
+    private void mostrarImagenPrincipalCargada(ImageDisplayPanel displayPanel, String archivoSeleccionadoKey, Path rutaCompleta, BufferedImage imagenCargada, double escalaDecodificacion) {
+        if (view == null || model == null || zoomManager == null || registry == null || projectManager == null) return;
         
-    } // --- Fin del método actualizarImagenPrincipal ---
+        if (imagenCargada != null) {
+            // --- Caso de Éxito ---
+            model.setCurrentImage(imagenCargada, escalaDecodificacion);
+            displayPanel.limpiar();
+
+            if (zoomManager != null) {
+                logger.debug("  [actualizarImagenPrincipal] Aplicando modo de zoom actual...");
+                zoomManager.aplicarModoDeZoom(model.getCurrentZoomMode());
+            }
+
+            boolean estaMarcada = projectManager.estaMarcada(rutaCompleta);
+            actualizarEstadoVisualBotonMarcarYBarraEstado(estaMarcada, rutaCompleta);
+
+        } else { 
+            // --- Caso de Error de Carga ---
+            model.setCurrentImage(null);
+            if (iconUtils != null) {
+                 ImageIcon errorIcon = iconUtils.getScaledCommonIcon("imagen-rota.png", 128, 128);
+                 displayPanel.mostrarError("Error al cargar: \n" + rutaCompleta.getFileName().toString(), errorIcon);
+            }
+            actualizarEstadoVisualBotonMarcarYBarraEstado(false, null);
+        }
+
+        if (infobarImageManager != null) infobarImageManager.actualizar();
+        if (statusBarManager != null) statusBarManager.actualizar();
+        if (listCoordinator != null) listCoordinator.forzarActualizacionEstadoAcciones();
+    } // --- Fin del método mostrarImagenPrincipalCargada ---
     
     
     /**
@@ -1167,7 +1424,7 @@ public class VisorController implements IModoController, ThemeChangeListener {
                 }
 
                 if (!Files.exists(rutaCompleta)) throw new IOException("El archivo no existe: " + rutaCompleta);
-                imagenCargadaDesdeDisco = ImageIO.read(rutaCompleta.toFile());
+                imagenCargadaDesdeDisco = ImageDecoder.leerCompleta(rutaCompleta);
                 if (imagenCargadaDesdeDisco == null) throw new IOException("Formato no soportado o archivo inválido.");
 
             } catch (Exception ex) {
@@ -1520,10 +1777,8 @@ public class VisorController implements IModoController, ThemeChangeListener {
             configuration.setString(ConfigKeys.MINIATURAS_TAMANO_NORM_ANCHO, String.valueOf(newNormWidth));
             configuration.setString(ConfigKeys.MINIATURAS_TAMANO_NORM_ALTO, String.valueOf(newNormWidth));
 
-            // 2. Limpiar la caché de imágenes viejas
-            if (servicioMiniaturas != null) {
-                servicioMiniaturas.limpiarCache();
-            }
+            // 2. No hace falta limpiar la caché: las miniaturas se indexan por tamaño y las del
+            //    tamaño anterior se expulsan solas. Vaciarla borraría también las del grid.
 
             // 3. (Paso crucial) Llamar al nuevo método en la VISTA para que actualice TODO el layout
             if (view != null) {
@@ -1560,10 +1815,8 @@ public class VisorController implements IModoController, ThemeChangeListener {
             configuration.setString(ConfigKeys.MINIATURAS_TAMANO_NORM_ANCHO, String.valueOf(newNormWidth));
             configuration.setString(ConfigKeys.MINIATURAS_TAMANO_NORM_ALTO, String.valueOf(newNormWidth));
 
-            // 2. Limpiar la caché de imágenes viejas
-            if (servicioMiniaturas != null) {
-                servicioMiniaturas.limpiarCache();
-            }
+            // 2. No hace falta limpiar la caché: las miniaturas se indexan por tamaño y las del
+            //    tamaño anterior se expulsan solas. Vaciarla borraría también las del grid.
 
             // 3. (Paso crucial) Llamar al nuevo método en la VISTA para que actualice TODO el layout
             if (view != null) {
@@ -2361,6 +2614,7 @@ public class VisorController implements IModoController, ThemeChangeListener {
     
     public ViewUIConfig getUiConfigForView() { return uiConfigForView; }
 	public ThumbnailService getServicioMiniaturas() { return servicioMiniaturas; }
+	public ImagePrefetchRing getPrecargaImagenes() { return precargaImagenes; }
 	public IconUtils getIconUtils() { return iconUtils; } 
     public ComponentRegistry getComponentRegistry() {return this.registry;}
     public ToolbarManager getToolbarManager() {return this.toolbarManager;}
@@ -2557,6 +2811,7 @@ public class VisorController implements IModoController, ThemeChangeListener {
 	public void setThemeManager				(ThemeManager themeManager) { this.themeManager = themeManager; }
 	public void setIconUtils				(IconUtils iconUtils) { this.iconUtils = iconUtils; }
 	public void setServicioMiniaturas		(ThumbnailService servicioMiniaturas) { this.servicioMiniaturas = servicioMiniaturas; }
+	public void setPrecargaImagenes			(ImagePrefetchRing precargaImagenes) { this.precargaImagenes = precargaImagenes; }
 	public void setExecutorService			(ExecutorService executorService) { this.executorService = executorService; }
 	public void setActionMap				(Map<String, Action> actionMap) { this.actionMap = actionMap; }
 	public void setUiConfigForView			(ViewUIConfig uiConfigForView) { this.uiConfigForView = uiConfigForView; }
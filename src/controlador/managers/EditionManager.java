@@ -121,7 +121,8 @@ public class EditionManager  implements IEditionManager{
 
         if (imagenEditada != null) {
             System.out.println("  -> " + nombreOperacion + " exitosa. Actualizando modelo...");
-            model.setCurrentImage(imagenEditada);
+            // Se conserva la escala: si la imagen estaba reducida, la editada también lo está.
+            model.setCurrentImage(imagenEditada, model.getEscalaDecodificacion());
             
             // --- INICIO DE LA MODIFICACIÓN CLAVE ---
             // En lugar de llamar a zoomManager.refrescarVistaSincrono() directamente,
@@ -2,11 +2,17 @@ package controlador.managers;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 import javax.swing.DefaultListModel;
 import javax.swing.JList;
@@ -17,7 +23,10 @@ import org.slf4j.LoggerFactory;
 import controlador.managers.filter.FilterCriterion;
 import controlador.managers.filter.FilterCriterion.FilterSource;
 import controlador.managers.filter.FilterCriterion.FilterType;
+import controlador.managers.filter.FilterIndex;
 import modelo.VisorModel;
+import servicios.ConfigKeys;
+import servicios.ProjectManager;
 
 /**
  * Gestiona la lógica de búsqueda y el conjunto de reglas de filtrado activas.
@@ -48,8 +57,13 @@ public class FilterManager {
 	private FilterCriterion tornadoCriterion;
 	private FilterSource filtroActivoSource = FilterSource.FILENAME;    
 	private javax.swing.SwingWorker<DefaultListModel<String>, Void> liveFilterWorker;
+	private volatile ResultadoEnVivo ultimoResultadoEnVivo; // Para refinar en lugar de refiltrar al alargar la búsqueda
 	private InfobarStatusManager statusBarManager;
 	private DefaultListModel<String> absoluteMasterList = new DefaultListModel<>();
+
+	// Índice de búsqueda de cada lista maestra filtrada (absoluta, copia del filtro en vivo...).
+	// Cada índice se invalida solo cuando su lista cambia.
+	private final Map<DefaultListModel<String>, FilterIndex> indicesPorLista = new WeakHashMap<>();
 	
     public FilterManager(VisorModel model) {
         this.model = model;
@@ -102,81 +116,73 @@ public class FilterManager {
         if (masterListModel == null) return filteredModel;
 
         if (!isFilterActive()) {
-            for(int i = 0; i < masterListModel.getSize(); i++){
-                filteredModel.addElement(masterListModel.getElementAt(i));
-            }
+            filteredModel.addAll(Collections.list(masterListModel.elements()));
             return filteredModel;
         }
 
-        for (int i = 0; i < masterListModel.getSize(); i++) {
-            String itemKey = masterListModel.getElementAt(i);
-            if (passesAllFilters(itemKey)) {
-                filteredModel.addElement(itemKey);
-            }
-        }
+        // Se evalúa a un mapa de bits sobre la lista maestra y el modelo se llena de una vez,
+        // sin un evento ni un crecimiento del Vector por elemento.
+        FilterIndex indice = obtenerIndice(masterListModel);
+        BitSet coincidencias = indice.evaluar(indice.preparar(activeFilters, buscadorEtiquetas()));
+        filteredModel.addAll(indice.claves(coincidencias));
         
         logger.debug("Filtros aplicados. {} resultados de {} totales.", filteredModel.getSize(), masterListModel.getSize());
         return filteredModel;
     } // --- Fin del método applyFilters ---
 
-    private boolean passesAllFilters(String itemKey) {
-        Path filePath = model.getRutaCompleta(itemKey);
-        if (filePath == null) { 
-            return false;
+    /**
+     * Devuelve el índice de búsqueda de una lista maestra, construyéndolo si no existe o si
+     * la lista ha cambiado desde la última vez. Se llama desde el EDT y desde el worker del
+     * filtro en vivo. Los trigramas de un índice nuevo se construyen aparte, en segundo plano.
+     */
+    private synchronized FilterIndex obtenerIndice(DefaultListModel<String> lista) {
+        FilterIndex indice = indicesPorLista.get(lista);
+        if (indice != null && indice.isVigente()) {
+            return indice;
         }
-        
-        String fileName = filePath.getFileName().toString().toLowerCase();
-        String folderPath = (filePath.getParent() != null) ? filePath.getParent().toString().toLowerCase() : "";
-
-        // Iteramos sobre CADA filtro en la lista de filtros activos.
-        for (FilterCriterion filter : activeFilters) {
-            
-            // Determinamos sobre qué texto vamos a buscar (nombre de archivo, carpeta o tag)
-            String targetString;
-            switch (filter.getSourceType()) {
-                case FOLDER:
-                    targetString = folderPath;
-                    break;
-                case TAG:
-                    // TODO: Obtener los tags de la imagen 'itemKey' desde la base de datos
-                    // y comprobar si alguno coincide con filter.getValue().
-                    // Por ahora, para que no falle, lo tratamos como si no coincidiera.
-                    targetString = ""; 
-                    break;
-                case TEXT:
-                default:
-                    targetString = fileName;
-                    break;
-            }
-            
-            String filterValue = filter.getValue().toLowerCase();
-            if (filterValue.isEmpty()) {
-                continue; // Ignoramos filtros con valor vacío
-            }
-
-            // Verificamos si el texto objetivo contiene el valor del filtro.
-            boolean conditionMet = targetString.contains(filterValue);
-
-            // --- INICIO DE LA NUEVA LÓGICA UNIFICADA ---
-            
-            // CASO 1: Es un filtro de tipo AÑADIR (ADD) y la condición NO se cumple.
-            // Si la imagen NO contiene el texto que debería, la descartamos inmediatamente.
-            if (filter.getLogic() == FilterCriterion.Logic.ADD && !conditionMet) {
-                return false; // No cumple una de las condiciones obligatorias.
-            }
-
-            // CASO 2: Es un filtro de tipo EXCLUIR (NOT) y la condición SÍ se cumple.
-            // Si la imagen SÍ contiene el texto que NO debería, la descartamos inmediatamente.
-            if (filter.getLogic() == FilterCriterion.Logic.NOT && conditionMet) {
-                return false; // Contiene algo prohibido.
-            }
-            // --- FIN DE LA NUEVA LÓGICA UNIFICADA ---
+        if (indice != null) {
+            indice.desconectar(lista);
         }
+        long inicio = System.nanoTime();
+        indice = FilterIndex.construir(lista, model::getRutaCompleta);
+        indicesPorLista.put(lista, indice);
+        indexarTrigramasEnSegundoPlano(indice);
+        logger.debug("[FilterManager] Índice de filtrado construido para {} elementos en {} ms.", indice.tamano(), (System.nanoTime() - inicio) / 1_000_000);
+        return indice;
+    } // ---FIN de metodo obtenerIndice---
 
-        // Si el bucle termina, significa que la imagen ha pasado todas las reglas de filtro.
-        return true;
-
-    } // ---FIN de metodo passesAllFilters---
+    
+    /**
+     * Búsqueda de rutas por etiqueta del proyecto, para los criterios de tipo etiqueta.
+     * @return null si todavía no hay ProjectManager.
+     */
+    private Function<String, Set<String>> buscadorEtiquetas() {
+        ProjectManager projectManager = (visorController != null) ? visorController.getProjectManager() : null;
+        return (projectManager != null) ? projectManager::getRutasConEtiqueta : null;
+    } // ---FIN de metodo buscadorEtiquetas---
+    
+    
+    private void indexarTrigramasEnSegundoPlano(FilterIndex indice) {
+        if (visorController == null || visorController.getConfigurationManager() == null
+                || !visorController.getConfigurationManager().getBoolean(ConfigKeys.COMPORTAMIENTO_FILTRO_INDICE_TRIGRAMAS, true)) {
+            return;
+        }
+        ExecutorService executor = visorController.getExecutorService();
+        if (executor == null || executor.isShutdown()) {
+            return;
+        }
+        try {
+            executor.submit(() -> {
+                long inicio = System.nanoTime();
+                indice.indexarTrigramas();
+                if (indice.tieneTrigramas()) {
+                    logger.debug("[FilterManager] Trigramas de {} elementos indexados en {} ms.", indice.tamano(), (System.nanoTime() - inicio) / 1_000_000);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("[FilterManager] No se pudieron indexar los trigramas: ejecutor no disponible.");
+        }
+    } // ---FIN de metodo indexarTrigramasEnSegundoPlano---
     
     
     /**
@@ -281,9 +287,60 @@ public class FilterManager {
     public void setAbsoluteMasterList(DefaultListModel<String> masterList) {
         this.absoluteMasterList = clonarModelo(masterList);
         logger.info("[FilterManager] Nueva lista maestra absoluta establecida con {} elementos.", this.absoluteMasterList.getSize());
+        
+        // El índice de búsqueda se prepara ya, en segundo plano, para que el primer filtro no lo espere.
+        DefaultListModel<String> nuevaLista = this.absoluteMasterList;
+        ExecutorService executor = (visorController != null) ? visorController.getExecutorService() : null;
+        if (executor != null && !executor.isShutdown() && !nuevaLista.isEmpty()) {
+            try {
+                executor.submit(() -> obtenerIndice(nuevaLista));
+            } catch (RejectedExecutionException e) {
+                logger.debug("[FilterManager] No se pudo preparar el índice de filtrado: ejecutor no disponible.");
+            }
+        }
     } // ---FIN de metodo setAbsoluteMasterList---
     
     
+    /**
+     * Incorpora a la lista maestra absoluta (y a la copia del filtro en vivo, si está activo)
+     * las claves de un nuevo lote de la carga por lotes, manteniendo el orden.
+     * Las rutas de las claves deben estar ya en el mapa del contexto.
+     * @param clavesOrdenadas Claves nuevas del lote, ordenadas.
+     * @return Las claves del lote que deben aparecer en la lista visible: todas si no hay
+     *         filtros activos, o sólo las que los cumplen.
+     */
+    public List<String> incorporarLoteAListaMaestra(List<String> clavesOrdenadas) {
+        ImageListManager.fusionarOrdenado(this.absoluteMasterList, clavesOrdenadas);
+        if (this.masterModelSinFinito != null) {
+            ImageListManager.fusionarOrdenado(this.masterModelSinFinito, clavesOrdenadas);
+        }
+        if (!isFilterActive()) {
+            return clavesOrdenadas;
+        }
+        FilterIndex.Consulta consulta = FilterIndex.Consulta.de(activeFilters, buscadorEtiquetas());
+        List<String> visibles = new ArrayList<>();
+        for (String clave : clavesOrdenadas) {
+            if (consulta.cumpleRuta(model.getRutaCompleta(clave))) {
+                visibles.add(clave);
+            }
+        }
+        return visibles;
+    } // ---FIN de metodo incorporarLoteAListaMaestra---
+    
+    
+    /**
+     * Retira de la lista maestra absoluta (y de la copia del filtro en vivo) claves cuyos
+     * archivos ya no existen.
+     * @param clavesOrdenadas Claves a retirar, ordenadas.
+     */
+    public void retirarDeListaMaestra(List<String> clavesOrdenadas) {
+        ImageListManager.retirarOrdenado(this.absoluteMasterList, clavesOrdenadas);
+        if (this.masterModelSinFinito != null) {
+            ImageListManager.retirarOrdenado(this.masterModelSinFinito, clavesOrdenadas);
+        }
+    } // ---FIN de metodo retirarDeListaMaestra---
+    
+    
     
 // **********************************************************************************************************************************************************
     
@@ -459,7 +516,7 @@ public class FilterManager {
                 }
 
                 // La parte pesada: aplicar los filtros a la lista maestra de ~12,000 elementos
-                return applyFilters(masterModelSinFinito);
+                return filtrarEnVivo(masterModelSinFinito, searchText);
             } // --- Fin del método doInBackground ---
 
             @Override
@@ -509,6 +566,47 @@ public class FilterManager {
         
     } // --- Fin del método actualizarFiltro ---
     
+    
+    /**
+     * Aplica los filtros activos para el filtro en vivo. Si la búsqueda sólo se ha alargado
+     * respecto a la anterior (y lo demás no ha cambiado), el nuevo resultado es
+     * necesariamente un subconjunto del anterior, así que se evalúa sólo sobre él. Al borrar
+     * caracteres se vuelve a filtrar la lista maestra completa.
+     */
+    private DefaultListModel<String> filtrarEnVivo(DefaultListModel<String> listaMaestra, String textoBusqueda) {
+        if (!isFilterActive()) {
+            this.ultimoResultadoEnVivo = null;
+            return applyFilters(listaMaestra);
+        }
+        FilterIndex indice = obtenerIndice(listaMaestra);
+        List<FilterCriterion> criterios = new ArrayList<>(activeFilters);
+        List<String> otrosCriterios = new ArrayList<>();
+        // Un cambio de etiquetas puede añadir coincidencias fuera del resultado anterior.
+        ProjectManager projectManager = (visorController != null) ? visorController.getProjectManager() : null;
+        otrosCriterios.add("etiquetas|" + ((projectManager != null) ? projectManager.getVersionEtiquetas() : -1));
+        for (FilterCriterion criterio : criterios) {
+            if (criterio != tornadoCriterion) {
+                otrosCriterios.add(criterio.getLogic() + "|" + criterio.getSourceType() + "|" + criterio.getValue());
+            }
+        }
+        String texto = textoBusqueda.toLowerCase();
+
+        ResultadoEnVivo anterior = this.ultimoResultadoEnVivo;
+        boolean refinar = anterior != null
+                && anterior.indice() == indice && indice.isVigente()
+                && !anterior.texto().isEmpty() && texto.contains(anterior.texto())
+                && anterior.otrosCriterios().equals(otrosCriterios);
+
+        BitSet coincidencias = indice.evaluar(indice.preparar(criterios, buscadorEtiquetas()), refinar ? anterior.coincidencias() : null);
+        this.ultimoResultadoEnVivo = new ResultadoEnVivo(indice, texto, otrosCriterios, coincidencias);
+        logger.debug("[FilterManager] Filtro en vivo '{}': {} resultados ({}).", textoBusqueda, coincidencias.cardinality(),
+                refinar ? "refinando " + anterior.coincidencias().cardinality() + " anteriores" : "lista completa");
+
+        DefaultListModel<String> resultado = new DefaultListModel<>();
+        resultado.addAll(indice.claves(coincidencias));
+        return resultado;
+    } // --- Fin del método filtrarEnVivo ---
+    
 
     public void limpiarFiltro() {
         if (this.masterModelSinFinito == null) return;
@@ -526,6 +624,7 @@ public class FilterManager {
         visorController.getListCoordinator().reiniciarYSeleccionarIndice(this.indiceSeleccionadoAntesDeFiltrar);
 
         this.masterModelSinFinito = null;
+        this.ultimoResultadoEnVivo = null;
         this.indiceSeleccionadoAntesDeFiltrar = -1;
     } // --- Fin del método limpiarFiltro ---
     
@@ -536,4 +635,10 @@ public class FilterManager {
     
     public record FilterResult(DefaultListModel<String> model, Map<String, Path> pathMap) {}
     
+    /**
+     * Último resultado del filtro en vivo: posiciones de 'indice' que cumplían la búsqueda
+     * 'texto' (en minúsculas) junto con el resto de criterios. No debe modificarse.
+     */
+    private record ResultadoEnVivo(FilterIndex indice, String texto, List<String> otrosCriterios, BitSet coincidencias) {}
+    
 } // --- Fin de la clase FilterManager ---
\ No newline at end of file
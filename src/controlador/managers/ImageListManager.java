@@ -3,11 +3,19 @@ package controlador.managers;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.Action;
 import javax.swing.DefaultListModel;
@@ -27,7 +35,13 @@ import controlador.managers.FilterManager.FilterResult;
 import controlador.managers.interfaces.IListCoordinator;
 import controlador.utils.ComponentRegistry;
 import controlador.worker.BuscadorArchivosWorker;
+import modelo.ListContext;
 import modelo.VisorModel;
+import servicios.ConfigKeys;
+import servicios.FolderWatcher;
+import servicios.cache.FolderIndexCache;
+import servicios.image.ImageFormatDetector;
+import servicios.image.ImageMetadataService;
 import servicios.image.ThumbnailService;
 import vista.VisorView;
 import vista.dialogos.TaskProgressDialog;
@@ -52,6 +66,18 @@ public class ImageListManager {
     
     // --- Estado Interno ---
     private Future<?> cargaImagenesFuture;
+    private Future<?> revisionIndiceFuture;
+    private final AtomicLong generacionCarga = new AtomicLong();
+
+    // --- Índice persistente de carpetas ---
+    private final FolderIndexCache indiceCarpetas;
+    private final ExecutorService ejecutorIndice;
+
+    // --- Vigilancia de la carpeta abierta ---
+    private FolderWatcher vigilante;
+
+    // Se lee al empezar cada carga: el filtro de imágenes se evalúa desde varios hilos.
+    private volatile boolean deteccionPorContenido;
 
 
     /**
@@ -72,6 +98,15 @@ public class ImageListManager {
         this.registry = visorController.getComponentRegistry();
         this.actionMap = visorController.getActionMap();
         this.generalController = visorController.getGeneralController();
+
+        this.indiceCarpetas = new FolderIndexCache();
+        // Hilo propio: una revisión larga no debe ocupar el pool de carga de imágenes.
+        this.ejecutorIndice = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "FolderIndexThread");
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
     } // --- FIN de constructor ImageListManager ---
     
     
@@ -107,6 +142,12 @@ public class ImageListManager {
             logger.debug("  -> Cancelando tarea de carga de lista anterior...");
             cargaImagenesFuture.cancel(true);
         }
+        if (revisionIndiceFuture != null && !revisionIndiceFuture.isDone()) {
+            revisionIndiceFuture.cancel(true);
+        }
+        final long miGeneracion = generacionCarga.incrementAndGet();
+        detenerVigilancia();
+        this.deteccionPorContenido = visorController.getConfigurationManager().getBoolean(ConfigKeys.COMPORTAMIENTO_DETECCION_POR_CONTENIDO, false);
 
         final boolean mostrarSoloCarpeta = model.isMostrarSoloCarpetaActual();
         int depth = mostrarSoloCarpeta ? 1 : Integer.MAX_VALUE;
@@ -124,7 +165,53 @@ public class ImageListManager {
         if (this.thumbnailService != null) {
             this.thumbnailService.limpiarCache();
         }
-        
+
+        // Con índice guardado, la lista sale de él al instante y la carpeta se revisa después.
+        if (indiceCarpetas.isActiva()) {
+            final Path raiz = pathDeInicioWalk;
+            this.cargaImagenesFuture = ejecutorIndice.submit(() -> {
+                FolderIndexCache.Indice indice = indiceCarpetas.leer(raiz, depth);
+                Map<String, Path> mapa = null;
+                List<String> clavesOrdenadas = null;
+                if (indice != null && !indice.estaVacio()) {
+                    mapa = new ConcurrentHashMap<>(indice.construirMapaRutas());
+                    clavesOrdenadas = new ArrayList<>(mapa.keySet());
+                    java.util.Collections.sort(clavesOrdenadas);
+                }
+                final Map<String, Path> mapaIndice = mapa;
+                final List<String> clavesIndice = clavesOrdenadas;
+                SwingUtilities.invokeLater(() -> {
+                    if (generacionCarga.get() != miGeneracion) {
+                        return; // Ya se ha pedido otra carga.
+                    }
+                    if (mapaIndice == null) {
+                        escanearCarpeta(raiz, depth, claveImagenAMantener, alFinalizarConExito, miGeneracion);
+                        return;
+                    }
+                    logger.debug("[cargarListaImagenes] Lista obtenida del índice de carpeta: {} imágenes.", clavesIndice.size());
+                    mostrarListaCargada(clavesIndice, mapaIndice, claveImagenAMantener);
+                    if (alFinalizarConExito != null) {
+                        alFinalizarConExito.run();
+                    }
+                    iniciarRevisionIndice(indice, raiz, depth, miGeneracion);
+                    iniciarVigilancia(raiz, depth, miGeneracion);
+                });
+            });
+            return;
+        }
+
+        escanearCarpeta(pathDeInicioWalk, depth, claveImagenAMantener, alFinalizarConExito, miGeneracion);
+    } // --- fin del metodo cargarListaImagenes ---
+
+
+    /**
+     * Escanea la carpeta con {@link BuscadorArchivosWorker} (por lotes o de una vez, según la
+     * configuración) mostrando el diálogo de progreso. Al terminar con éxito, y si el índice
+     * de carpetas está activo, lo construye en segundo plano para la próxima apertura.
+     */
+    private void escanearCarpeta(Path pathDeInicioWalk, int depth, String claveImagenAMantener, Runnable alFinalizarConExito, long miGeneracion) {
+        final boolean cargaPorLotes = visorController.getConfigurationManager().getBoolean(ConfigKeys.COMPORTAMIENTO_CARGA_POR_LOTES, true);
+
         final TaskProgressDialog dialogo = new TaskProgressDialog(view, "Cargando Imágenes", "Escaneando carpeta de imágenes...");
         final BuscadorArchivosWorker worker = new BuscadorArchivosWorker(
             pathDeInicioWalk,
@@ -133,6 +220,10 @@ public class ImageListManager {
             this::esArchivoImagenSoportado,
             dialogo
         );
+        final CargaPorLotes lotes = cargaPorLotes ? new CargaPorLotes(worker, dialogo, claveImagenAMantener) : null;
+        if (lotes != null) {
+            worker.setReceptorLotes(lotes::recibirLote);
+        }
         dialogo.setWorkerAsociado(worker);
         this.cargaImagenesFuture = worker;
 
@@ -151,6 +242,17 @@ public class ImageListManager {
                 try {
                     Map<String, Path> mapaResultado = worker.get();
 
+                    // Carga por lotes: la lista ya se está mostrando, sólo queda cuadrarla con el resultado final.
+                    if (lotes != null && lotes.isListaMostrada()) {
+                        lotes.finalizar(mapaResultado);
+                        if (alFinalizarConExito != null) {
+                            alFinalizarConExito.run();
+                        }
+                        iniciarRevisionIndice(null, pathDeInicioWalk, depth, miGeneracion);
+                        iniciarVigilancia(pathDeInicioWalk, depth, miGeneracion);
+                        return;
+                    }
+
                     if (mapaResultado == null || mapaResultado.isEmpty()) {
                         logger.info("    -> La búsqueda no encontró imágenes soportadas. Entrando en estado de bienvenida final.");
                         dialogo.setFinalMessageAndClose("La carpeta no contiene imágenes.", false, 2000);
@@ -169,73 +271,16 @@ public class ImageListManager {
                     }
 
                     dialogo.closeDialog();
-                    
-                    if (statusBarManager != null) statusBarManager.limpiarMensaje();
-                    
-                    logger.debug("    -> Restaurando visibilidad de paneles según la configuración del usuario.");
-                    if (registry != null && actionMap != null) {
-                        
-                        Action fileListAction = actionMap.get(AppActionCommands.CMD_VISTA_TOGGLE_FILE_LIST);
-                        if (fileListAction != null) {
-                            boolean shouldBeVisible = Boolean.TRUE.equals(fileListAction.getValue(Action.SELECTED_KEY));
-                            JPanel panelIzquierdo = registry.get("panel.izquierdo.contenedorPrincipal");
-                            if (panelIzquierdo != null) {
-                                panelIzquierdo.setVisible(shouldBeVisible);
-                                if (shouldBeVisible) {
-                                    JSplitPane splitPane = registry.get("splitpane.main");
-                                    if (splitPane != null) {
-                                        splitPane.setDividerLocation(0.25);
-                                    }
-                                }
-                            }
-                        }
-
-                        Action thumbnailsAction = actionMap.get(AppActionCommands.CMD_VISTA_TOGGLE_THUMBNAILS);
-                        if (thumbnailsAction != null) {
-                            boolean shouldBeVisible = Boolean.TRUE.equals(thumbnailsAction.getValue(Action.SELECTED_KEY));
-                            JScrollPane scrollMiniaturas = registry.get("scroll.miniaturas");
-                            if (scrollMiniaturas != null) {
-                                scrollMiniaturas.setVisible(shouldBeVisible);
-                            }
-                        }
-                    }
 
                     List<String> clavesOrdenadas = new ArrayList<>(mapaResultado.keySet());
                     java.util.Collections.sort(clavesOrdenadas);
-
-                    DefaultListModel<String> nuevoModeloListaPrincipal = new DefaultListModel<>();
-                    nuevoModeloListaPrincipal.addAll(new java.util.Vector<>(clavesOrdenadas));
-                    
-                    model.setMasterListAndNotify(nuevoModeloListaPrincipal, mapaResultado, visorController);
-
-                    // --- INICIO DE LA MODIFICACIÓN CRÍTICA ---
-                    // Notificamos al FilterManager cuál es la nueva lista maestra absoluta.
-                    // Esta es ahora la única "fuente de la verdad" para todos los filtros.
-                    if (this.filterManager != null) {
-                        this.filterManager.setAbsoluteMasterList(nuevoModeloListaPrincipal);
-                    }
-                    // --- FIN DE LA MODIFICACIÓN CRÍTICA ---
-                    
-                    if (view != null) {
-                        view.setListaImagenesModel(model.getModeloLista());
-                        view.setTituloPanelIzquierdo("Archivos: " + model.getModeloLista().getSize());
-                    }
-                    
-                    int indiceCalculado = -1;
-                    if (claveImagenAMantener != null && !claveImagenAMantener.isEmpty()) {
-                        indiceCalculado = model.getModeloLista().indexOf(claveImagenAMantener);
-                    }
-                    if (indiceCalculado == -1 && !model.getModeloLista().isEmpty()) {
-                        indiceCalculado = 0;
-                    }
-
-                    if (listCoordinator != null && indiceCalculado != -1) {
-                        listCoordinator.reiniciarYSeleccionarIndice(indiceCalculado);
-                    }
+                    mostrarListaCargada(clavesOrdenadas, mapaResultado, claveImagenAMantener);
 
                     if (alFinalizarConExito != null) {
                         alFinalizarConExito.run();
                     }
+                    iniciarRevisionIndice(null, pathDeInicioWalk, depth, miGeneracion);
+                    iniciarVigilancia(pathDeInicioWalk, depth, miGeneracion);
 
                 } catch (Exception e) {
                     logger.error("    -> ERROR durante la ejecución del worker: " + e.getMessage(), e);
@@ -260,7 +305,447 @@ public class ImageListManager {
             }
         });
         
-    } // --- fin del metodo cargarListaImagenes ---
+    } // --- Fin del método escanearCarpeta ---
+    
+    
+    /**
+     * Revisa la carpeta contra su índice en segundo plano, guarda el índice actualizado y
+     * aplica a la lista mostrada las altas, bajas y modificaciones encontradas.
+     * Con un índice anterior nulo construye el índice desde cero (primera apertura).
+     */
+    private void iniciarRevisionIndice(FolderIndexCache.Indice anterior, Path raiz, int depth, long miGeneracion) {
+        if (!indiceCarpetas.isActiva() || generacionCarga.get() != miGeneracion) {
+            return;
+        }
+        final ListContext contexto = model.getCurrentListContext();
+        this.revisionIndiceFuture = ejecutorIndice.submit(() -> {
+            try {
+                FolderIndexCache.Indice nuevo = indiceCarpetas.revisar(anterior, raiz, depth, this::esArchivoImagenSoportado);
+                if (generacionCarga.get() != miGeneracion) {
+                    return;
+                }
+                indiceCarpetas.guardar(nuevo);
+
+                Set<String> mostradas = new HashSet<>(contexto.getRutaCompletaMap().keySet());
+                FolderIndexCache.Cambios cambios = FolderIndexCache.calcularCambios(nuevo, mostradas, anterior);
+                if (cambios.estaVacio()) {
+                    return;
+                }
+                logger.debug("[ImageListManager] Cambios en {}: +{} -{} ~{}", raiz, cambios.anadidas().size(), cambios.eliminadas().size(), cambios.modificadas().size());
+                SwingUtilities.invokeLater(() -> {
+                    if (generacionCarga.get() == miGeneracion) {
+                        aplicarCambiosDeCarpeta(contexto, cambios);
+                    }
+                });
+            } catch (CancellationException e) {
+                logger.debug("[ImageListManager] Revisión del índice de {} cancelada.", raiz);
+            } catch (RuntimeException e) {
+                logger.warn("[ImageListManager] Error revisando el índice de {}: {}", raiz, e.getMessage());
+            }
+        });
+    } // --- Fin del método iniciarRevisionIndice ---
+    
+    
+    /**
+     * Empieza a vigilar la carpeta recién cargada para aplicar a la lista los archivos que
+     * se añadan, borren o modifiquen fuera de la aplicación, sin volver a escanearla.
+     */
+    private void iniciarVigilancia(Path raiz, int depth, long miGeneracion) {
+        if (!visorController.getConfigurationManager().getBoolean(ConfigKeys.COMPORTAMIENTO_VIGILANCIA_CARPETA_ACTIVADA, true)
+                || generacionCarga.get() != miGeneracion) {
+            return;
+        }
+        detenerVigilancia();
+        final ListContext contexto = model.getCurrentListContext();
+        long esperaMs = visorController.getConfigurationManager().getInt(ConfigKeys.COMPORTAMIENTO_VIGILANCIA_CARPETA_ESPERA_MS, 500);
+        FolderWatcher nuevo = new FolderWatcher(raiz, depth > 1, esperaMs, this::esArchivoImagenSoportado, cambios ->
+            SwingUtilities.invokeLater(() -> {
+                if (generacionCarga.get() == miGeneracion) {
+                    aplicarCambiosVigilados(contexto, raiz, depth, miGeneracion, cambios);
+                }
+            })
+        );
+        if (nuevo.iniciar()) {
+            this.vigilante = nuevo;
+        }
+    } // --- Fin del método iniciarVigilancia ---
+    
+    
+    /**
+     * Deja de vigilar la carpeta actual (nueva carga, cierre de la aplicación...).
+     */
+    public void detenerVigilancia() {
+        if (vigilante != null) {
+            vigilante.detener();
+            vigilante = null;
+        }
+    } // --- Fin del método detenerVigilancia ---
+    
+    
+    /**
+     * Traduce los cambios del vigilante a altas, bajas y modificaciones de la lista. Si el
+     * sistema perdió eventos, se revisa la carpeta entera contra lo que se muestra.
+     */
+    private void aplicarCambiosVigilados(ListContext contexto, Path raiz, int depth, long miGeneracion, FolderWatcher.CambiosVigilados cambios) {
+        if (cambios.desbordado()) {
+            logger.debug("[ImageListManager] Se perdieron eventos de {}. Revisando la carpeta.", raiz);
+            if (!indiceCarpetas.isActiva()) {
+                cargarListaImagenes(contexto.getSelectedImageKey(), null);
+                return;
+            }
+            iniciarRevisionIndice(null, raiz, depth, miGeneracion);
+        }
+        Set<String> eliminadas = new HashSet<>(cambios.eliminadas());
+        Map<String, Path> mapa = contexto.getRutaCompletaMap();
+        if (!cambios.carpetasEliminadas().isEmpty() && mapa != null) {
+            for (String carpeta : cambios.carpetasEliminadas()) {
+                String prefijo = carpeta + "/";
+                for (String clave : mapa.keySet()) {
+                    if (clave.startsWith(prefijo)) {
+                        eliminadas.add(clave);
+                    }
+                }
+            }
+        }
+        aplicarCambiosDeCarpeta(contexto, new FolderIndexCache.Cambios(cambios.anadidas(), eliminadas, cambios.modificadas()));
+    } // --- Fin del método aplicarCambiosVigilados ---
+    
+    
+    /**
+     * Aplica a la lista de un contexto las diferencias con el contenido real de la carpeta.
+     * Las altas se insertan en orden, las bajas se retiran (si la imagen seleccionada
+     * desaparece se pasa a la que ocupa su lugar) y las modificadas se invalidan en caché
+     * para que se regeneren. Debe llamarse en el EDT.
+     */
+    private void aplicarCambiosDeCarpeta(ListContext contexto, FolderIndexCache.Cambios cambios) {
+        Map<String, Path> mapa = contexto.getRutaCompletaMap();
+        DefaultListModel<String> modeloVisible = contexto.getModeloLista();
+        if (mapa == null || modeloVisible == null) {
+            return;
+        }
+        boolean esContextoActual = (contexto == model.getCurrentListContext());
+        String claveSeleccionada = contexto.getSelectedImageKey();
+        int indiceSeleccionAntes = (claveSeleccionada != null) ? modeloVisible.indexOf(claveSeleccionada) : -1;
+
+        // 1. Bajas
+        List<String> eliminadas = new ArrayList<>();
+        for (String clave : cambios.eliminadas()) {
+            Path ruta = mapa.remove(clave);
+            if (ruta != null) {
+                eliminadas.add(clave);
+                ImageMetadataService.getInstance().invalidar(ruta);
+                ImageFormatDetector.getInstance().invalidar(ruta);
+                if (thumbnailService != null) thumbnailService.eliminarDelCache(clave);
+            }
+        }
+        boolean seleccionEliminada = claveSeleccionada != null && cambios.eliminadas().contains(claveSeleccionada);
+        if (!eliminadas.isEmpty()) {
+            java.util.Collections.sort(eliminadas);
+            retirarOrdenado(modeloVisible, eliminadas);
+            if (filterManager != null && esContextoActual) {
+                filterManager.retirarDeListaMaestra(eliminadas);
+            }
+        }
+
+        // 2. Altas. Un alta de una clave que ya está en la lista es un archivo renombrado
+        //    atómicamente sobre otro (rsync, editores): en Linux sólo llega como ENTRY_CREATE
+        //    y se trata como modificado.
+        List<String> anadidas = new ArrayList<>();
+        Set<String> modificadas = new HashSet<>(cambios.modificadas());
+        for (Map.Entry<String, Path> entrada : cambios.anadidas().entrySet()) {
+            if (mapa.putIfAbsent(entrada.getKey(), entrada.getValue()) == null) {
+                anadidas.add(entrada.getKey());
+            } else {
+                modificadas.add(entrada.getKey());
+            }
+        }
+        if (!anadidas.isEmpty()) {
+            java.util.Collections.sort(anadidas);
+            List<String> visibles = (filterManager != null && esContextoActual) ? filterManager.incorporarLoteAListaMaestra(anadidas) : anadidas;
+            fusionarOrdenado(modeloVisible, visibles);
+        }
+
+        // 3. Modificadas: las miniaturas en memoria no comprueban la fecha del archivo.
+        if (thumbnailService != null) {
+            modificadas.forEach(thumbnailService::eliminarDelCache);
+        }
+
+        if (!esContextoActual || listCoordinator == null) {
+            return;
+        }
+        if (seleccionEliminada) {
+            int nuevoIndice = modeloVisible.isEmpty() ? -1 : Math.min(Math.max(indiceSeleccionAntes, 0), modeloVisible.getSize() - 1);
+            listCoordinator.reiniciarYSeleccionarIndice(nuevoIndice);
+        } else {
+            listCoordinator.reubicarSeleccionTrasInsercion();
+            if (claveSeleccionada != null && modificadas.contains(claveSeleccionada)) {
+                int indice = modeloVisible.indexOf(claveSeleccionada);
+                if (indice >= 0) {
+                    visorController.actualizarImagenPrincipal(indice);
+                }
+            }
+        }
+        actualizarTituloLista(contexto);
+        if (statusBarManager != null) {
+            statusBarManager.mostrarMensajeTemporal("Carpeta actualizada: " + anadidas.size() + " nuevas, " + eliminadas.size() + " eliminadas, "
+                    + modificadas.size() + " modificadas.", 3000);
+        }
+    } // --- Fin del método aplicarCambiosDeCarpeta ---
+    
+    
+    private void actualizarTituloLista(ListContext contexto) {
+        if (view == null || contexto == null || contexto != model.getCurrentListContext()) {
+            return;
+        }
+        boolean filtrado = filterManager != null && filterManager.isFilterActive();
+        view.setTituloPanelIzquierdo((filtrado ? "Archivos (Filtro): " : "Archivos: ") + contexto.getModeloLista().getSize());
+    } // --- Fin del método actualizarTituloLista ---
+    
+    
+    /**
+     * Instala una lista recién cargada como lista maestra del contexto actual: restaura la
+     * visibilidad de los paneles, notifica al modelo y al FilterManager, actualiza la vista y
+     * selecciona la imagen indicada (o la primera).
+     *
+     * @param clavesOrdenadas Claves de la lista, ya ordenadas.
+     * @param mapaRutas Mapa clave -> ruta que pasará a ser el del contexto.
+     * @param claveImagenAMantener Clave a seleccionar si está en la lista; si no, se selecciona la primera.
+     * @return El modelo instalado como lista maestra.
+     */
+    private DefaultListModel<String> mostrarListaCargada(List<String> clavesOrdenadas, Map<String, Path> mapaRutas, String claveImagenAMantener) {
+        if (statusBarManager != null) statusBarManager.limpiarMensaje();
+        
+        logger.debug("    -> Restaurando visibilidad de paneles según la configuración del usuario.");
+        if (registry != null && actionMap != null) {
+            
+            Action fileListAction = actionMap.get(AppActionCommands.CMD_VISTA_TOGGLE_FILE_LIST);
+            if (fileListAction != null) {
+                boolean shouldBeVisible = Boolean.TRUE.equals(fileListAction.getValue(Action.SELECTED_KEY));
+                JPanel panelIzquierdo = registry.get("panel.izquierdo.contenedorPrincipal");
+                if (panelIzquierdo != null) {
+                    panelIzquierdo.setVisible(shouldBeVisible);
+                    if (shouldBeVisible) {
+                        JSplitPane splitPane = registry.get("splitpane.main");
+                        if (splitPane != null) {
+                            splitPane.setDividerLocation(0.25);
+                        }
+                    }
+                }
+            }
+
+            Action thumbnailsAction = actionMap.get(AppActionCommands.CMD_VISTA_TOGGLE_THUMBNAILS);
+            if (thumbnailsAction != null) {
+                boolean shouldBeVisible = Boolean.TRUE.equals(thumbnailsAction.getValue(Action.SELECTED_KEY));
+                JScrollPane scrollMiniaturas = registry.get("scroll.miniaturas");
+                if (scrollMiniaturas != null) {
+                    scrollMiniaturas.setVisible(shouldBeVisible);
+                }
+            }
+        }
+
+        DefaultListModel<String> nuevoModeloListaPrincipal = new DefaultListModel<>();
+        nuevoModeloListaPrincipal.addAll(clavesOrdenadas);
+
+        // El mapa puede cambiar después (lotes, revisión del índice) mientras otros hilos lo leen.
+        Map<String, Path> mapaContexto = (mapaRutas instanceof ConcurrentHashMap) ? mapaRutas : new ConcurrentHashMap<>(mapaRutas);
+        model.setMasterListAndNotify(nuevoModeloListaPrincipal, mapaContexto, visorController);
+
+        // Notificamos al FilterManager cuál es la nueva lista maestra absoluta.
+        // Esta es ahora la única "fuente de la verdad" para todos los filtros.
+        if (this.filterManager != null) {
+            this.filterManager.setAbsoluteMasterList(nuevoModeloListaPrincipal);
+        }
+        
+        if (view != null) {
+            view.setListaImagenesModel(model.getModeloLista());
+            view.setTituloPanelIzquierdo("Archivos: " + model.getModeloLista().getSize());
+        }
+        
+        int indiceCalculado = -1;
+        if (claveImagenAMantener != null && !claveImagenAMantener.isEmpty()) {
+            indiceCalculado = model.getModeloLista().indexOf(claveImagenAMantener);
+        }
+        if (indiceCalculado == -1 && !model.getModeloLista().isEmpty()) {
+            indiceCalculado = 0;
+        }
+
+        if (listCoordinator != null && indiceCalculado != -1) {
+            listCoordinator.reiniciarYSeleccionarIndice(indiceCalculado);
+        }
+        return nuevoModeloListaPrincipal;
+    } // --- Fin del método mostrarListaCargada ---
+    
+    
+    /**
+     * Inserta claves ya ordenadas en un modelo ordenado, manteniendo el orden natural.
+     * Las claves que caen entre los mismos dos elementos existentes se insertan de una vez,
+     * así que un lote de una carpeta suele generar un único evento intervalAdded y la
+     * selección de las JList se desplaza sola en lugar de perderse.
+     *
+     * @param destino Modelo ordenado. No debe contener ya ninguna de las claves.
+     * @param clavesOrdenadas Claves a insertar, ordenadas.
+     */
+    static void fusionarOrdenado(DefaultListModel<String> destino, List<String> clavesOrdenadas) {
+        int i = 0;
+        int desde = 0;
+        int n = clavesOrdenadas.size();
+        while (i < n) {
+            int pos = buscarPosicionInsercion(destino, clavesOrdenadas.get(i), desde);
+            String siguienteExistente = (pos < destino.getSize()) ? destino.getElementAt(pos) : null;
+            int j = i + 1;
+            while (j < n && (siguienteExistente == null || clavesOrdenadas.get(j).compareTo(siguienteExistente) < 0)) {
+                j++;
+            }
+            destino.addAll(pos, clavesOrdenadas.subList(i, j));
+            desde = pos + (j - i);
+            i = j;
+        }
+    } // --- Fin del método fusionarOrdenado ---
+    
+    
+    /**
+     * Retira de un modelo ordenado las claves indicadas (las que no estén se ignoran).
+     *
+     * @param destino Modelo ordenado.
+     * @param clavesOrdenadas Claves a retirar, ordenadas.
+     */
+    static void retirarOrdenado(DefaultListModel<String> destino, List<String> clavesOrdenadas) {
+        for (String clave : clavesOrdenadas) {
+            int pos = buscarPosicionInsercion(destino, clave, 0) - 1;
+            if (pos >= 0 && destino.getElementAt(pos).equals(clave)) {
+                destino.remove(pos);
+            }
+        }
+    } // --- Fin del método retirarOrdenado ---
+    
+    
+    /**
+     * Búsqueda binaria del primer índice (a partir de 'desde') cuyo elemento es mayor que la clave.
+     */
+    private static int buscarPosicionInsercion(DefaultListModel<String> modelo, String clave, int desde) {
+        int bajo = desde;
+        int alto = modelo.getSize();
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (modelo.getElementAt(medio).compareTo(clave) <= 0) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    } // --- Fin del método buscarPosicionInsercion ---
+    
+    
+    /**
+     * Estado de una carga de carpeta por lotes. El primer lote con imágenes se instala como
+     * lista maestra (y se selecciona y muestra su primera imagen); los siguientes se insertan
+     * en orden en esa misma lista sin tocar la selección del usuario. Todos los métodos se
+     * llaman en el EDT.
+     */
+    private final class CargaPorLotes {
+
+        private final BuscadorArchivosWorker worker;
+        private final TaskProgressDialog dialogo;
+        private String claveImagenPendiente;
+
+        // Lo leen también los hilos de miniaturas y filtros mientras se sigue llenando.
+        private final Map<String, Path> mapaRutas = new ConcurrentHashMap<>();
+        private ListContext contexto;
+        private String claveAutoSeleccionada;
+        private boolean listaMostrada = false;
+
+        CargaPorLotes(BuscadorArchivosWorker worker, TaskProgressDialog dialogo, String claveImagenAMantener) {
+            this.worker = worker;
+            this.dialogo = dialogo;
+            this.claveImagenPendiente = (claveImagenAMantener != null && !claveImagenAMantener.isEmpty()) ? claveImagenAMantener : null;
+        } // --- Fin del constructor CargaPorLotes ---
+
+        boolean isListaMostrada() {
+            return listaMostrada;
+        } // --- Fin del método isListaMostrada ---
+
+        void recibirLote(Map<String, Path> lote) {
+            if (cargaImagenesFuture != worker || worker.isCancelled()) {
+                return; // Lote de una carga ya sustituida por otra.
+            }
+            List<String> nuevas = new ArrayList<>(lote.size());
+            for (Map.Entry<String, Path> entrada : lote.entrySet()) {
+                if (mapaRutas.putIfAbsent(entrada.getKey(), entrada.getValue()) == null) {
+                    nuevas.add(entrada.getKey());
+                }
+            }
+            if (nuevas.isEmpty()) {
+                return;
+            }
+            java.util.Collections.sort(nuevas);
+
+            if (!listaMostrada) {
+                listaMostrada = true;
+                dialogo.closeDialog();
+                mostrarListaCargada(nuevas, mapaRutas, claveImagenPendiente);
+                contexto = model.getCurrentListContext();
+                claveAutoSeleccionada = contexto.getSelectedImageKey();
+                if (claveImagenPendiente != null && claveImagenPendiente.equals(claveAutoSeleccionada)) {
+                    claveImagenPendiente = null;
+                }
+                logger.debug("[ImageListManager] Primer lote mostrado: {} imágenes.", nuevas.size());
+            } else {
+                List<String> visibles = (filterManager != null) ? filterManager.incorporarLoteAListaMaestra(nuevas) : nuevas;
+                if (!visibles.isEmpty()) {
+                    fusionarOrdenado(contexto.getModeloLista(), visibles);
+                }
+                if (listCoordinator != null && contexto == model.getCurrentListContext()) {
+                    listCoordinator.reubicarSeleccionTrasInsercion();
+                    seleccionarClavePendienteSiLlega();
+                }
+            }
+            actualizarTitulo();
+            if (statusBarManager != null) {
+                statusBarManager.mostrarMensaje("Cargando carpeta... " + mapaRutas.size() + " imágenes encontradas.");
+            }
+        } // --- Fin del método recibirLote ---
+
+        /**
+         * Cuadra la lista con el resultado completo del worker (por si algún lote se hubiera
+         * perdido) y deja la barra de estado como en la carga normal.
+         */
+        void finalizar(Map<String, Path> resultadoCompleto) {
+            if (resultadoCompleto != null && !resultadoCompleto.isEmpty()) {
+                recibirLote(resultadoCompleto);
+            }
+            actualizarTitulo();
+            if (statusBarManager != null) {
+                statusBarManager.limpiarMensaje();
+            }
+            logger.debug("[ImageListManager] Carga por lotes terminada: {} imágenes.", mapaRutas.size());
+        } // --- Fin del método finalizar ---
+
+        /**
+         * Si la imagen que se quería conservar llega en un lote posterior y el usuario no ha
+         * movido la selección desde que se mostró el primer lote, se salta a ella.
+         */
+        private void seleccionarClavePendienteSiLlega() {
+            if (claveImagenPendiente == null || !mapaRutas.containsKey(claveImagenPendiente)) {
+                return;
+            }
+            String claveActual = contexto.getSelectedImageKey();
+            if (claveActual != null && !claveActual.equals(claveAutoSeleccionada)) {
+                claveImagenPendiente = null; // El usuario ya ha navegado; se respeta su elección.
+                return;
+            }
+            int indice = contexto.getModeloLista().indexOf(claveImagenPendiente);
+            claveImagenPendiente = null;
+            if (indice >= 0) {
+                listCoordinator.seleccionarImagenPorIndice(indice);
+            }
+        } // --- Fin del método seleccionarClavePendienteSiLlega ---
+
+        private void actualizarTitulo() {
+            actualizarTituloLista(contexto);
+        } // --- Fin del método actualizarTitulo ---
+
+    } // --- Fin de la clase CargaPorLotes ---
     
     /**
      * Carga una nueva "lista maestra" en el modelo a partir de un resultado de filtro precalculado.
@@ -295,13 +780,16 @@ public class ImageListManager {
     } // --- Fin del método cargarListaDesdeFiltro ---
 
      /**
-      * Verifica si un archivo, dado por su Path, tiene una extensión
-      * correspondiente a los formatos de imagen que la aplicación soporta actualmente.
+      * Verifica si un archivo, dado por su Path, es una imagen de un formato que la
+      * aplicación soporta: por su cabecera si la detección por contenido está activa, o
+      * por su extensión si no.
       *
       * @param path El objeto Path que representa la ruta del archivo a verificar.
-      * @return true si el archivo tiene una extensión de imagen soportada.
+      * @param atributos Atributos ya leídos del archivo (por ejemplo, por el recorrido de la
+      *                  carpeta), o null para leerlos aquí.
+      * @return true si el archivo es una imagen soportada.
       */
-     private boolean esArchivoImagenSoportado(Path path) {
+     private boolean esArchivoImagenSoportado(Path path, BasicFileAttributes atributos) {
          if (path == null) {
              return false;
          }
@@ -313,7 +801,13 @@ public class ImageListManager {
          String nombreArchivo = nombreArchivoPath.toString();
 
          try {
-              if (!Files.isRegularFile(path) || Files.isHidden(path)) {
+              if (atributos != null) {
+                   // En Windows los atributos del recorrido ya traen el bit de oculto; en el resto, oculto = empieza por punto.
+                   boolean oculto = (atributos instanceof DosFileAttributes dos) ? dos.isHidden() : nombreArchivo.startsWith(".");
+                   if (!atributos.isRegularFile() || oculto) {
+                        return false;
+                   }
+              } else if (!Files.isRegularFile(path) || Files.isHidden(path)) {
                    return false;
               }
          } catch (IOException e) {
@@ -324,46 +818,23 @@ public class ImageListManager {
                return false;
          }
 
-         int lastDotIndex = nombreArchivo.lastIndexOf('.');
-         if (lastDotIndex <= 0 || lastDotIndex == nombreArchivo.length() - 1) {
-             return false;
-         }
-
-         String extension = nombreArchivo.substring(lastDotIndex + 1).toLowerCase();
-
-         switch (extension) {
-             case "jpg":
-             case "jpeg":
-             case "png":
-             case "gif":
-             case "bmp":
-             case "tiff":
-             case "psd":
-             case "webp":
-             case "tga":
-             case "pcx":
-                 return true;
-             default:
-                 return false;
-         }
+         return ImageFormatDetector.getInstance().esImagenSoportada(path, atributos, deteccionPorContenido);
      } // --- FIN esArchivoImagenSoportado ---
     
     /**
-      * Lanza tareas en segundo plano usando el ExecutorService para generar y cachear
-      * las miniaturas de tamaño normal para la lista de rutas de imágenes proporcionada.
+      * Encola en el ThumbnailService la generación de las miniaturas de tamaño normal
+      * para la lista de rutas proporcionada. Las tareas llevan su índice maestro, así
+      * el planificador del servicio las atiende por cercanía al rango visible y descarta
+      * las que se quedan lejos si el usuario sigue navegando.
       *
-      * @param rutas La lista de objetos Path correspondientes a todas las imágenes
-      *              cargadas actualmente en el modelo principal.
+      * @param rutas La lista de objetos Path a precalentar (normalmente la ventana de la tira).
+      * @param indiceMaestroInicial Índice en la lista maestra de la primera ruta de la lista.
       */
-     public void precalentarCacheMiniaturasAsync(List<Path> rutas) {
+     public void precalentarCacheMiniaturasAsync(List<Path> rutas, int indiceMaestroInicial) {
          if (thumbnailService == null) {
               logger.error("ERROR [Precalentar Cache]: ThumbnailService es nulo.");
               return;
          }
-         if (executorService == null || executorService.isShutdown()) {
-              logger.error("ERROR [Precalentar Cache]: ExecutorService no está disponible o está apagado.");
-              return;
-         }
          if (rutas == null || rutas.isEmpty()) {
              logger.debug("[Precalentar Cache]: Lista de rutas vacía o nula. No hay nada que precalentar.");
              return;
@@ -383,44 +854,38 @@ public class ImageListManager {
              return;
          }
 
+         Path carpetaRaizDelModelo = this.model.getCarpetaRaizActual();
          int tareasLanzadas = 0;
-         for (Path ruta : rutas) {
+         for (int i = 0; i < rutas.size(); i++) {
+             Path ruta = rutas.get(i);
              if (ruta == null) continue;
 
-             executorService.submit(() -> {
-                 try {
-                     Path relativePath = null;
-                     Path carpetaRaizDelModelo = this.model.getCarpetaRaizActual();
-                     
-                     if (carpetaRaizDelModelo != null) {
-                          try {
-                              relativePath = carpetaRaizDelModelo.relativize(ruta);
-                          } catch (Exception e) {
-                               logger.error("ERROR [Precalentar Cache BG]: Relativizando " + ruta + ": " + e.getMessage());
-                               relativePath = ruta.getFileName();
-                          }
-                     } else {
-                          relativePath = ruta.getFileName();
-                     }
-
-                     if (relativePath == null) {
-                          logger.error("ERROR [Precalentar Cache BG]: No se pudo obtener ruta relativa para " + ruta);
-                          return;
-                     }
-                     String claveUnica = relativePath.toString().replace("\\", "/");
-
-                     thumbnailService.obtenerOCrearMiniatura(
-                    		 ruta, claveUnica, anchoNormal, altoNormal, true
-                     );
-
-                 } catch (Exception e) {
-                     logger.error("ERROR INESPERADO [Precalentar Cache BG] Procesando " + ruta + ": " + e.getMessage(), e);
-                 }
-             });
+             Path relativePath = null;
+             if (carpetaRaizDelModelo != null) {
+                  try {
+                      relativePath = carpetaRaizDelModelo.relativize(ruta);
+                  } catch (Exception e) {
+                       logger.error("ERROR [Precalentar Cache]: Relativizando " + ruta + ": " + e.getMessage());
+                       relativePath = ruta.getFileName();
+                  }
+             } else {
+                  relativePath = ruta.getFileName();
+             }
+
+             if (relativePath == null) {
+                  logger.error("ERROR [Precalentar Cache]: No se pudo obtener ruta relativa para " + ruta);
+                  continue;
+             }
+             String claveUnica = relativePath.toString().replace("\\", "/");
+
+             // Si ya está en caché devuelve el icono al momento; si no, encola su generación.
+             thumbnailService.obtenerOCrearMiniatura(
+                     ruta, claveUnica, anchoNormal, altoNormal, true, null, ThumbnailService.VISTA_TIRA, indiceMaestroInicial + i
+             );
              tareasLanzadas++;
          }
 
-         logger.debug("[ImageListManager] " + tareasLanzadas + " tareas de pre-calentamiento de caché lanzadas al ExecutorService.");
+         logger.debug("[ImageListManager] " + tareasLanzadas + " miniaturas solicitadas al planificador del ThumbnailService.");
 
          if (view != null && registry.get("list.miniaturas") != null) {
              SwingUtilities.invokeLater(() -> {
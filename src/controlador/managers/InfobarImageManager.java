@@ -2,8 +2,6 @@ package controlador.managers;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -22,6 +20,7 @@ import controlador.utils.ComponentRegistry;
 import modelo.VisorModel;
 import servicios.ConfigKeys;
 import servicios.ConfigurationManager;
+import servicios.image.ImageMetadataService;
 import utils.ImageUtils;
 import vista.theme.Tema;
 import vista.theme.ThemeChangeListener;
@@ -147,7 +146,8 @@ public class InfobarImageManager implements ThemeChangeListener{
         if (esVisible) {
             String display = "N/A";
             BufferedImage img = model.getCurrentImage();
-            if (img != null) display = img.getWidth() + "x" + img.getHeight();
+            // Dimensiones del original, aunque en memoria esté a resolución de pantalla.
+            if (img != null) display = model.getCurrentImageAnchoOriginal() + "x" + model.getCurrentImageAltoOriginal();
             label.setText("Dim: " + display);
         }
     } // --- Fin del método actualizarDimensiones ---
@@ -161,12 +161,9 @@ public class InfobarImageManager implements ThemeChangeListener{
 
         if (esVisible) {
             String display = "N/A";
-            Path ruta = (model.getSelectedImageKey() != null) ? model.getRutaCompleta(model.getSelectedImageKey()) : null;
-            if (ruta != null && Files.exists(ruta)) {
-                try {
-                    display = formatFileSize(Files.size(ruta));
-                } catch (IOException ex) { display = "Error"; }
-            }
+            // El tamaño sale de la caché de metadatos: la carga de la imagen ya la ha rellenado.
+            ImageMetadataService.MetadatosImagen metadatos = obtenerMetadatosSeleccionada();
+            if (metadatos != null) display = formatFileSize(metadatos.tamanoBytes());
             label.setText("Tam: " + display);
         }
     } // --- Fin del método actualizarTamanoArchivo ---
@@ -180,16 +177,20 @@ public class InfobarImageManager implements ThemeChangeListener{
 
         if (esVisible) {
             String display = "N/A";
-            Path ruta = (model.getSelectedImageKey() != null) ? model.getRutaCompleta(model.getSelectedImageKey()) : null;
-            if (ruta != null && Files.exists(ruta)) {
-                try {
-                    display = sdfFechaArchivo.format(new Date(Files.getLastModifiedTime(ruta).toMillis()));
-                } catch (IOException ex) { display = "Error"; }
-            }
+            ImageMetadataService.MetadatosImagen metadatos = obtenerMetadatosSeleccionada();
+            if (metadatos != null) display = sdfFechaArchivo.format(new Date(metadatos.fechaModificacion()));
             label.setText("Fch: " + display);
         }
     } // --- Fin del método actualizarFechaArchivo ---
 
+    /**
+     * Metadatos de la imagen seleccionada (o null si no hay selección o el archivo no existe).
+     */
+    private ImageMetadataService.MetadatosImagen obtenerMetadatosSeleccionada() {
+        Path ruta = (model.getSelectedImageKey() != null) ? model.getRutaCompleta(model.getSelectedImageKey()) : null;
+        return ImageMetadataService.getInstance().obtener(ruta);
+    } // --- Fin del método obtenerMetadatosSeleccionada ---
+
     private void actualizarFormatoImagen() {
         JLabel label = registry.get("label.info.formatoImagen");
         if (label == null) return;
@@ -237,7 +238,7 @@ public class InfobarImageManager implements ThemeChangeListener{
                 // Se lee el valor final y real directamente del modelo.
                 // Este es el valor que el ZoomManager ha calculado y que el 
                 // ImageDisplayPanel usa para pintar.
-                double zoomActualEnModelo = model.getZoomFactor();
+                double zoomActualEnModelo = model.getZoomFactorRespectoOriginal();
                 display = String.format("%.0f%%", zoomActualEnModelo * 100);
             }
             
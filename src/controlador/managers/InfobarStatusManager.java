@@ -233,7 +233,7 @@ public class InfobarStatusManager implements ThemeChangeListener{
 
         // Regla 3: Tooltip
         // El tooltip siempre muestra el zoom REAL de la imagen (zoomFactor).
-        double porcentajeReal = model.getZoomFactor() * 100.0;
+        double porcentajeReal = model.getZoomFactorRespectoOriginal() * 100.0;
         porcentajeLabel.setToolTipText("Clic para establecer zoom. Fijado en: " + String.format("%.0f%%", porcentajeAMostrar) + ". Zoom real: " + String.format("%.2f%%", porcentajeReal));
 
     } // --- FIN del método actualizarLabelZoom ---
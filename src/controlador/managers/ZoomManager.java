@@ -135,6 +135,13 @@ public class ZoomManager implements IZoomManager {
             SwingUtilities.invokeLater(() -> aplicarModoDeZoom(modo, onComplete));
             return;
         }
+        
+        // Una imagen decodificada a resolución de pantalla sólo vale para los modos que la
+        // ajustan al panel. Para el resto se pide antes la resolución completa.
+        if (model.isImagenReducida() && !modo.isAjusteAlPanel() && visorController != null) {
+            visorController.solicitarResolucionCompleta(() -> aplicarModoDeZoom(modo, onComplete));
+            return;
+        }
 
         double factorDeZoomParaAplicar;
         
@@ -162,6 +169,12 @@ public class ZoomManager implements IZoomManager {
         model.setZoomFactor(factorDeZoomParaAplicar);
         model.resetPan();
         refrescarVistaSincrono();
+        
+        // Si el panel ha crecido por encima de la resolución decodificada, se pinta ampliada
+        // mientras llega la completa, y entonces se recalcula.
+        if (model.isImagenReducida() && factorDeZoomParaAplicar > 1.0 && visorController != null) {
+            visorController.solicitarResolucionCompleta(() -> aplicarModoDeZoom(modo));
+        }
 
         if (onComplete != null) {
             SwingUtilities.invokeLater(onComplete);
@@ -203,8 +216,14 @@ public class ZoomManager implements IZoomManager {
         model.setZoomFactor(nuevoZoom);
         refrescarVistaSincrono();
         
+        // Al pasar de 1:1 sobre una imagen reducida se necesita el detalle real. El intercambio
+        // conserva el tamaño en pantalla, así que no hay salto visible.
+        if (model.isImagenReducida() && nuevoZoom > 1.0 && visorController != null) {
+            visorController.solicitarResolucionCompleta(null);
+        }
+        
         if (model.getCurrentZoomMode() == ZoomModeEnum.MAINTAIN_CURRENT_ZOOM) {
-            model.setZoomCustomPercentage(nuevoZoom * 100.0);
+            model.setZoomCustomPercentage(model.getZoomFactorRespectoOriginal() * 100.0);
         }
         
         if (model.getCurrentZoomMode() == ZoomModeEnum.MAINTAIN_CURRENT_ZOOM || model.getCurrentZoomMode() == ZoomModeEnum.USER_SPECIFIED_PERCENTAGE) {
@@ -558,6 +577,13 @@ public class ZoomManager implements IZoomManager {
             return;
         }
 
+        // Los modos que no ajustan al panel trabajan en porcentajes del original:
+        // primero se obtiene la imagen a resolución completa.
+        if (model.isImagenReducida() && !nuevoModo.isAjusteAlPanel() && visorController != null) {
+            visorController.solicitarResolucionCompleta(() -> setZoomMode(nuevoModo, onComplete));
+            return;
+        }
+
         // --- LÓGICA DEL SWITCH MOVIDA DESDE LA ACTION ---
         switch (nuevoModo) {
             case MAINTAIN_CURRENT_ZOOM:
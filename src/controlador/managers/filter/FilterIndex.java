@@ -0,0 +1,549 @@
+package controlador.managers.filter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+import javax.swing.DefaultListModel;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+/**
+ * Índice de búsqueda sobre una lista maestra de claves, construido una sola vez por lista.
+ *
+ * Guarda, por posición de la lista, el nombre de archivo ya en minúsculas y el número de
+ * su carpeta. Las carpetas se guardan una sola vez (en minúsculas) aunque las compartan
+ * miles de archivos, junto con las posiciones de sus archivos. Los criterios se normalizan
+ * una vez en una {@link Consulta} y el resultado de filtrar es un {@link BitSet} sobre las
+ * posiciones de la lista.
+ *
+ * Opcionalmente, {@link #indexarTrigramas()} añade índices de trigramas sobre nombres y
+ * carpetas. Con ellos, un criterio de 3 o más caracteres cruza unas pocas listas de
+ * posiciones en lugar de recorrer toda la lista; sin ellos (o mientras se construyen) se
+ * recorre como siempre.
+ *
+ * Los criterios de etiqueta no miran la lista: se resuelven con el conjunto de rutas que
+ * lleva cada etiqueta en el proyecto (ver {@link #preparar(List, Function)}) y sólo se
+ * buscan en el índice esas rutas.
+ *
+ * El índice escucha la lista de la que sale y se marca como no vigente en cuanto ésta
+ * cambia; quien lo use debe entonces construir otro.
+ */
+public final class FilterIndex implements ListDataListener {
+
+    private static final int MAX_CANDIDATOS_RECORRIDO = 2048;
+    private static final int MAX_INTENTOS_CONSTRUCCION = 3;
+
+    // Evaluación por trozos: múltiplo de 64 para que cada trozo ocupe palabras enteras del BitSet.
+    private static final int TAMANO_TROZO = 8192;
+    private static final int MIN_CANDIDATOS_PARALELO = 32_768;
+    private static final ForkJoinPool POOL_FILTRADO = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final String[] claves;
+    private final String[] nombres;       // Nombre de archivo en minúsculas (null si la clave no tiene ruta).
+    private final int[] carpetaDe;        // Posición en 'carpetas' de la carpeta de cada elemento.
+    private final String[] carpetas;      // Carpetas distintas, en minúsculas.
+    private final int[][] elementosDeCarpeta;
+    private final BitSet conRuta;         // Elementos que se pueden evaluar.
+    private final Path[] rutas;
+
+    private volatile Map<String, Integer> posicionPorRuta; // Se crea con el primer filtro por etiqueta.
+
+    private volatile TrigramIndex trigramasNombres;
+    private volatile TrigramIndex trigramasCarpetas;
+
+    private volatile boolean vigente = true;
+
+
+    private FilterIndex(String[] claves, Path[] rutas, String[] nombres, int[] carpetaDe, String[] carpetas) {
+        this.claves = claves;
+        this.rutas = rutas;
+        this.nombres = nombres;
+        this.carpetaDe = carpetaDe;
+        this.carpetas = carpetas;
+
+        int[] cuenta = new int[carpetas.length];
+        this.conRuta = new BitSet(claves.length);
+        for (int i = 0; i < carpetaDe.length; i++) {
+            if (carpetaDe[i] >= 0) {
+                cuenta[carpetaDe[i]]++;
+                conRuta.set(i);
+            }
+        }
+        this.elementosDeCarpeta = new int[carpetas.length][];
+        for (int k = 0; k < carpetas.length; k++) {
+            elementosDeCarpeta[k] = new int[cuenta[k]];
+            cuenta[k] = 0;
+        }
+        for (int i = 0; i < carpetaDe.length; i++) {
+            int k = carpetaDe[i];
+            if (k >= 0) {
+                elementosDeCarpeta[k][cuenta[k]++] = i;
+            }
+        }
+    } // --- Fin del constructor FilterIndex ---
+
+
+    /**
+     * Construye el índice de una lista y lo deja escuchando sus cambios.
+     *
+     * Puede llamarse fuera del EDT mientras el EDT modifica la lista. La lista se copia de
+     * una vez con {@code toArray()} y un vigilante registrado antes de la copia detecta
+     * cualquier cambio hasta que el propio índice queda escuchando. Si la lista cambia
+     * entretanto, se vuelve a construir; si sigue cambiando, el índice se devuelve ya
+     * marcado como no vigente para que el siguiente uso lo reconstruya.
+     *
+     * @param lista Lista maestra de claves.
+     * @param resolverRuta Devuelve la ruta completa de una clave, o null si no la tiene.
+     */
+    public static FilterIndex construir(DefaultListModel<String> lista, Function<String, Path> resolverRuta) {
+        for (int intento = 1; ; intento++) {
+            VigilanteLista vigilante = new VigilanteLista();
+            lista.addListDataListener(vigilante);
+            try {
+                FilterIndex indice = construirDesde(lista.toArray(), resolverRuta);
+                lista.addListDataListener(indice);
+                if (!vigilante.cambiada) {
+                    return indice;
+                }
+                if (intento == MAX_INTENTOS_CONSTRUCCION) {
+                    indice.vigente = false;
+                    return indice;
+                }
+                lista.removeListDataListener(indice);
+            } finally {
+                lista.removeListDataListener(vigilante);
+            }
+        }
+    } // --- Fin del método construir ---
+
+
+    private static FilterIndex construirDesde(Object[] elementos, Function<String, Path> resolverRuta) {
+        int n = elementos.length;
+        String[] claves = new String[n];
+        Path[] rutas = new Path[n];
+        String[] nombres = new String[n];
+        int[] carpetaDe = new int[n];
+        Map<String, Integer> posicionCarpeta = new HashMap<>();
+        List<String> carpetas = new ArrayList<>();
+
+        // Las carpetas se agrupan por su texto original (antes de pasarlo a minúsculas) para
+        // no convertir la misma cadena una vez por archivo.
+        for (int i = 0; i < n; i++) {
+            String clave = (String) elementos[i];
+            claves[i] = clave;
+            Path ruta = (clave != null) ? resolverRuta.apply(clave) : null;
+            if (ruta == null || ruta.getFileName() == null) {
+                carpetaDe[i] = -1;
+                continue;
+            }
+            rutas[i] = ruta;
+            nombres[i] = ruta.getFileName().toString().toLowerCase();
+            String carpeta = (ruta.getParent() != null) ? ruta.getParent().toString() : "";
+            Integer posicion = posicionCarpeta.get(carpeta);
+            if (posicion == null) {
+                posicion = carpetas.size();
+                posicionCarpeta.put(carpeta, posicion);
+                carpetas.add(carpeta.toLowerCase());
+            }
+            carpetaDe[i] = posicion;
+        }
+
+        return new FilterIndex(claves, rutas, nombres, carpetaDe, carpetas.toArray(new String[0]));
+    } // --- Fin del método construirDesde ---
+
+
+    /**
+     * Construye los índices de trigramas. Es la parte costosa del índice, así que se llama
+     * desde un hilo de fondo; las búsquedas que lleguen mientras tanto recorren la lista.
+     */
+    public void indexarTrigramas() {
+        if (trigramasNombres != null || !vigente) {
+            return;
+        }
+        trigramasCarpetas = TrigramIndex.construir(carpetas);
+        trigramasNombres = TrigramIndex.construir(nombres);
+    } // --- Fin del método indexarTrigramas ---
+
+
+    public boolean tieneTrigramas() {
+        return trigramasNombres != null;
+    } // --- Fin del método tieneTrigramas ---
+
+
+    /**
+     * Normaliza los criterios para este índice: valores en minúsculas, criterios vacíos
+     * descartados y los de carpeta ya resueltos para cada carpeta del índice.
+     */
+    public Consulta preparar(List<FilterCriterion> criterios) {
+        return preparar(criterios, null);
+    } // --- Fin del método preparar ---
+
+
+    /**
+     * Como {@link #preparar(List)}, resolviendo además los criterios de etiqueta.
+     *
+     * @param rutasConEtiqueta Devuelve las rutas (con '/' como separador) cuyas etiquetas
+     *        contienen un texto; null si no hay proyecto, y entonces ninguna imagen cumple
+     *        un criterio de etiqueta.
+     */
+    public Consulta preparar(List<FilterCriterion> criterios, Function<String, Set<String>> rutasConEtiqueta) {
+        return new Consulta(criterios, this, rutasConEtiqueta);
+    } // --- Fin del método preparar(List, Function) ---
+
+
+    /**
+     * Evalúa la consulta sobre toda la lista.
+     *
+     * @return Las posiciones de la lista que cumplen todos los criterios.
+     */
+    public BitSet evaluar(Consulta consulta) {
+        return evaluar(consulta, null);
+    } // --- Fin del método evaluar ---
+
+
+    /**
+     * Evalúa la consulta sólo sobre las posiciones de 'ambito', que no se modifica. Sirve
+     * para refinar un resultado anterior cuando la nueva consulta es más restrictiva.
+     *
+     * Primero se aplican los criterios que se resuelven con un índice (carpetas, etiquetas
+     * y nombres con trigramas), inclusiones antes que exclusiones, de modo que cada uno
+     * sólo examina lo que ha sobrevivido a los anteriores. Los criterios de nombre que no
+     * pueden usar trigramas se comprueban al final, todos a la vez, por trozos de la lista
+     * y en paralelo si quedan muchos candidatos.
+     *
+     * @param ambito Posiciones candidatas, o null para toda la lista.
+     * @return Las posiciones de 'ambito' que cumplen todos los criterios.
+     */
+    public BitSet evaluar(Consulta consulta, BitSet ambito) {
+        BitSet resultado = (BitSet) conRuta.clone();
+        if (ambito != null) {
+            resultado.and(ambito);
+        }
+        TrigramIndex trigramas = this.trigramasNombres;
+        boolean[] porComprobar = new boolean[consulta.valores.length];
+        boolean hayPorComprobar = false;
+
+        for (boolean exclusiones : new boolean[] { false, true }) {
+            for (int c = 0; c < consulta.valores.length && !resultado.isEmpty(); c++) {
+                if (consulta.excluir[c] != exclusiones) {
+                    continue;
+                }
+                BitSet coincidencias;
+                switch (consulta.fuentes[c]) {
+                    case FOLDER:
+                        coincidencias = elementosDeCarpetas(consulta.carpetaContiene[c]);
+                        break;
+                    case TAG:
+                        coincidencias = posicionesDe(consulta.etiquetadas.get(c));
+                        break;
+                    case TEXT:
+                    default:
+                        // Si quedan pocos candidatos (al refinar un resultado anterior) es más
+                        // barato comprobarlos directamente que cruzar las listas de trigramas.
+                        if (trigramas != null && consulta.valores[c].length() >= TrigramIndex.LONGITUD_MINIMA
+                                && resultado.cardinality() > MAX_CANDIDATOS_RECORRIDO) {
+                            coincidencias = trigramas.buscar(consulta.valores[c], resultado);
+                        } else {
+                            porComprobar[c] = true;
+                            hayPorComprobar = true;
+                            continue;
+                        }
+                        break;
+                }
+                if (exclusiones) {
+                    resultado.andNot(coincidencias);
+                } else {
+                    resultado.and(coincidencias);
+                }
+            }
+        }
+
+        if (hayPorComprobar && !resultado.isEmpty()) {
+            resultado = comprobarNombres(consulta, porComprobar, resultado);
+        }
+        return resultado;
+    } // --- Fin del método evaluar ---
+
+
+    /**
+     * Claves de las posiciones indicadas, en el orden de la lista.
+     */
+    public List<String> claves(BitSet posiciones) {
+        List<String> resultado = new ArrayList<>(posiciones.cardinality());
+        for (int i = posiciones.nextSetBit(0); i >= 0; i = posiciones.nextSetBit(i + 1)) {
+            resultado.add(claves[i]);
+        }
+        return resultado;
+    } // --- Fin del método claves ---
+
+
+    public int tamano() {
+        return claves.length;
+    } // --- Fin del método tamano ---
+
+
+    /**
+     * false en cuanto la lista indexada ha cambiado.
+     */
+    public boolean isVigente() {
+        return vigente;
+    } // --- Fin del método isVigente ---
+
+
+    /**
+     * Deja de escuchar la lista. Se llama al sustituir el índice por otro.
+     */
+    public void desconectar(DefaultListModel<String> lista) {
+        vigente = false;
+        lista.removeListDataListener(this);
+    } // --- Fin del método desconectar ---
+
+
+    @Override
+    public void intervalAdded(ListDataEvent e) {
+        vigente = false;
+    } // --- Fin del método intervalAdded ---
+
+    @Override
+    public void intervalRemoved(ListDataEvent e) {
+        vigente = false;
+    } // --- Fin del método intervalRemoved ---
+
+    @Override
+    public void contentsChanged(ListDataEvent e) {
+        vigente = false;
+    } // --- Fin del método contentsChanged ---
+
+
+    /**
+     * Marca si la lista cambia mientras se copia, antes de que el índice la escuche.
+     */
+    private static final class VigilanteLista implements ListDataListener {
+        private volatile boolean cambiada;
+
+        @Override
+        public void intervalAdded(ListDataEvent e) {
+            cambiada = true;
+        }
+
+        @Override
+        public void intervalRemoved(ListDataEvent e) {
+            cambiada = true;
+        }
+
+        @Override
+        public void contentsChanged(ListDataEvent e) {
+            cambiada = true;
+        }
+    } // --- Fin de la clase VigilanteLista ---
+
+
+    // --- MÉTODOS PRIVADOS ---
+
+    /**
+     * Comprueba los criterios de nombre marcados en 'porComprobar' sobre los candidatos.
+     * La lista se divide en trozos de {@value #TAMANO_TROZO} posiciones que se evalúan por
+     * separado (en paralelo si hay bastantes candidatos) y se unen al final.
+     */
+    private BitSet comprobarNombres(Consulta consulta, boolean[] porComprobar, BitSet candidatos) {
+        if (candidatos.cardinality() < MIN_CANDIDATOS_PARALELO || Runtime.getRuntime().availableProcessors() < 2) {
+            return comprobarTrozo(consulta, porComprobar, candidatos, 0, claves.length);
+        }
+        List<ForkJoinTask<BitSet>> trozos = new ArrayList<>();
+        for (int desde = 0; desde < claves.length; desde += TAMANO_TROZO) {
+            final int inicio = desde;
+            final int fin = Math.min(claves.length, desde + TAMANO_TROZO);
+            trozos.add(POOL_FILTRADO.submit(() -> comprobarTrozo(consulta, porComprobar, candidatos, inicio, fin)));
+        }
+        BitSet resultado = new BitSet(claves.length);
+        for (ForkJoinTask<BitSet> trozo : trozos) {
+            resultado.or(trozo.join());
+        }
+        return resultado;
+    } // --- Fin del método comprobarNombres ---
+
+
+    private BitSet comprobarTrozo(Consulta consulta, boolean[] porComprobar, BitSet candidatos, int desde, int hasta) {
+        BitSet resultado = new BitSet(hasta);
+        for (int i = candidatos.nextSetBit(desde); i >= 0 && i < hasta; i = candidatos.nextSetBit(i + 1)) {
+            String nombre = nombres[i];
+            boolean cumple = true;
+            for (int c = 0; c < porComprobar.length && cumple; c++) {
+                if (porComprobar[c] && nombre.contains(consulta.valores[c]) == consulta.excluir[c]) {
+                    cumple = false;
+                }
+            }
+            if (cumple) {
+                resultado.set(i);
+            }
+        }
+        return resultado;
+    } // --- Fin del método comprobarTrozo ---
+
+
+    /**
+     * Carpetas (posiciones en 'carpetas') que contienen 'valor'.
+     */
+    private BitSet buscarEnCarpetas(String valor) {
+        TrigramIndex trigramas = this.trigramasCarpetas;
+        if (trigramas != null && valor.length() >= TrigramIndex.LONGITUD_MINIMA) {
+            return trigramas.buscar(valor, null);
+        }
+        BitSet resultado = new BitSet(carpetas.length);
+        for (int k = 0; k < carpetas.length; k++) {
+            if (carpetas[k].contains(valor)) {
+                resultado.set(k);
+            }
+        }
+        return resultado;
+    } // --- Fin del método buscarEnCarpetas ---
+
+
+    /**
+     * Posiciones de la lista de las rutas dadas (claves del proyecto). Se recorren las rutas,
+     * que suelen ser muchas menos que los elementos de la lista.
+     */
+    private BitSet posicionesDe(Set<String> rutasProyecto) {
+        BitSet resultado = new BitSet(claves.length);
+        if (rutasProyecto == null || rutasProyecto.isEmpty()) {
+            return resultado;
+        }
+        Map<String, Integer> posiciones = this.posicionPorRuta;
+        if (posiciones == null) {
+            posiciones = new HashMap<>(claves.length * 4 / 3 + 1);
+            for (int i = 0; i < rutas.length; i++) {
+                if (rutas[i] != null) {
+                    posiciones.put(claveDeProyecto(rutas[i]), i);
+                }
+            }
+            this.posicionPorRuta = posiciones;
+        }
+        for (String ruta : rutasProyecto) {
+            Integer posicion = posiciones.get(ruta);
+            if (posicion != null) {
+                resultado.set(posicion);
+            }
+        }
+        return resultado;
+    } // --- Fin del método posicionesDe ---
+
+
+    /**
+     * Forma en que el proyecto guarda una ruta de imagen.
+     */
+    private static String claveDeProyecto(Path ruta) {
+        return ruta.toString().replace("\\", "/");
+    } // --- Fin del método claveDeProyecto ---
+
+
+    private BitSet elementosDeCarpetas(BitSet carpetasElegidas) {
+        BitSet resultado = new BitSet(claves.length);
+        for (int k = carpetasElegidas.nextSetBit(0); k >= 0; k = carpetasElegidas.nextSetBit(k + 1)) {
+            for (int i : elementosDeCarpeta[k]) {
+                resultado.set(i);
+            }
+        }
+        return resultado;
+    } // --- Fin del método elementosDeCarpetas ---
+
+
+// ****************************************************************************************** clase Consulta
+
+    /**
+     * Criterios activos ya normalizados para evaluarlos sobre un índice concreto.
+     */
+    public static final class Consulta {
+
+        private final String[] valores;
+        private final FilterCriterion.SourceType[] fuentes;
+        private final boolean[] excluir;
+        private final BitSet[] carpetaContiene; // Carpetas del índice que cumplen cada criterio de carpeta.
+        private final List<Set<String>> etiquetadas; // Rutas que cumplen cada criterio de etiqueta.
+
+        private Consulta(List<FilterCriterion> criterios, FilterIndex indice, Function<String, Set<String>> rutasConEtiqueta) {
+            List<FilterCriterion> utiles = new ArrayList<>();
+            for (FilterCriterion criterio : criterios) {
+                if (criterio.getValue() != null && !criterio.getValue().isEmpty()) {
+                    utiles.add(criterio);
+                }
+            }
+            int n = utiles.size();
+            this.valores = new String[n];
+            this.fuentes = new FilterCriterion.SourceType[n];
+            this.excluir = new boolean[n];
+            this.carpetaContiene = new BitSet[n];
+            this.etiquetadas = new ArrayList<>(n);
+            for (int c = 0; c < n; c++) {
+                FilterCriterion criterio = utiles.get(c);
+                valores[c] = criterio.getValue().toLowerCase();
+                fuentes[c] = criterio.getSourceType();
+                excluir[c] = criterio.getLogic() == FilterCriterion.Logic.NOT;
+                if (indice != null && fuentes[c] == FilterCriterion.SourceType.FOLDER) {
+                    carpetaContiene[c] = indice.buscarEnCarpetas(valores[c]);
+                }
+                Set<String> rutas = null;
+                if (fuentes[c] == FilterCriterion.SourceType.TAG && rutasConEtiqueta != null) {
+                    rutas = rutasConEtiqueta.apply(valores[c]);
+                }
+                etiquetadas.add(rutas);
+            }
+        } // --- Fin del constructor Consulta ---
+
+
+        /**
+         * Normaliza los criterios sin índice, sólo para evaluar rutas sueltas con
+         * {@link #cumpleRuta}.
+         *
+         * @param rutasConEtiqueta Como en {@link FilterIndex#preparar(List, Function)}.
+         */
+        public static Consulta de(List<FilterCriterion> criterios, Function<String, Set<String>> rutasConEtiqueta) {
+            return new Consulta(criterios, null, rutasConEtiqueta);
+        } // --- Fin del método de ---
+
+
+        /**
+         * Evalúa la consulta sobre una ruta suelta que no está en el índice (por ejemplo,
+         * un archivo que llega en un lote de la carga).
+         */
+        public boolean cumpleRuta(Path ruta) {
+            if (ruta == null || ruta.getFileName() == null) {
+                return false;
+            }
+            String nombre = ruta.getFileName().toString().toLowerCase();
+            String carpeta = null;
+            for (int c = 0; c < valores.length; c++) {
+                boolean condicion;
+                switch (fuentes[c]) {
+                    case FOLDER:
+                        if (carpeta == null) {
+                            carpeta = (ruta.getParent() != null) ? ruta.getParent().toString().toLowerCase() : "";
+                        }
+                        condicion = carpeta.contains(valores[c]);
+                        break;
+                    case TAG:
+                        Set<String> rutas = etiquetadas.get(c);
+                        condicion = rutas != null && rutas.contains(claveDeProyecto(ruta));
+                        break;
+                    case TEXT:
+                    default:
+                        condicion = nombre.contains(valores[c]);
+                        break;
+                }
+                if (condicion == excluir[c]) {
+                    return false;
+                }
+            }
+            return true;
+        } // --- Fin del método cumpleRuta ---
+
+    } // --- Fin de la clase Consulta ---
+
+} // --- FIN de la clase FilterIndex ---
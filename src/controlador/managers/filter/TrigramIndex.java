@@ -0,0 +1,142 @@
+package controlador.managers.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice de trigramas sobre una tabla de textos (ya en minúsculas).
+ *
+ * Para cada secuencia de tres caracteres guarda, ordenadas, las posiciones de los textos
+ * que la contienen. Un texto que contiene "playa" contiene necesariamente "pla", "lay" y
+ * "aya", así que basta con cruzar esas tres listas para obtener unos pocos candidatos, que
+ * luego se comprueban con {@code contains} (el cruce puede dar falsos positivos, nunca
+ * falsos negativos). Las búsquedas de menos de tres caracteres no pueden usar el índice.
+ */
+final class TrigramIndex {
+
+    static final int LONGITUD_MINIMA = 3;
+
+    private final String[] textos;
+    private final Map<Long, int[]> posiciones;
+
+
+    private TrigramIndex(String[] textos, Map<Long, int[]> posiciones) {
+        this.textos = textos;
+        this.posiciones = posiciones;
+    } // --- Fin del constructor TrigramIndex ---
+
+
+    /**
+     * Indexa los textos. Las posiciones con texto null se ignoran.
+     */
+    static TrigramIndex construir(String[] textos) {
+        Map<Long, ListaPosiciones> enConstruccion = new HashMap<>();
+        for (int i = 0; i < textos.length; i++) {
+            String texto = textos[i];
+            if (texto == null) {
+                continue;
+            }
+            for (int p = 0; p + LONGITUD_MINIMA <= texto.length(); p++) {
+                enConstruccion.computeIfAbsent(clave(texto, p), k -> new ListaPosiciones()).anadir(i);
+            }
+        }
+        Map<Long, int[]> posiciones = new HashMap<>(enConstruccion.size() * 4 / 3 + 1);
+        for (Map.Entry<Long, ListaPosiciones> entrada : enConstruccion.entrySet()) {
+            posiciones.put(entrada.getKey(), entrada.getValue().recortar());
+        }
+        return new TrigramIndex(textos, posiciones);
+    } // --- Fin del método construir ---
+
+
+    /**
+     * Devuelve las posiciones cuyo texto contiene 'valor', limitadas a 'ambito'.
+     *
+     * @param valor Texto a buscar, en minúsculas, de al menos {@link #LONGITUD_MINIMA} caracteres.
+     * @param ambito Posiciones entre las que buscar, o null para todas.
+     */
+    BitSet buscar(String valor, BitSet ambito) {
+        BitSet resultado = candidatos(valor);
+        if (ambito != null) {
+            resultado.and(ambito);
+        }
+        for (int i = resultado.nextSetBit(0); i >= 0; i = resultado.nextSetBit(i + 1)) {
+            if (!textos[i].contains(valor)) {
+                resultado.clear(i);
+            }
+        }
+        return resultado;
+    } // --- Fin del método buscar ---
+
+
+    // --- MÉTODOS PRIVADOS ---
+
+    /**
+     * Cruza las listas de los trigramas de 'valor', empezando por la más corta y
+     * comprobando en las demás sólo las posiciones que siguen siendo candidatas.
+     */
+    private BitSet candidatos(String valor) {
+        List<int[]> listas = new ArrayList<>();
+        for (int p = 0; p + LONGITUD_MINIMA <= valor.length(); p++) {
+            int[] lista = posiciones.get(clave(valor, p));
+            if (lista == null) {
+                return new BitSet();
+            }
+            listas.add(lista);
+        }
+        listas.sort(Comparator.comparingInt(l -> l.length));
+
+        int[] masCorta = listas.get(0);
+        BitSet resultado = new BitSet(textos.length);
+        for (int posicion : masCorta) {
+            resultado.set(posicion);
+        }
+        for (int k = 1; k < listas.size() && !resultado.isEmpty(); k++) {
+            int[] lista = listas.get(k);
+            if (lista == masCorta) {
+                continue;
+            }
+            for (int i = resultado.nextSetBit(0); i >= 0; i = resultado.nextSetBit(i + 1)) {
+                if (Arrays.binarySearch(lista, i) < 0) {
+                    resultado.clear(i);
+                }
+            }
+        }
+        return resultado;
+    } // --- Fin del método candidatos ---
+
+
+    private static long clave(String texto, int desde) {
+        return ((long) texto.charAt(desde) << 32) | ((long) texto.charAt(desde + 1) << 16) | texto.charAt(desde + 2);
+    } // --- Fin del método clave ---
+
+
+    /**
+     * Lista creciente de posiciones. Como los textos se recorren en orden, queda ordenada
+     * y basta con no repetir la última para no duplicar un trigrama que aparece dos veces
+     * en el mismo texto.
+     */
+    private static final class ListaPosiciones {
+        private int[] datos = new int[4];
+        private int tamano = 0;
+
+        void anadir(int posicion) {
+            if (tamano > 0 && datos[tamano - 1] == posicion) {
+                return;
+            }
+            if (tamano == datos.length) {
+                datos = Arrays.copyOf(datos, tamano * 2);
+            }
+            datos[tamano++] = posicion;
+        }
+
+        int[] recortar() {
+            return Arrays.copyOf(datos, tamano);
+        }
+    } // --- Fin de la clase ListaPosiciones ---
+
+} // --- FIN de la clase TrigramIndex ---
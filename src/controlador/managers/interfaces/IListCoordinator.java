@@ -37,6 +37,12 @@ public interface IListCoordinator {
      */
     void reiniciarYSeleccionarIndice(int indiceDeseado);
 
+    /**
+     * Recoloca el índice oficial sobre la clave seleccionada después de que se hayan insertado
+     * elementos en la lista (carga por lotes), sin volver a cargar la imagen principal.
+     */
+    void reubicarSeleccionTrasInsercion();
+
     /**
      * Fuerza una reevaluación del estado 'enabled' de las acciones de navegación y contextuales.
      */
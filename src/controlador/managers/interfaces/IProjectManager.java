@@ -155,6 +155,12 @@ public interface IProjectManager {
      */
 	ProjectModel getCurrentProject();
 
+	/**
+     * Vuelve a indexar las etiquetas de la selección. Debe llamarse después de modificar
+     * directamente el mapa de selección de {@link #getCurrentProject()}.
+     */
+    void reconstruirIndiceEtiquetas();
+
 	/**
      * Añade una asociación persistente entre una imagen y un archivo relacionado.
      * @param rutaImagen La imagen principal a la que se asocia el archivo.
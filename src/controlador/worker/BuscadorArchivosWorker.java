@@ -1,17 +1,31 @@
-package controlador.worker; 
+package controlador.worker;
 
 import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Queue;
 import java.util.concurrent.CancellationException;
-import java.util.function.Predicate;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
 import org.slf4j.Logger;
@@ -19,22 +33,57 @@ import org.slf4j.LoggerFactory;
 
 import vista.dialogos.TaskProgressDialog;
 
+/**
+ * Escanea una carpeta (y, según la profundidad, sus subcarpetas) buscando imágenes.
+ *
+ * El recorrido es paralelo: cada subcarpeta es una tarea de un ForkJoinPool propio, de modo
+ * que en árboles profundos o en unidades de red las lecturas de directorio se solapan en
+ * lugar de hacerse una detrás de otra. Cada carpeta se lee con Files.walkFileTree a
+ * profundidad 1, que entrega los atributos de cada entrada junto con su nombre; así no hace
+ * falta un stat adicional por archivo para saber si es un archivo normal o una carpeta.
+ *
+ * Se usa un ForkJoinPool acotado y no hilos virtuales (el proyecto compila con Java 21 y los
+ * tiene disponibles) por dos motivos: el recorrido es un árbol de tareas que se dividen, que
+ * es justo lo que reparte el robo de trabajo, y el tamaño del pool limita cuántas lecturas de
+ * directorio hay abiertas a la vez contra un NAS. Con un hilo virtual por carpeta habría que
+ * añadir un semáforo para conseguir ese límite.
+ *
+ * Cada tarea acumula sus hallazgos en una lista propia y la entrega de una sola vez al
+ * terminar; el mapa de resultado se construye al final a partir de esas listas parciales.
+ * El progreso se publica a ritmo fijo desde el hilo del worker, no por cada archivo.
+ *
+ * Si se asigna un receptor de lotes, en cada uno de esos pasos se le entregan además (en el
+ * EDT) las imágenes de las carpetas terminadas desde el paso anterior, para que la lista se
+ * pueda ir mostrando antes de que acabe el recorrido. Todos los lotes se entregan antes de
+ * que el worker pase a DONE.
+ */
 public class BuscadorArchivosWorker extends SwingWorker<Map<String, Path>, Integer> {
 
 	private static final Logger logger = LoggerFactory.getLogger(BuscadorArchivosWorker.class);
-	
+
+	/** Cada cuánto se informa del número de archivos encontrados. */
+	private static final long INTERVALO_PROGRESO_MS = 150;
+
+	/** Hilos del escaneo. La mayor parte del tiempo se espera al disco o a la red, así que conviene tener más que núcleos. */
+	private static final int HILOS_ESCANEO = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
     private final Path rutaInicio;
     private final int profundidadBusqueda;
     private final Path rutaRaizParaRelativizar;
-    private final Predicate<Path> filtroImagen;
+    private final BiPredicate<Path, BasicFileAttributes> filtroImagen;
     private final TaskProgressDialog dialogoProgreso;
-    
 
-    // Convertir contadorArchivos en un campo de instancia
-    private int contadorArchivos = 0;
+    private final AtomicInteger contadorArchivos = new AtomicInteger();
+    private final Queue<List<Path>> resultadosParciales = new ConcurrentLinkedQueue<>();
+    private final Queue<List<Path>> pendientesDeEntregar = new ConcurrentLinkedQueue<>();
+    private volatile Consumer<Map<String, Path>> receptorLotes;
 
+    /**
+     * @param filtroImagen Decide si un archivo normal (no oculto) es una imagen soportada.
+     *                     Recibe los atributos ya leídos por el recorrido para no repetir el stat.
+     */
 	public BuscadorArchivosWorker(Path rutaInicio, int profundidadBusqueda, Path rutaRaizParaRelativizar,
-			Predicate<Path> filtroImagen, TaskProgressDialog dialogoProgreso)
+			BiPredicate<Path, BasicFileAttributes> filtroImagen, TaskProgressDialog dialogoProgreso)
 	{
 
         this.rutaInicio = rutaInicio;
@@ -42,73 +91,69 @@ public class BuscadorArchivosWorker extends SwingWorker<Map<String, Path>, Integ
         this.rutaRaizParaRelativizar = rutaRaizParaRelativizar;
         this.filtroImagen = filtroImagen;
         this.dialogoProgreso = dialogoProgreso;
-        // No inicializamos contadorArchivos aquí, ya lo hace la declaración del campo
-    } // -- FIN del constructor -- 
+    } // -- FIN del constructor --
+
+
+    /**
+     * Activa la entrega por lotes. Debe llamarse antes de execute().
+     * @param receptorLotes Recibe en el EDT cada lote (clave relativa -> ruta) en cuanto está disponible.
+     */
+    public void setReceptorLotes(Consumer<Map<String, Path>> receptorLotes) {
+        this.receptorLotes = receptorLotes;
+    } // -- FIN del metodo setReceptorLotes --
 
     @Override
     protected Map<String, Path> doInBackground() throws Exception {
         logger.debug("  [Worker BG] Iniciando búsqueda en " + rutaInicio + " con profundidad " + profundidadBusqueda);
         dialogoProgreso.setMensaje("Escaneando: " + rutaInicio.getFileName() + "...");
 
-        Map<String, Path> mapaRutasResultado = new HashMap<>();
-        Set<String> archivosAgregados = new HashSet<>();
-        // --- INICIO CÓDIGO MODIFICADO ---
-        // Ya no declaramos contadorArchivos aquí, usamos el campo de instancia
-        // int contadorArchivos = 0; <--- LÍNEA ELIMINADA
-        // --- FIN CÓDIGO MODIFICADO ---
-
-
         if (isCancelled()) {
-            logger.debug("  [Worker BG] Tarea cancelada antes de iniciar Files.walk.");
+            logger.debug("  [Worker BG] Tarea cancelada antes de iniciar el escaneo.");
             return null;
         }
 
-        try (Stream<Path> stream = Files.walk(rutaInicio, profundidadBusqueda)) {
-            stream
-                .filter(Files::isRegularFile)
-                .filter(filtroImagen)
-                .forEach(path -> {
-                    if (isCancelled()) {
-                        throw new CancellationException("Tarea cancelada por el usuario durante el escaneo.");
-                    }
-
-                    Path relativePathToRoot;
-                    if (this.rutaRaizParaRelativizar != null) {
-                        try {
-                            relativePathToRoot = this.rutaRaizParaRelativizar.relativize(path);
-                        } catch (IllegalArgumentException e) {
-                             logger.warn("  [Worker BG] WARN: No se pudo relativizar " + path + " a " + this.rutaRaizParaRelativizar + ". Usando nombre archivo.");
-                             relativePathToRoot = path.getFileName();
-                        }
-                    } else {
-                         logger.warn("  [Worker BG] WARN: rutaRaizParaRelativizar es null al generar clave. Usando nombre archivo.");
-                         relativePathToRoot = path.getFileName();
-                    }
-                    String uniqueKey = relativePathToRoot.toString().replace("\\", "/");
-
-                    if (archivosAgregados.add(uniqueKey)) {
-                        mapaRutasResultado.put(uniqueKey, path);
-
-                        // --- INICIO CÓDIGO MODIFICADO ---
-                        // Ahora usamos el campo de instancia, esto es válido dentro de la lambda
-                        this.contadorArchivos++; // O simplemente contadorArchivos++
-                        publish(this.contadorArchivos); // O simplemente publish(contadorArchivos)
-                        // --- FIN CÓDIGO MODIFICADO ---
-                    }
-                }); // Fin forEach
-
+        // La carpeta raíz se comprueba aquí para que un error en ella se informe como antes;
+        // los errores en subcarpetas sólo hacen que se omitan.
+        try {
+            if (!Files.isDirectory(rutaInicio) || !Files.isReadable(rutaInicio)) {
+                throw new IOException("No se puede leer la carpeta " + rutaInicio);
+            }
         } catch (IOException | SecurityException ioOrSecEx) {
-             logger.error("  [Worker BG] Error durante Files.walk: " + ioOrSecEx.getMessage());
+             logger.error("  [Worker BG] Error al acceder a la carpeta de inicio: " + ioOrSecEx.getMessage());
              String errorType = (ioOrSecEx instanceof IOException) ? "Error al leer directorio" : "Error de permisos";
              throw new RuntimeException(errorType, ioOrSecEx);
-        } catch (CancellationException ce) {
-            logger.debug("  [Worker BG] Files.walk detenido por cancelación.");
-            
-             return null;
         }
 
-        logger.debug("  [Worker BG] Files.walk terminado. Archivos encontrados: " + this.contadorArchivos);
-        publish(this.contadorArchivos); // Publicar el conteo final
+        ForkJoinPool pool = new ForkJoinPool(HILOS_ESCANEO);
+        try {
+            ForkJoinTask<Void> raiz = pool.submit(new EscaneoCarpeta(rutaInicio, profundidadBusqueda));
+            while (true) {
+                try {
+                    raiz.get(INTERVALO_PROGRESO_MS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    publish(contadorArchivos.get());
+                    entregarLotePendiente();
+                }
+            }
+            entregarLotePendiente();
+        } catch (CancellationException | InterruptedException ce) {
+            logger.debug("  [Worker BG] Escaneo detenido por cancelación.");
+            return null;
+        } catch (ExecutionException ee) {
+            Throwable causa = (ee.getCause() != null) ? ee.getCause() : ee;
+            logger.error("  [Worker BG] Error durante el escaneo: " + causa.getMessage());
+            throw new RuntimeException("Error al leer directorio", causa);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Map<String, Path> mapaRutasResultado = construirMapaResultado();
+        logger.debug("  [Worker BG] Escaneo terminado. Archivos encontrados: " + mapaRutasResultado.size());
+        publish(mapaRutasResultado.size()); // Publicar el conteo final
         return mapaRutasResultado;
     } // -- FIN del metodo doInBackground --
 
@@ -120,14 +165,160 @@ public class BuscadorArchivosWorker extends SwingWorker<Map<String, Path>, Integ
             dialogoProgreso.updateStatusText("Archivos encontrados: " + ultimoProgreso);
         }
     } // -- FIN del metodo process --
-    
+
 
     @Override
     protected void done() {
         logger.debug("[Worker EDT] Método done() alcanzado.");
         // La lógica REAL de done() está en el PropertyChangeListener
         // que añadimos en VisorController.
-        
-    } // -- FIN del metodo done -- 
-    
-} // --- FIN de la clase BuscadorArchivosWorker ---
\ No newline at end of file
+
+    } // -- FIN del metodo done --
+
+
+    /**
+     * Une las listas parciales de todas las tareas en el mapa clave relativa -> ruta.
+     */
+    private Map<String, Path> construirMapaResultado() {
+        int total = 0;
+        for (List<Path> parcial : resultadosParciales) {
+            total += parcial.size();
+        }
+        Map<String, Path> mapaRutasResultado = new HashMap<>(Math.max(16, (int) (total / 0.75f) + 1));
+        for (List<Path> parcial : resultadosParciales) {
+            for (Path path : parcial) {
+                mapaRutasResultado.putIfAbsent(generarClave(path), path);
+            }
+        }
+        return mapaRutasResultado;
+    } // -- FIN del metodo construirMapaResultado --
+
+
+    /**
+     * Envía al EDT las imágenes de las carpetas terminadas que aún no se habían entregado.
+     * Al usar invokeLater desde el propio doInBackground, el último lote llega siempre
+     * antes que la notificación de DONE.
+     */
+    private void entregarLotePendiente() {
+        Consumer<Map<String, Path>> receptor = this.receptorLotes;
+        if (receptor == null || pendientesDeEntregar.isEmpty()) {
+            return;
+        }
+        Map<String, Path> lote = new HashMap<>();
+        List<Path> parcial;
+        while ((parcial = pendientesDeEntregar.poll()) != null) {
+            for (Path path : parcial) {
+                lote.putIfAbsent(generarClave(path), path);
+            }
+        }
+        if (!lote.isEmpty() && !isCancelled()) {
+            SwingUtilities.invokeLater(() -> receptor.accept(lote));
+        }
+    } // -- FIN del metodo entregarLotePendiente --
+
+
+    private String generarClave(Path path) {
+        Path relativePathToRoot;
+        if (this.rutaRaizParaRelativizar != null) {
+            try {
+                relativePathToRoot = this.rutaRaizParaRelativizar.relativize(path);
+            } catch (IllegalArgumentException e) {
+                 logger.warn("  [Worker BG] WARN: No se pudo relativizar " + path + " a " + this.rutaRaizParaRelativizar + ". Usando nombre archivo.");
+                 relativePathToRoot = path.getFileName();
+            }
+        } else {
+             logger.warn("  [Worker BG] WARN: rutaRaizParaRelativizar es null al generar clave. Usando nombre archivo.");
+             relativePathToRoot = path.getFileName();
+        }
+        return relativePathToRoot.toString().replace("\\", "/");
+    } // -- FIN del metodo generarClave --
+
+
+    /**
+     * Tarea que lee una carpeta, se queda con sus imágenes y lanza una subtarea por cada
+     * subcarpeta mientras quede profundidad.
+     */
+    private final class EscaneoCarpeta extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Path carpeta;
+		private final int profundidadRestante;
+
+		EscaneoCarpeta(Path carpeta, int profundidadRestante) {
+			this.carpeta = carpeta;
+			this.profundidadRestante = profundidadRestante;
+		} // -- FIN del constructor EscaneoCarpeta --
+
+		@Override
+		protected void compute() {
+			if (BuscadorArchivosWorker.this.isCancelled()) {
+				return;
+			}
+			final List<Path> encontrados = new ArrayList<>();
+			final List<EscaneoCarpeta> subtareas = new ArrayList<>();
+
+			try {
+				// Profundidad 1: las subcarpetas llegan a visitFile con sus atributos y no se recorren aquí.
+				Files.walkFileTree(carpeta, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+						if (BuscadorArchivosWorker.this.isCancelled()) {
+							return FileVisitResult.TERMINATE;
+						}
+						if (attrs.isDirectory()) {
+							if (profundidadRestante > 1) {
+								EscaneoCarpeta sub = new EscaneoCarpeta(path, profundidadRestante - 1);
+								sub.fork();
+								subtareas.add(sub);
+							}
+							return FileVisitResult.CONTINUE;
+						}
+						BasicFileAttributes atributosArchivo = attrs;
+						if (attrs.isSymbolicLink()) {
+							// Como Files.walk: no se sigue el enlace a carpetas, pero sí se aceptan enlaces a archivos.
+							atributosArchivo = leerAtributosSiguiendoEnlace(path);
+							if (atributosArchivo == null || !atributosArchivo.isRegularFile()) {
+								return FileVisitResult.CONTINUE;
+							}
+						}
+						if (atributosArchivo.isRegularFile() && filtroImagen.test(path, atributosArchivo)) {
+							encontrados.add(path);
+							contadorArchivos.incrementAndGet();
+						}
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path path, IOException exc) {
+						logger.warn("  [Worker BG] WARN: No se pudo leer " + path + ": " + exc.getMessage());
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch (IOException | SecurityException e) {
+				logger.warn("  [Worker BG] WARN: Se omite la carpeta " + carpeta + ": " + e.getMessage());
+			}
+
+			if (!encontrados.isEmpty()) {
+				resultadosParciales.add(encontrados);
+				if (receptorLotes != null) {
+					pendientesDeEntregar.add(encontrados);
+				}
+			}
+			for (EscaneoCarpeta sub : subtareas) {
+				sub.join();
+			}
+		} // -- FIN del metodo compute --
+
+	} // -- FIN de la clase EscaneoCarpeta --
+
+
+    private static BasicFileAttributes leerAtributosSiguiendoEnlace(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    } // -- FIN del metodo leerAtributosSiguiendoEnlace --
+
+} // --- FIN de la clase BuscadorArchivosWorker ---
@@ -54,6 +54,7 @@ public class VisorModel {
     private ZoomContext datosZoomContext;
     
     private BufferedImage currentImage;
+    private double escalaDecodificacion = 1.0; // Píxeles del original por cada píxel de currentImage (>1 si está reducida)
     
     private int miniaturasAntes;
     private int miniaturasDespues;
@@ -256,7 +257,26 @@ public class VisorModel {
     public void setImageOffsetY(int y) { getCurrentZoomContext().setImageOffsetY(y); }
     public void addImageOffsetY(int deltaY) { setImageOffsetY(getImageOffsetY() + deltaY); }
     public BufferedImage getCurrentImage() { return currentImage; }
-    public void setCurrentImage(BufferedImage currentImage) { this.currentImage = currentImage; }
+    public void setCurrentImage(BufferedImage currentImage) { setCurrentImage(currentImage, 1.0); }
+    
+    /**
+     * Establece la imagen actual indicando si se decodificó a resolución reducida.
+     * El zoomFactor del modelo se expresa siempre en píxeles de pantalla por píxel de
+     * currentImage; para el porcentaje respecto al original, ver {@link #getZoomFactorRespectoOriginal()}.
+     *
+     * @param currentImage La imagen a mostrar.
+     * @param escalaDecodificacion Píxeles del original por cada píxel de la imagen (1.0 si es completa).
+     */
+    public void setCurrentImage(BufferedImage currentImage, double escalaDecodificacion) {
+        this.currentImage = currentImage;
+        this.escalaDecodificacion = (currentImage != null) ? Math.max(1.0, escalaDecodificacion) : 1.0;
+    } // --- Fin del método setCurrentImage ---
+    
+    public double getEscalaDecodificacion() { return escalaDecodificacion; }
+    public boolean isImagenReducida() { return currentImage != null && escalaDecodificacion > 1.0; }
+    public int getCurrentImageAnchoOriginal() { return (currentImage == null) ? 0 : (int) Math.round(currentImage.getWidth() * escalaDecodificacion); }
+    public int getCurrentImageAltoOriginal() { return (currentImage == null) ? 0 : (int) Math.round(currentImage.getHeight() * escalaDecodificacion); }
+    public double getZoomFactorRespectoOriginal() { return getZoomFactor() / escalaDecodificacion; }
     public int getMiniaturasAntes() { return miniaturasAntes; }
     public void setMiniaturasAntes(int val) { this.miniaturasAntes = val; }
     public int getMiniaturasDespues() { return miniaturasDespues; }
@@ -0,0 +1,330 @@
+package principal;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import servicios.ConfigKeys;
+import servicios.ConfigurationManager;
+import servicios.image.ImageFormatDetector;
+import servicios.image.ThumbnailService;
+
+/**
+ * Punto de entrada sin interfaz para pregenerar miniaturas en la caché de disco.
+ *
+ * Recorre una carpeta (por defecto con subcarpetas) y, para cada imagen, genera las
+ * miniaturas de los tamaños configurados que aún no estén en disco, con el mismo
+ * {@link ThumbnailService} que usa el visor. Así, al abrir esa carpeta después, la tira y
+ * el grid las encuentran ya hechas. Usa todos los núcleos, se puede interrumpir y volver
+ * a lanzar (lo que ya está al día se salta con sólo leer la cabecera de la entrada) y
+ * muestra el rendimiento cada pocos segundos.
+ *
+ * Uso: {@code java -cp VisorImagenes.jar principal.GeneradorMiniaturas <carpeta> [opciones]}
+ * <pre>
+ *   --tamanos 70x70,128x128   Tamaños a generar (por defecto, miniaturas.pregeneracion.tamanos
+ *                             o, si está vacío, el tamaño normal de la tira y 128x128).
+ *   --hilos N                 Hilos de trabajo (por defecto, uno por núcleo).
+ *   --solo-carpeta            No entrar en subcarpetas.
+ * </pre>
+ * La caché de disco identifica cada original por su ruta absoluta: la carpeta debe darse
+ * con la misma ruta con la que se abrirá en el visor (misma letra de unidad o ruta UNC).
+ * Se leen el config.cfg y la carpeta de caché del directorio de trabajo, igual que el visor.
+ */
+public class GeneradorMiniaturas {
+
+	private static final Logger logger = LoggerFactory.getLogger(GeneradorMiniaturas.class);
+
+	private static final long INTERVALO_INFORME_MS = 5000;
+	private static final int LADO_GRID = 128; // Tamaño fijo que precarga GridCoordinator
+
+	private final Path raiz;
+	private final boolean recursivo;
+	private final int hilos;
+	private final List<int[]> tamanos;
+
+	private final ThumbnailService thumbnailService;
+	private final boolean deteccionPorContenido;
+
+	// Estadísticas
+	private final LongAdder encontradas = new LongAdder();
+	private final LongAdder procesadas = new LongAdder();
+	private final LongAdder alDia = new LongAdder();
+	private final LongAdder miniaturasGeneradas = new LongAdder();
+	private final LongAdder errores = new LongAdder();
+	private final LongAdder bytesLeidos = new LongAdder();
+	private long inicioNanos;
+	private final AtomicBoolean resumenMostrado = new AtomicBoolean(false);
+
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		Path raiz = null;
+		boolean recursivo = true;
+		int hilos = Runtime.getRuntime().availableProcessors();
+		String tamanosTexto = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--tamanos" -> tamanosTexto = args[++i];
+					case "--hilos" -> hilos = Math.max(1, Integer.parseInt(args[++i]));
+					case "--solo-carpeta" -> recursivo = false;
+					case "-h", "--help", "--ayuda" -> {
+						mostrarUso();
+						return;
+					}
+					default -> {
+						if (args[i].startsWith("--") || raiz != null) {
+							throw new IllegalArgumentException("Argumento no reconocido: " + args[i]);
+						}
+						raiz = Paths.get(args[i]).toAbsolutePath().normalize();
+					}
+				}
+			}
+			if (raiz == null) {
+				throw new IllegalArgumentException("Falta la carpeta a recorrer.");
+			}
+		} catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+			System.err.println(e.getMessage() != null ? e.getMessage() : "Argumentos incompletos.");
+			mostrarUso();
+			System.exit(2);
+			return;
+		}
+
+		if (!Files.isDirectory(raiz)) {
+			System.err.println("No es una carpeta: " + raiz);
+			System.exit(2);
+			return;
+		}
+
+		List<int[]> tamanos;
+		try {
+			tamanos = leerTamanos(tamanosTexto);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+			return;
+		}
+
+		GeneradorMiniaturas generador = new GeneradorMiniaturas(raiz, recursivo, hilos, tamanos);
+		System.exit(generador.ejecutar());
+	} // --- Fin del método main ---
+
+
+	public GeneradorMiniaturas(Path raiz, boolean recursivo, int hilos, List<int[]> tamanos) {
+		this.raiz = raiz;
+		this.recursivo = recursivo;
+		this.hilos = hilos;
+		this.tamanos = tamanos;
+		this.thumbnailService = new ThumbnailService();
+		this.deteccionPorContenido = ConfigurationManager.getInstance().getBoolean(ConfigKeys.COMPORTAMIENTO_DETECCION_POR_CONTENIDO, false);
+	} // --- Fin del constructor GeneradorMiniaturas ---
+
+
+	/**
+	 * Recorre la carpeta y genera lo que falte.
+	 *
+	 * @return Código de salida: 0 si terminó (aunque algún archivo fallara), 1 si no se pudo hacer nada.
+	 */
+	public int ejecutar() {
+		if (!thumbnailService.isCacheDiscoActiva()) {
+			System.err.println("La caché de miniaturas en disco está desactivada (" + ConfigKeys.MINIATURAS_CACHE_DISCO_ACTIVADA + "). No hay dónde guardar.");
+			return 1;
+		}
+		System.out.println("Pregenerando miniaturas de " + raiz + (recursivo ? " (con subcarpetas)" : ""));
+		System.out.println("  Tamaños: " + describirTamanos(tamanos) + " | Hilos: " + hilos + " | Caché: " + thumbnailService.getCarpetaCacheDisco());
+
+		AtomicInteger contadorHilos = new AtomicInteger();
+		// Cola acotada y CallerRunsPolicy: si los hilos no dan abasto, el recorrido se frena
+		// procesando él mismo en lugar de acumular millones de tareas en memoria.
+		ThreadPoolExecutor ejecutor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(hilos * 4), r -> {
+					Thread t = new Thread(r, "PregeneracionMiniaturas-" + contadorHilos.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		ScheduledExecutorService informes = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "PregeneracionMiniaturas-Informe");
+			t.setDaemon(true);
+			return t;
+		});
+
+		// Con Ctrl+C se muestra igualmente el resumen: lo generado ya está guardado y la
+		// siguiente ejecución continúa donde se quedó.
+		Thread alInterrumpir = new Thread(this::mostrarResumen, "PregeneracionMiniaturas-Cierre");
+		Runtime.getRuntime().addShutdownHook(alInterrumpir);
+
+		inicioNanos = System.nanoTime();
+		informes.scheduleAtFixedRate(this::mostrarProgreso, INTERVALO_INFORME_MS, INTERVALO_INFORME_MS, TimeUnit.MILLISECONDS);
+		try {
+			recorrer(ejecutor);
+			ejecutor.shutdown();
+			while (!ejecutor.awaitTermination(1, TimeUnit.SECONDS)) {
+				// Esperar a que terminen las tareas en curso.
+			}
+		} catch (IOException e) {
+			System.err.println("Error recorriendo " + raiz + ": " + e.getMessage());
+			ejecutor.shutdownNow();
+			return 1;
+		} catch (InterruptedException e) {
+			ejecutor.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally {
+			informes.shutdownNow();
+		}
+
+		mostrarResumen();
+		try {
+			Runtime.getRuntime().removeShutdownHook(alInterrumpir);
+		} catch (IllegalStateException e) {
+			// La JVM ya se está cerrando.
+		}
+		return 0;
+	} // --- Fin del método ejecutar ---
+
+
+	// --- MÉTODOS PRIVADOS ---
+
+	private void recorrer(ThreadPoolExecutor ejecutor) throws IOException {
+		int profundidad = recursivo ? Integer.MAX_VALUE : 1;
+		Files.walkFileTree(raiz, EnumSet.noneOf(FileVisitOption.class), profundidad, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path archivo, BasicFileAttributes attrs) {
+				if (esCandidata(archivo, attrs)) {
+					encontradas.increment();
+					ejecutor.execute(() -> procesar(archivo, attrs.size()));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path archivo, IOException exc) {
+				logger.debug("[GeneradorMiniaturas] No se pudo acceder a {}: {}", archivo, exc.getMessage());
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	} // --- Fin del método recorrer ---
+
+
+	/**
+	 * Mismo criterio que la lista del visor: archivos normales, no ocultos, que pasan
+	 * {@link ImageFormatDetector#esImagenSoportada}.
+	 */
+	private boolean esCandidata(Path archivo, BasicFileAttributes attrs) {
+		if (!attrs.isRegularFile()) {
+			return false;
+		}
+		Path nombre = archivo.getFileName();
+		boolean oculto = (attrs instanceof DosFileAttributes dos) ? dos.isHidden() : (nombre != null && nombre.toString().startsWith("."));
+		return !oculto && ImageFormatDetector.getInstance().esImagenSoportada(archivo, attrs, deteccionPorContenido);
+	} // --- Fin del método esCandidata ---
+
+
+	private void procesar(Path archivo, long tamanoArchivo) {
+		try {
+			int generadas = thumbnailService.pregenerarEnDisco(archivo, tamanos);
+			if (generadas > 0) {
+				miniaturasGeneradas.add(generadas);
+				bytesLeidos.add(tamanoArchivo);
+			} else {
+				alDia.increment();
+			}
+		} catch (IOException | RuntimeException e) {
+			errores.increment();
+			logger.warn("[GeneradorMiniaturas] Error con {}: {}", archivo, e.getMessage());
+		} catch (OutOfMemoryError oom) {
+			errores.increment();
+			logger.error("[GeneradorMiniaturas] Sin memoria procesando {}. Se continúa con el siguiente.", archivo);
+		} finally {
+			procesadas.increment();
+		}
+	} // --- Fin del método procesar ---
+
+
+	private void mostrarProgreso() {
+		double segundos = Math.max(0.001, (System.nanoTime() - inicioNanos) / 1e9);
+		System.out.println(String.format(Locale.ROOT, "  %,d/%,d imágenes | %,d miniaturas nuevas, %,d al día, %,d errores | %.1f img/s, %.1f MB/s leídos",
+				procesadas.sum(), encontradas.sum(), miniaturasGeneradas.sum(), alDia.sum(), errores.sum(),
+				procesadas.sum() / segundos, bytesLeidos.sum() / (1024.0 * 1024.0) / segundos));
+	} // --- Fin del método mostrarProgreso ---
+
+
+	private void mostrarResumen() {
+		if (!resumenMostrado.compareAndSet(false, true)) {
+			return;
+		}
+		double segundos = Math.max(0.001, (System.nanoTime() - inicioNanos) / 1e9);
+		System.out.println(String.format(Locale.ROOT, "Terminado en %.1f s: %,d imágenes (%,d al día), %,d miniaturas generadas, %,d errores. %.1f img/s, %.1f MB/s leídos.",
+				segundos, procesadas.sum(), alDia.sum(), miniaturasGeneradas.sum(), errores.sum(),
+				procesadas.sum() / segundos, bytesLeidos.sum() / (1024.0 * 1024.0) / segundos));
+	} // --- Fin del método mostrarResumen ---
+
+
+	/**
+	 * Interpreta una lista "70x70,128x128". Sin lista se usa la configuración y, si está
+	 * vacía, los tamaños que pide el visor: el normal de la tira y el del grid.
+	 */
+	private static List<int[]> leerTamanos(String texto) {
+		ConfigurationManager config = ConfigurationManager.getInstance();
+		if (texto == null || texto.isBlank()) {
+			texto = config.getString(ConfigKeys.MINIATURAS_PREGENERACION_TAMANOS, "");
+		}
+		List<int[]> tamanos = new ArrayList<>();
+		if (texto == null || texto.isBlank()) {
+			tamanos.add(new int[] { config.getInt(ConfigKeys.MINIATURAS_TAMANO_NORM_ANCHO, 40), config.getInt(ConfigKeys.MINIATURAS_TAMANO_NORM_ALTO, 40) });
+			tamanos.add(new int[] { LADO_GRID, LADO_GRID });
+			return tamanos;
+		}
+		for (String parte : texto.split(",")) {
+			String[] lados = parte.trim().toLowerCase(Locale.ROOT).split("x");
+			try {
+				int ancho = Integer.parseInt(lados[0].trim());
+				int alto = (lados.length > 1) ? Integer.parseInt(lados[1].trim()) : ancho;
+				if (ancho <= 0) {
+					throw new NumberFormatException();
+				}
+				tamanos.add(new int[] { ancho, alto });
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Tamaño no válido: '" + parte.trim() + "'. Formato: ANCHOxALTO, por ejemplo 70x70.");
+			}
+		}
+		return tamanos;
+	} // --- Fin del método leerTamanos ---
+
+
+	private static String describirTamanos(List<int[]> tamanos) {
+		List<String> partes = new ArrayList<>();
+		for (int[] t : tamanos) {
+			partes.add(t[0] + "x" + t[1]);
+		}
+		return String.join(", ", partes);
+	} // --- Fin del método describirTamanos ---
+
+
+	private static void mostrarUso() {
+		System.out.println("Uso: java -cp VisorImagenes.jar principal.GeneradorMiniaturas <carpeta> [--tamanos 70x70,128x128] [--hilos N] [--solo-carpeta]");
+	} // --- Fin del método mostrarUso ---
+
+} // --- FIN de la clase GeneradorMiniaturas ---
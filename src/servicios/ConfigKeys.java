@@ -163,8 +163,21 @@ public final class ConfigKeys {
     public static final String COMPORTAMIENTO_ZOOM_PORCENTAJE_PERSONALIZADO 	= "comportamiento.zoom.personalizado.porcentaje";
     public static final String COMPORTAMIENTO_NAVEGACION_CIRCULAR 				= "comportamiento.navegacion.circular";
     public static final String COMPORTAMIENTO_CARGAR_SUBCARPETAS 				= "comportamiento.carpeta.cargarSubcarpetas";
+    public static final String COMPORTAMIENTO_CARGA_POR_LOTES 					= "comportamiento.carpeta.carga_por_lotes.activada";
+    public static final String COMPORTAMIENTO_INDICE_CARPETAS_ACTIVADO 			= "comportamiento.carpeta.indice.activado";
+    public static final String COMPORTAMIENTO_INDICE_CARPETAS_CARPETA 			= "comportamiento.carpeta.indice.carpeta";
+    public static final String COMPORTAMIENTO_VIGILANCIA_CARPETA_ACTIVADA 		= "comportamiento.carpeta.vigilancia.activada";
+    public static final String COMPORTAMIENTO_VIGILANCIA_CARPETA_ESPERA_MS 		= "comportamiento.carpeta.vigilancia.espera_ms";
+    public static final String COMPORTAMIENTO_DETECCION_POR_CONTENIDO 			= "comportamiento.carpeta.deteccion_por_contenido.activada";
+    public static final String COMPORTAMIENTO_FILTRO_INDICE_TRIGRAMAS 			= "comportamiento.filtro.indice_trigramas.activado";
     public static final String COMPORTAMIENTO_ZOOM_AL_CURSOR_ACTIVADO 			= "comportamiento.zoom.al_cursor.activado";
     public static final String COMPORTAMIENTO_NAVEGACION_SALTO_BLOQUE 			="comportamiento.navegacion.tamano_salto_bloque";
+    public static final String COMPORTAMIENTO_PRECARGA_SIGUIENTES 				= "comportamiento.navegacion.precarga.siguientes";
+    public static final String COMPORTAMIENTO_PRECARGA_ANTERIORES 				= "comportamiento.navegacion.precarga.anteriores";
+    public static final String COMPORTAMIENTO_PRECARGA_MEMORIA_MAX_MB 			= "comportamiento.navegacion.precarga.memoria_maxima_mb";
+    public static final String COMPORTAMIENTO_CARGA_PROGRESIVA 					= "comportamiento.display.carga_progresiva.activada";
+    public static final String COMPORTAMIENTO_CARGA_PROGRESIVA_UMBRAL_KB 		= "comportamiento.display.carga_progresiva.umbral_kb";
+    public static final String COMPORTAMIENTO_DECODIFICACION_A_PANTALLA 		= "comportamiento.display.decodificacion_pantalla.activada";
     
     public static final String COMPORTAMIENTO_DISPLAY_MODE_ULTIMO_USADO   		= "comportamiento.display.ultimo_modo_usado";
     
@@ -214,7 +227,15 @@ public final class ConfigKeys {
     public static final String MINIATURAS_TAMANO_SEL_ALTO 						= "miniaturas.tamano.seleccionada.alto";
     public static final String MINIATURAS_TAMANO_NORM_ANCHO 					= "miniaturas.tamano.normal.ancho";
     public static final String MINIATURAS_TAMANO_NORM_ALTO 						= "miniaturas.tamano.normal.alto";
-    public static final String MINIATURAS_CACHE_MAX_SIZE 						= "miniaturas.cache.tamano.maximo";
+    public static final String MINIATURAS_CACHE_MAX_SIZE 						= "miniaturas.cache.tamano.maximo"; // Obsoleta: la caché se limita por memoria
+    public static final String MINIATURAS_CACHE_MEMORIA_MAX_MB 					= "miniaturas.cache.memoria.maxima_mb";
+    public static final String MINIATURAS_CACHE_NIVELES_MAX_MB 					= "miniaturas.cache.niveles.maxima_mb";
+    public static final String MINIATURAS_CACHE_DISCO_ACTIVADA 					= "miniaturas.cache.disco.activada";
+    public static final String MINIATURAS_CACHE_DISCO_CARPETA 					= "miniaturas.cache.disco.carpeta";
+    public static final String MINIATURAS_CACHE_DISCO_MAX_MB 					= "miniaturas.cache.disco.maxima_mb";
+    public static final String MINIATURAS_CACHE_DISCO_DIAS_MAX 					= "miniaturas.cache.disco.dias_maximos";
+    public static final String MINIATURAS_DECODIFICACION_SUBMUESTREADA 			= "miniaturas.decodificacion.submuestreada";
+    public static final String MINIATURAS_PREGENERACION_TAMANOS 				= "miniaturas.pregeneracion.tamanos";
 //    public static final String MINIATURAS_MOSTRAR_NOMBRES 					= "miniaturas.ui.mostrar_nombres";
 
     
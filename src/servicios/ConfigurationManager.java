@@ -481,7 +481,20 @@ public class ConfigurationManager
 	    
 	    defaults.put(ConfigKeys.COMPORTAMIENTO_NAVEGACION_CIRCULAR, "false");
 	    defaults.put(ConfigKeys.COMPORTAMIENTO_CARGAR_SUBCARPETAS, "true");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_CARGA_POR_LOTES, "true");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_INDICE_CARPETAS_ACTIVADO, "true");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_INDICE_CARPETAS_CARPETA, ".folder_index");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_VIGILANCIA_CARPETA_ACTIVADA, "true");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_VIGILANCIA_CARPETA_ESPERA_MS, "500");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_DETECCION_POR_CONTENIDO, "false");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_FILTRO_INDICE_TRIGRAMAS, "true");
 	    defaults.put(ConfigKeys.COMPORTAMIENTO_NAVEGACION_SALTO_BLOQUE, "10");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_PRECARGA_SIGUIENTES, "3");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_PRECARGA_ANTERIORES, "1");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_PRECARGA_MEMORIA_MAX_MB, "256");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_CARGA_PROGRESIVA, "true");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_CARGA_PROGRESIVA_UMBRAL_KB, "1024");
+	    defaults.put(ConfigKeys.COMPORTAMIENTO_DECODIFICACION_A_PANTALLA, "true");
 	    defaults.put(ConfigKeys.COMPORTAMIENTO_PANTALLA_COMPLETA, "false");
 	    defaults.put(ConfigKeys.COMPORTAMIENTO_ZOOM_AL_CURSOR_ACTIVADO, "true");
 
@@ -516,6 +529,14 @@ public class ConfigurationManager
 	    defaults.put(ConfigKeys.MINIATURAS_TAMANO_NORM_ANCHO, "70");
 	    defaults.put(ConfigKeys.MINIATURAS_TAMANO_NORM_ALTO, "70");
 	    defaults.put(ConfigKeys.MINIATURAS_CACHE_MAX_SIZE, "200");
+	    defaults.put(ConfigKeys.MINIATURAS_CACHE_MEMORIA_MAX_MB, "64");
+	    defaults.put(ConfigKeys.MINIATURAS_CACHE_NIVELES_MAX_MB, "96");
+	    defaults.put(ConfigKeys.MINIATURAS_CACHE_DISCO_ACTIVADA, "true");
+	    defaults.put(ConfigKeys.MINIATURAS_CACHE_DISCO_CARPETA, ".thumbnail_cache");
+	    defaults.put(ConfigKeys.MINIATURAS_CACHE_DISCO_MAX_MB, "1024"); // 0: sin límite de tamaño
+	    defaults.put(ConfigKeys.MINIATURAS_CACHE_DISCO_DIAS_MAX, "90"); // 0: sin límite de antigüedad
+	    defaults.put(ConfigKeys.MINIATURAS_DECODIFICACION_SUBMUESTREADA, "true");
+	    defaults.put(ConfigKeys.MINIATURAS_PREGENERACION_TAMANOS, ""); // Vacío: tamaño normal de la tira y 128x128 del grid
 	    
 	    // --- 3. ESTADOS DE MENÚS (CHECKBOXES Y RADIOS) ---
 	    defaults.put(ConfigKeys.VISTA_MOSTRAR_NOMBRES_MINIATURAS_STATE, "true");
@@ -0,0 +1,352 @@
+package servicios;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Vigila la carpeta raíz abierta (y sus subcarpetas, si se muestran) con un
+ * {@link WatchService} y avisa de las imágenes añadidas, borradas o modificadas fuera
+ * de la aplicación, para aplicarlas a la lista sin volver a recorrer el árbol.
+ *
+ * Los eventos se acumulan y se entregan juntos cuando la carpeta lleva un rato sin
+ * cambios (o, si no para de cambiar, cada cierto tiempo), de modo que copiar cientos de
+ * archivos produce unas pocas actualizaciones de la lista y no una por archivo.
+ * Las claves entregadas son rutas relativas a la raíz con '/' como separador, igual que
+ * las del escaneo normal.
+ */
+public class FolderWatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(FolderWatcher.class);
+
+	/** Si los eventos no paran, se entrega lo acumulado como muy tarde tras estas esperas. */
+	private static final int MAX_ESPERAS_ACUMULADAS = 10;
+
+	/**
+	 * Cambios detectados desde la última entrega.
+	 *
+	 * @param anadidas Imágenes nuevas (clave -> ruta).
+	 * @param eliminadas Claves de archivos borrados o renombrados.
+	 * @param modificadas Claves de archivos cuyo contenido ha cambiado.
+	 * @param carpetasEliminadas Rutas relativas de carpetas vigiladas que han desaparecido;
+	 *                           todas las claves bajo ellas deben retirarse.
+	 * @param desbordado true si el sistema perdió eventos y hay que revisar la carpeta entera.
+	 */
+	public record CambiosVigilados(Map<String, Path> anadidas, Set<String> eliminadas, Set<String> modificadas, Set<String> carpetasEliminadas, boolean desbordado) {}
+
+	private final Path raiz;
+	private final boolean recursivo;
+	private final long esperaMs;
+	private final BiPredicate<Path, BasicFileAttributes> filtroImagen;
+	private final Consumer<CambiosVigilados> receptor;
+
+	private volatile WatchService watchService;
+	private Thread hilo;
+
+	// Estado del hilo de vigilancia (sólo se toca desde él).
+	private final Map<WatchKey, Path> carpetasPorClave = new HashMap<>();
+	private final Map<Path, WatchKey> clavesPorCarpeta = new HashMap<>();
+	private final Map<String, Path> creados = new LinkedHashMap<>();
+	private final Set<String> modificados = new LinkedHashSet<>();
+	private final Set<String> eliminados = new LinkedHashSet<>();
+	private final Set<String> carpetasEliminadas = new LinkedHashSet<>();
+	private boolean desbordado = false;
+
+
+	/**
+	 * @param raiz Carpeta raíz de la lista.
+	 * @param recursivo true para vigilar también todas las subcarpetas.
+	 * @param esperaMs Tiempo sin eventos tras el cual se entregan los cambios acumulados.
+	 * @param filtroImagen Criterio para decidir si un archivo es una imagen de la lista.
+	 * @param receptor Recibe los cambios, en el hilo de vigilancia.
+	 */
+	public FolderWatcher(Path raiz, boolean recursivo, long esperaMs, BiPredicate<Path, BasicFileAttributes> filtroImagen, Consumer<CambiosVigilados> receptor) {
+		this.raiz = raiz;
+		this.recursivo = recursivo;
+		this.esperaMs = Math.max(50, esperaMs);
+		this.filtroImagen = filtroImagen;
+		this.receptor = receptor;
+	} // --- Fin del constructor FolderWatcher ---
+
+
+	/**
+	 * Crea el WatchService y arranca el hilo de vigilancia. El registro de las subcarpetas
+	 * se hace ya en ese hilo.
+	 *
+	 * @return false si el sistema de archivos no admite vigilancia.
+	 */
+	public synchronized boolean iniciar() {
+		if (hilo != null) {
+			return true;
+		}
+		try {
+			watchService = raiz.getFileSystem().newWatchService();
+		} catch (IOException | UnsupportedOperationException e) {
+			logger.warn("[FolderWatcher] No se puede vigilar {}: {}", raiz, e.getMessage());
+			return false;
+		}
+		hilo = new Thread(this::vigilar, "FolderWatchThread");
+		hilo.setDaemon(true);
+		hilo.setPriority(Thread.NORM_PRIORITY - 1);
+		hilo.start();
+		return true;
+	} // --- Fin del método iniciar ---
+
+
+	/**
+	 * Deja de vigilar. Los cambios acumulados y aún no entregados se descartan.
+	 */
+	public synchronized void detener() {
+		if (hilo != null) {
+			hilo.interrupt();
+			hilo = null;
+		}
+		WatchService servicio = watchService;
+		watchService = null;
+		if (servicio != null) {
+			try {
+				servicio.close();
+			} catch (IOException e) {
+				logger.debug("[FolderWatcher] Error cerrando el WatchService: {}", e.getMessage());
+			}
+		}
+	} // --- Fin del método detener ---
+
+
+	public Path getRaiz() {
+		return raiz;
+	} // --- Fin del método getRaiz ---
+
+
+	// --- MÉTODOS PRIVADOS ---
+
+	private void vigilar() {
+		WatchService servicio = watchService;
+		if (servicio == null) {
+			return;
+		}
+		registrarArbol(servicio, raiz, false);
+		logger.debug("[FolderWatcher] Vigilando {} ({} carpetas).", raiz, carpetasPorClave.size());
+
+		long primerEvento = 0;
+		long ultimoEvento = 0;
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				WatchKey clave;
+				if (!hayPendientes()) {
+					clave = servicio.take();
+				} else {
+					long ahora = System.currentTimeMillis();
+					long limite = Math.min(ultimoEvento + esperaMs, primerEvento + esperaMs * MAX_ESPERAS_ACUMULADAS);
+					clave = (ahora < limite) ? servicio.poll(limite - ahora, TimeUnit.MILLISECONDS) : null;
+					if (clave == null) {
+						entregar();
+						continue;
+					}
+				}
+
+				if (!hayPendientes()) {
+					primerEvento = System.currentTimeMillis();
+				}
+				procesarEventos(servicio, clave);
+				ultimoEvento = System.currentTimeMillis();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// detener()
+		}
+		logger.debug("[FolderWatcher] Vigilancia de {} terminada.", raiz);
+	} // --- Fin del método vigilar ---
+
+
+	private void procesarEventos(WatchService servicio, WatchKey clave) {
+		Path carpeta = carpetasPorClave.get(clave);
+		for (WatchEvent<?> evento : clave.pollEvents()) {
+			WatchEvent.Kind<?> tipo = evento.kind();
+			if (tipo == OVERFLOW) {
+				desbordado = true;
+				continue;
+			}
+			if (carpeta == null) {
+				continue;
+			}
+			Path ruta = carpeta.resolve((Path) evento.context());
+			String claveArchivo = generarClave(ruta);
+
+			if (tipo == ENTRY_CREATE) {
+				if (Files.isDirectory(ruta)) {
+					if (recursivo) {
+						registrarArbol(servicio, ruta, true);
+					}
+				} else {
+					// Un borrado seguido de creación (sobrescritura por renombrado) es una modificación.
+					if (eliminados.remove(claveArchivo)) {
+						modificados.add(claveArchivo);
+					}
+					creados.put(claveArchivo, ruta);
+				}
+			} else if (tipo == ENTRY_MODIFY) {
+				if (!creados.containsKey(claveArchivo)) {
+					modificados.add(claveArchivo);
+				}
+			} else if (tipo == ENTRY_DELETE) {
+				creados.remove(claveArchivo);
+				modificados.remove(claveArchivo);
+				eliminados.add(claveArchivo);
+				if (clavesPorCarpeta.containsKey(ruta)) {
+					olvidarArbol(ruta);
+				}
+			}
+		}
+		if (!clave.reset() && carpeta != null) {
+			olvidarArbol(carpeta);
+		}
+	} // --- Fin del método procesarEventos ---
+
+
+	/**
+	 * Registra una carpeta (y, si la vigilancia es recursiva, sus subcarpetas).
+	 * Con 'recogerImagenes' las imágenes que ya contiene se dan por añadidas: es el caso de
+	 * una carpeta creada o movida dentro de la raíz con archivos dentro.
+	 */
+	private void registrarArbol(WatchService servicio, Path inicio, boolean recogerImagenes) {
+		if (!recursivo) {
+			registrarCarpeta(servicio, inicio);
+			return;
+		}
+		try {
+			Files.walkFileTree(inicio, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					registrarCarpeta(servicio, dir);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+					if (recogerImagenes && attrs.isRegularFile() && filtroImagen.test(path, attrs)) {
+						creados.put(generarClave(path), path);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path path, IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			logger.debug("[FolderWatcher] No se pudo recorrer {}: {}", inicio, e.getMessage());
+		}
+	} // --- Fin del método registrarArbol ---
+
+
+	private void registrarCarpeta(WatchService servicio, Path carpeta) {
+		if (clavesPorCarpeta.containsKey(carpeta)) {
+			return;
+		}
+		try {
+			WatchKey clave = carpeta.register(servicio, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+			carpetasPorClave.put(clave, carpeta);
+			clavesPorCarpeta.put(carpeta, clave);
+		} catch (IOException | UnsupportedOperationException e) {
+			// Normalmente, límite de vigilancias del sistema: esa carpeta queda sin vigilar.
+			logger.debug("[FolderWatcher] No se pudo vigilar {}: {}", carpeta, e.getMessage());
+		}
+	} // --- Fin del método registrarCarpeta ---
+
+
+	/**
+	 * Deja de vigilar una carpeta desaparecida y todas las que cuelgan de ella, y las anota
+	 * como eliminadas. La clave de una carpeta borrada puede invalidarse antes de que llegue
+	 * el evento de borrado de su carpeta padre, así que se hace en ambos casos.
+	 */
+	private void olvidarArbol(Path carpeta) {
+		List<Path> aQuitar = new ArrayList<>();
+		for (Path registrada : clavesPorCarpeta.keySet()) {
+			if (registrada.startsWith(carpeta)) {
+				aQuitar.add(registrada);
+			}
+		}
+		for (Path registrada : aQuitar) {
+			WatchKey clave = clavesPorCarpeta.remove(registrada);
+			carpetasPorClave.remove(clave);
+			clave.cancel();
+			if (!registrada.equals(raiz)) {
+				carpetasEliminadas.add(generarClave(registrada));
+			}
+		}
+	} // --- Fin del método olvidarArbol ---
+
+
+	private boolean hayPendientes() {
+		return desbordado || !creados.isEmpty() || !modificados.isEmpty() || !eliminados.isEmpty() || !carpetasEliminadas.isEmpty();
+	} // --- Fin del método hayPendientes ---
+
+
+	/**
+	 * Entrega lo acumulado. Los archivos creados se comprueban ahora (ya sin eventos
+	 * recientes): los que no existen o no son imágenes se descartan.
+	 */
+	private void entregar() {
+		Map<String, Path> anadidas = new LinkedHashMap<>();
+		for (Map.Entry<String, Path> entrada : creados.entrySet()) {
+			try {
+				BasicFileAttributes atributos = Files.readAttributes(entrada.getValue(), BasicFileAttributes.class);
+				if (atributos.isRegularFile() && filtroImagen.test(entrada.getValue(), atributos)) {
+					anadidas.put(entrada.getKey(), entrada.getValue());
+				}
+			} catch (IOException | SecurityException e) {
+				// Borrado antes de poder leerlo.
+			}
+		}
+		CambiosVigilados cambios = new CambiosVigilados(anadidas, new LinkedHashSet<>(eliminados), new LinkedHashSet<>(modificados),
+				new LinkedHashSet<>(carpetasEliminadas), desbordado);
+		creados.clear();
+		modificados.clear();
+		eliminados.clear();
+		carpetasEliminadas.clear();
+		desbordado = false;
+
+		if (cambios.desbordado() || !anadidas.isEmpty() || !cambios.eliminadas().isEmpty() || !cambios.modificadas().isEmpty()
+				|| !cambios.carpetasEliminadas().isEmpty()) {
+			try {
+				receptor.accept(cambios);
+			} catch (RuntimeException e) {
+				logger.warn("[FolderWatcher] Error entregando cambios de {}: {}", raiz, e.getMessage(), e);
+			}
+		}
+	} // --- Fin del método entregar ---
+
+
+	private String generarClave(Path ruta) {
+		return raiz.relativize(ruta).toString().replace("\\", "/");
+	} // --- Fin del método generarClave ---
+
+} // --- FIN de la clase FolderWatcher ---
@@ -0,0 +1,114 @@
+package servicios;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice invertido de las etiquetas del proyecto: de cada etiqueta (en minúsculas) al
+ * conjunto de rutas de imagen que la llevan.
+ *
+ * El mapa del proyecto va de ruta a etiqueta, así que filtrar por etiqueta obligaría a
+ * mirar la etiqueta de cada imagen de la lista. Con este índice se recorren sólo las
+ * etiquetas distintas, que son pocas, y se devuelven directamente sus conjuntos de rutas.
+ * {@link ProjectManager} lo mantiene al día en cada cambio de etiqueta o de selección.
+ *
+ * Se consulta desde el hilo del filtro en vivo y se modifica desde el EDT, por eso todos
+ * los accesos están sincronizados y las consultas devuelven copias.
+ */
+final class ProjectLabelIndex {
+
+	private final Map<String, Set<String>> rutasPorEtiqueta = new HashMap<>();
+	private long version = 0;
+
+
+	/**
+	 * Vuelve a indexar todas las etiquetas de una selección.
+	 *
+	 * @param seleccion Mapa ruta -> etiqueta del proyecto.
+	 */
+	synchronized void reconstruir(Map<String, String> seleccion) {
+		rutasPorEtiqueta.clear();
+		for (Map.Entry<String, String> entrada : seleccion.entrySet()) {
+			anadir(entrada.getKey(), entrada.getValue());
+		}
+		version++;
+	} // --- Fin del método reconstruir ---
+
+
+	/**
+	 * Registra el cambio de etiqueta de una imagen.
+	 *
+	 * @param ruta Clave de la imagen en el proyecto.
+	 * @param etiquetaAnterior Etiqueta que tenía (null o vacía si no tenía).
+	 * @param etiquetaNueva Etiqueta nueva (null o vacía si se quita, o si la imagen sale de la selección).
+	 */
+	synchronized void actualizar(String ruta, String etiquetaAnterior, String etiquetaNueva) {
+		String anterior = normalizar(etiquetaAnterior);
+		String nueva = normalizar(etiquetaNueva);
+		if (anterior != null && anterior.equals(nueva)) {
+			return;
+		}
+		if (anterior != null) {
+			Set<String> rutas = rutasPorEtiqueta.get(anterior);
+			if (rutas != null) {
+				rutas.remove(ruta);
+				if (rutas.isEmpty()) {
+					rutasPorEtiqueta.remove(anterior);
+				}
+			}
+		}
+		anadir(ruta, etiquetaNueva);
+		version++;
+	} // --- Fin del método actualizar ---
+
+
+	/**
+	 * Rutas cuyas etiquetas contienen el texto dado, sin distinguir mayúsculas.
+	 *
+	 * @param texto Texto a buscar en las etiquetas.
+	 * @return Copia del conjunto de rutas (vacío si ninguna etiqueta coincide).
+	 */
+	synchronized Set<String> buscar(String texto) {
+		String valor = normalizar(texto);
+		Set<String> resultado = new HashSet<>();
+		if (valor == null) {
+			return resultado;
+		}
+		for (Map.Entry<String, Set<String>> entrada : rutasPorEtiqueta.entrySet()) {
+			if (entrada.getKey().contains(valor)) {
+				resultado.addAll(entrada.getValue());
+			}
+		}
+		return resultado;
+	} // --- Fin del método buscar ---
+
+
+	/**
+	 * Número que cambia con cada modificación del índice.
+	 */
+	synchronized long getVersion() {
+		return version;
+	} // --- Fin del método getVersion ---
+
+
+	// --- MÉTODOS PRIVADOS ---
+
+	private void anadir(String ruta, String etiqueta) {
+		String clave = normalizar(etiqueta);
+		if (ruta != null && clave != null) {
+			rutasPorEtiqueta.computeIfAbsent(clave, k -> new HashSet<>()).add(ruta);
+		}
+	} // --- Fin del método anadir ---
+
+
+	private static String normalizar(String etiqueta) {
+		if (etiqueta == null || etiqueta.isBlank()) {
+			return null;
+		}
+		return etiqueta.trim().toLowerCase(Locale.ROOT);
+	} // --- Fin del método normalizar ---
+
+} // --- FIN de la clase ProjectLabelIndex ---
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.swing.JOptionPane;
@@ -52,6 +53,9 @@ public class ProjectManager implements IProjectManager {
     private final List<ProjectStateListener> stateListeners = new ArrayList<>();
     
     private boolean hayCambiosSinGuardar = false;
+    
+    // Índice etiqueta -> rutas de la selección, para filtrar por etiqueta sin recorrer el mapa.
+    private final ProjectLabelIndex indiceEtiquetas = new ProjectLabelIndex();
 
 
     public ProjectManager() {
@@ -182,6 +186,7 @@ public class ProjectManager implements IProjectManager {
     private void cargarDesdeArchivo(Path rutaArchivo) {
         if (!Files.exists(rutaArchivo) || !Files.isReadable(rutaArchivo)) {
             this.currentProject = new ProjectModel();
+            reconstruirIndiceEtiquetas();
             logger.debug("  [ProjectManager] Archivo de proyecto no encontrado: {}. Se iniciará con proyecto vacío.", rutaArchivo);
             return;
         }
@@ -203,6 +208,7 @@ public class ProjectManager implements IProjectManager {
             logger.error("ERROR [ProjectManager]: Fallo crítico al intentar leer el archivo de proyecto: " + rutaArchivo, e);
             this.currentProject = new ProjectModel();
         }
+        reconstruirIndiceEtiquetas();
     } // --- Fin del método cargarDesdeArchivo ---
     
     
@@ -339,6 +345,7 @@ public class ProjectManager implements IProjectManager {
         logger.info("[ProjectManager] Creando nuevo proyecto.");
         
         this.currentProject = new ProjectModel();
+        reconstruirIndiceEtiquetas();
         this.archivoProyectoActivo = null;
         this.hayCambiosSinGuardar = false;
         
@@ -563,7 +570,8 @@ public class ProjectManager implements IProjectManager {
             String etiquetaAGuardar = (etiqueta == null) ? "" : etiqueta;
             // -------------------------
 
-            this.currentProject.getSelectedImages().put(clave, etiquetaAGuardar); // <--- CAMBIO
+            String etiquetaAnterior = this.currentProject.getSelectedImages().put(clave, etiquetaAGuardar); // <--- CAMBIO
+            indiceEtiquetas.actualizar(clave, etiquetaAnterior, etiquetaAGuardar);
             notificarModificacion(); 
             logger.debug("Etiqueta '{}' asignada a: {}", etiquetaAGuardar, rutaImagen.getFileName());
         } else {
@@ -572,6 +580,38 @@ public class ProjectManager implements IProjectManager {
     } // ---FIN de metodo setEtiqueta ---
     
     
+    /**
+     * Devuelve las rutas (claves del proyecto) de las imágenes cuya etiqueta contiene el
+     * texto dado, sin distinguir mayúsculas. Consulta el índice invertido de etiquetas, así
+     * que el coste depende del número de etiquetas distintas, no del de imágenes.
+     * Se puede llamar desde cualquier hilo.
+     *
+     * @param texto Texto a buscar en las etiquetas.
+     * @return Un conjunto nuevo con las rutas, con '/' como separador.
+     */
+    public Set<String> getRutasConEtiqueta(String texto) {
+        return indiceEtiquetas.buscar(texto);
+    } // ---FIN de metodo getRutasConEtiqueta ---
+    
+    
+    /**
+     * Número que cambia cada vez que cambia alguna etiqueta de la selección. Permite saber
+     * si un resultado filtrado por etiqueta sigue siendo válido.
+     */
+    public long getVersionEtiquetas() {
+        return indiceEtiquetas.getVersion();
+    } // ---FIN de metodo getVersionEtiquetas ---
+    
+    
+    /**
+     * Vuelve a indexar las etiquetas de la selección actual. Se llama al cambiar de
+     * proyecto y cuando el mapa de la selección se modifica desde fuera de esta clase.
+     */
+    public void reconstruirIndiceEtiquetas() {
+        indiceEtiquetas.reconstruir(this.currentProject.getSelectedImages());
+    } // ---FIN de metodo reconstruirIndiceEtiquetas ---
+    
+    
     /**
      * Añade una asociación entre una imagen y un archivo relacionado en el modelo del proyecto.
      * Guarda los cambios en el archivo de proyecto.
@@ -678,7 +718,9 @@ public class ProjectManager implements IProjectManager {
         if (rutaAbsoluta == null) return;
         String clave = rutaAbsoluta.toString().replace("\\", "/");
         // remove devuelve el valor anterior si existía, indicando que hubo un cambio.
-        if (this.currentProject.getSelectedImages().remove(clave) != null) {
+        String etiquetaAnterior = this.currentProject.getSelectedImages().remove(clave);
+        if (etiquetaAnterior != null) {
+            indiceEtiquetas.actualizar(clave, etiquetaAnterior, null);
             notificarModificacion();
         }
     } // --- Fin del método desmarcarImagenInterno ---
@@ -770,7 +812,8 @@ public class ProjectManager implements IProjectManager {
         if (rutaAbsolutaImagen == null) return;
         String clave = rutaAbsolutaImagen.toString().replace("\\", "/");
         if (this.currentProject.getSelectedImages().containsKey(clave)) {
-            this.currentProject.getSelectedImages().remove(clave);
+            String etiquetaAnterior = this.currentProject.getSelectedImages().remove(clave);
+            indiceEtiquetas.actualizar(clave, etiquetaAnterior, null);
             if (!this.currentProject.getDiscardedImages().contains(clave)) {
                 this.currentProject.getDiscardedImages().add(clave);
             }
@@ -800,7 +843,11 @@ public class ProjectManager implements IProjectManager {
     public void eliminarDeProyecto(Path rutaAbsolutaImagen) {
         if (rutaAbsolutaImagen == null) return;
         String clave = rutaAbsolutaImagen.toString().replace("\\", "/");
-        boolean removidoDeSeleccion = this.currentProject.getSelectedImages().remove(clave) != null;
+        String etiquetaAnterior = this.currentProject.getSelectedImages().remove(clave);
+        boolean removidoDeSeleccion = etiquetaAnterior != null;
+        if (removidoDeSeleccion) {
+            indiceEtiquetas.actualizar(clave, etiquetaAnterior, null);
+        }
         boolean removidoDeDescartes = this.currentProject.getDiscardedImages().remove(clave);
         if (removidoDeSeleccion || removidoDeDescartes) {
             notificarModificacion();
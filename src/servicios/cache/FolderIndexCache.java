@@ -0,0 +1,493 @@
+package servicios.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import servicios.ConfigKeys;
+import servicios.ConfigurationManager;
+
+/**
+ * Índice persistente del contenido de cada carpeta raíz abierta en el visor.
+ *
+ * Por cada raíz (y profundidad de escaneo) se guarda en disco la lista de carpetas
+ * recorridas con su fecha de modificación, sus subcarpetas y las imágenes que contienen
+ * (nombre, tamaño y fecha). Al volver a abrir la carpeta la lista sale del índice sin
+ * recorrer el árbol, y después se revisa en segundo plano: sólo se vuelven a listar las
+ * carpetas cuya fecha de modificación ha cambiado (crear, borrar o renombrar un archivo
+ * cambia la fecha de su carpeta). Sobrescribir un archivo sin cambiar su nombre no cambia la
+ * fecha de la carpeta, así que en las carpetas que no se listan se hace un stat de cada
+ * imagen indexada (mucho más barato que listar y filtrar) para detectar las modificadas.
+ *
+ * Los archivos se guardan bajo ~/.miVisorImagenesApp, como la caché de miniaturas, con el
+ * mismo esquema de escritura en temporal y movimiento atómico.
+ */
+public class FolderIndexCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(FolderIndexCache.class);
+
+	private static final int MAGIC = 0x56464931; // "VFI1"
+	private static final String EXTENSION = ".vfi";
+
+	/**
+	 * Margen para la resolución de las fechas de modificación. Una carpeta cuya fecha cae
+	 * dentro de este margen respecto al momento del escaneo pudo cambiar justo después de
+	 * listarla sin que su fecha lo refleje, así que en la siguiente revisión se vuelve a listar.
+	 */
+	private static final long MARGEN_FECHA_MS = 2000;
+
+	private final Path carpetaIndices;
+	private final boolean activa;
+
+	/**
+	 * Imagen indexada dentro de una carpeta.
+	 */
+	public record ArchivoIndexado(String nombre, long tamano, long fechaModificacion) {}
+
+	/**
+	 * Carpeta indexada. 'rutaRelativa' usa '/' como separador y es "" para la raíz.
+	 */
+	public record CarpetaIndexada(String rutaRelativa, long fechaModificacion, List<String> subcarpetas, List<ArchivoIndexado> archivos) {}
+
+	/**
+	 * Índice completo de una raíz para una profundidad de escaneo.
+	 */
+	public record Indice(Path raiz, int profundidad, long fechaEscaneo, Map<String, CarpetaIndexada> carpetas) {
+
+		/**
+		 * Devuelve el mapa clave relativa -> ruta absoluta de todas las imágenes indexadas,
+		 * con las mismas claves que genera el escaneo normal.
+		 */
+		public Map<String, Path> construirMapaRutas() {
+			Map<String, Path> mapa = new HashMap<>();
+			for (CarpetaIndexada carpeta : carpetas.values()) {
+				for (ArchivoIndexado archivo : carpeta.archivos()) {
+					String clave = claveDe(carpeta.rutaRelativa(), archivo.nombre());
+					mapa.put(clave, raiz.resolve(clave));
+				}
+			}
+			return mapa;
+		} // --- Fin del método construirMapaRutas ---
+
+		public boolean estaVacio() {
+			for (CarpetaIndexada carpeta : carpetas.values()) {
+				if (!carpeta.archivos().isEmpty()) {
+					return false;
+				}
+			}
+			return true;
+		} // --- Fin del método estaVacio ---
+
+	} // --- Fin del record Indice ---
+
+	/**
+	 * Diferencias entre lo que se está mostrando y el contenido real de la carpeta.
+	 *
+	 * @param anadidas Claves nuevas con su ruta.
+	 * @param eliminadas Claves que ya no existen.
+	 * @param modificadas Claves cuyo tamaño o fecha han cambiado.
+	 */
+	public record Cambios(Map<String, Path> anadidas, Set<String> eliminadas, Set<String> modificadas) {
+
+		public boolean estaVacio() {
+			return anadidas.isEmpty() && eliminadas.isEmpty() && modificadas.isEmpty();
+		} // --- Fin del método estaVacio ---
+
+	} // --- Fin del record Cambios ---
+
+
+	/**
+	 * Crea el almacén de índices leyendo su configuración de {@link ConfigurationManager}.
+	 * Si la carpeta configurada es relativa, se resuelve bajo ~/.miVisorImagenesApp.
+	 */
+	public FolderIndexCache() {
+		ConfigurationManager config = ConfigurationManager.getInstance();
+		boolean activado = config.getBoolean(ConfigKeys.COMPORTAMIENTO_INDICE_CARPETAS_ACTIVADO, true);
+		String carpetaStr = config.getString(ConfigKeys.COMPORTAMIENTO_INDICE_CARPETAS_CARPETA, ".folder_index");
+
+		Path carpeta = Paths.get(carpetaStr);
+		if (!carpeta.isAbsolute()) {
+			carpeta = Paths.get(System.getProperty("user.home"), ".miVisorImagenesApp", carpetaStr).toAbsolutePath();
+		}
+
+		if (activado) {
+			try {
+				Files.createDirectories(carpeta);
+			} catch (IOException e) {
+				logger.warn("WARN [FolderIndexCache]: No se pudo crear la carpeta de índices {}. Índice desactivado.", carpeta, e);
+				activado = false;
+			}
+		}
+
+		this.carpetaIndices = carpeta;
+		this.activa = activado;
+		logger.debug("[FolderIndexCache] Inicializado. Activo: {}. Carpeta: {}", this.activa, this.carpetaIndices);
+	} // --- Fin del constructor FolderIndexCache ---
+
+
+	public boolean isActiva() {
+		return activa;
+	} // --- Fin del método isActiva ---
+
+
+	/**
+	 * Lee el índice guardado para una raíz y profundidad.
+	 *
+	 * @return El índice, o null si no existe, es de otro formato o no se pudo leer.
+	 */
+	public Indice leer(Path raiz, int profundidad) {
+		if (!activa || raiz == null) {
+			return null;
+		}
+		Path archivo = resolverArchivoIndice(raiz, profundidad);
+		if (!Files.isRegularFile(archivo)) {
+			return null;
+		}
+
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(archivo), 1 << 16);
+			 DataInputStream data = new DataInputStream(in)) {
+
+			if (data.readInt() != MAGIC) {
+				borrarSilencioso(archivo);
+				return null;
+			}
+			String raizGuardada = data.readUTF();
+			int profundidadGuardada = data.readInt();
+			if (!raizGuardada.equals(normalizar(raiz)) || profundidadGuardada != profundidad) {
+				return null; // Colisión de hash: improbable, pero no es nuestro índice.
+			}
+			long fechaEscaneo = data.readLong();
+
+			int numCarpetas = data.readInt();
+			Map<String, CarpetaIndexada> carpetas = new LinkedHashMap<>(Math.max(16, (int) (numCarpetas / 0.75f) + 1));
+			for (int c = 0; c < numCarpetas; c++) {
+				String rutaRelativa = data.readUTF();
+				long fechaCarpeta = data.readLong();
+				int numSub = data.readInt();
+				List<String> subcarpetas = new ArrayList<>(numSub);
+				for (int i = 0; i < numSub; i++) {
+					subcarpetas.add(data.readUTF());
+				}
+				int numArchivos = data.readInt();
+				List<ArchivoIndexado> archivos = new ArrayList<>(numArchivos);
+				for (int i = 0; i < numArchivos; i++) {
+					archivos.add(new ArchivoIndexado(data.readUTF(), data.readLong(), data.readLong()));
+				}
+				carpetas.put(rutaRelativa, new CarpetaIndexada(rutaRelativa, fechaCarpeta, subcarpetas, archivos));
+			}
+			logger.debug("[FolderIndexCache] Índice leído para {}: {} carpetas.", raiz, numCarpetas);
+			return new Indice(raiz, profundidad, fechaEscaneo, carpetas);
+
+		} catch (IOException e) {
+			logger.debug("[FolderIndexCache] No se pudo leer el índice {}: {}", archivo, e.getMessage());
+			borrarSilencioso(archivo);
+			return null;
+		}
+	} // --- Fin del método leer ---
+
+
+	/**
+	 * Guarda un índice en disco. Los errores se registran pero no se propagan: el índice es
+	 * una optimización y sin él la carpeta simplemente se escanea entera.
+	 */
+	public void guardar(Indice indice) {
+		if (!activa || indice == null) {
+			return;
+		}
+		Path archivo = resolverArchivoIndice(indice.raiz(), indice.profundidad());
+		Path temporal = null;
+		try {
+			temporal = Files.createTempFile(carpetaIndices, "tmp_", EXTENSION);
+
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporal), 1 << 16);
+				 DataOutputStream data = new DataOutputStream(out)) {
+				data.writeInt(MAGIC);
+				data.writeUTF(normalizar(indice.raiz()));
+				data.writeInt(indice.profundidad());
+				data.writeLong(indice.fechaEscaneo());
+				data.writeInt(indice.carpetas().size());
+				for (CarpetaIndexada carpeta : indice.carpetas().values()) {
+					data.writeUTF(carpeta.rutaRelativa());
+					data.writeLong(carpeta.fechaModificacion());
+					data.writeInt(carpeta.subcarpetas().size());
+					for (String sub : carpeta.subcarpetas()) {
+						data.writeUTF(sub);
+					}
+					data.writeInt(carpeta.archivos().size());
+					for (ArchivoIndexado a : carpeta.archivos()) {
+						data.writeUTF(a.nombre());
+						data.writeLong(a.tamano());
+						data.writeLong(a.fechaModificacion());
+					}
+				}
+			}
+
+			try {
+				Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING);
+			}
+			temporal = null;
+			logger.debug("[FolderIndexCache] Índice guardado para {}: {} carpetas.", indice.raiz(), indice.carpetas().size());
+
+		} catch (IOException e) {
+			logger.debug("[FolderIndexCache] No se pudo guardar el índice de {}: {}", indice.raiz(), e.getMessage());
+		} finally {
+			if (temporal != null) {
+				borrarSilencioso(temporal);
+			}
+		}
+	} // --- Fin del método guardar ---
+
+
+	/**
+	 * Revisa la carpeta raíz y devuelve un índice actualizado. Las carpetas cuya fecha de
+	 * modificación coincide con la del índice anterior no se listan: sólo se hace un stat de
+	 * la carpeta y de cada una de sus imágenes, para detectar las sobrescritas. Las demás se
+	 * vuelven a listar. Con un índice anterior nulo es un escaneo completo.
+	 *
+	 * Debe llamarse desde un hilo de fondo; responde a interrupciones lanzando CancellationException.
+	 *
+	 * @param anterior Índice previo, o null.
+	 * @param raiz Carpeta raíz.
+	 * @param profundidad Profundidad de escaneo (1 = sólo la raíz), como en Files.walk.
+	 * @param filtroImagen Decide si un archivo normal es una imagen soportada.
+	 * @return El índice nuevo.
+	 */
+	public Indice revisar(Indice anterior, Path raiz, int profundidad, BiPredicate<Path, BasicFileAttributes> filtroImagen) {
+		long fechaEscaneo = System.currentTimeMillis();
+		Map<String, CarpetaIndexada> previas = (anterior != null) ? anterior.carpetas() : Collections.emptyMap();
+		long limiteConfianza = (anterior != null) ? anterior.fechaEscaneo() - MARGEN_FECHA_MS : Long.MIN_VALUE;
+
+		Map<String, CarpetaIndexada> nuevas = new LinkedHashMap<>();
+		int[] listadas = new int[1];
+		revisarCarpeta(raiz, "", profundidad, previas, limiteConfianza, filtroImagen, nuevas, listadas);
+
+		logger.debug("[FolderIndexCache] Revisión de {}: {} carpetas, {} vueltas a listar.", raiz, nuevas.size(), listadas[0]);
+		return new Indice(raiz, profundidad, fechaEscaneo, nuevas);
+	} // --- Fin del método revisar ---
+
+
+	/**
+	 * Compara un índice recién revisado con las claves que se están mostrando.
+	 *
+	 * @param nuevo Índice actual.
+	 * @param clavesMostradas Claves de la lista que se está mostrando.
+	 * @param anterior Índice con el que se construyó esa lista (para detectar modificaciones), o null.
+	 */
+	public static Cambios calcularCambios(Indice nuevo, Set<String> clavesMostradas, Indice anterior) {
+		Map<String, Path> actuales = nuevo.construirMapaRutas();
+
+		Map<String, Path> anadidas = new HashMap<>();
+		for (Map.Entry<String, Path> entrada : actuales.entrySet()) {
+			if (!clavesMostradas.contains(entrada.getKey())) {
+				anadidas.put(entrada.getKey(), entrada.getValue());
+			}
+		}
+		Set<String> eliminadas = new HashSet<>();
+		for (String clave : clavesMostradas) {
+			if (!actuales.containsKey(clave)) {
+				eliminadas.add(clave);
+			}
+		}
+
+		Set<String> modificadas = new HashSet<>();
+		if (anterior != null) {
+			for (CarpetaIndexada carpeta : nuevo.carpetas().values()) {
+				CarpetaIndexada previa = anterior.carpetas().get(carpeta.rutaRelativa());
+				if (previa == null || previa == carpeta) {
+					continue; // Carpeta nueva (todo son altas) o reutilizada sin cambios.
+				}
+				Map<String, ArchivoIndexado> porNombre = new HashMap<>();
+				for (ArchivoIndexado a : previa.archivos()) {
+					porNombre.put(a.nombre(), a);
+				}
+				for (ArchivoIndexado a : carpeta.archivos()) {
+					ArchivoIndexado antes = porNombre.get(a.nombre());
+					if (antes != null && (antes.tamano() != a.tamano() || antes.fechaModificacion() != a.fechaModificacion())) {
+						String clave = claveDe(carpeta.rutaRelativa(), a.nombre());
+						if (clavesMostradas.contains(clave)) {
+							modificadas.add(clave);
+						}
+					}
+				}
+			}
+		}
+		return new Cambios(anadidas, eliminadas, modificadas);
+	} // --- Fin del método calcularCambios ---
+
+
+	// --- MÉTODOS PRIVADOS ---
+
+	private void revisarCarpeta(Path carpeta, String rutaRelativa, int profundidadRestante, Map<String, CarpetaIndexada> previas,
+			long limiteConfianza, BiPredicate<Path, BasicFileAttributes> filtroImagen, Map<String, CarpetaIndexada> nuevas, int[] listadas) {
+
+		if (Thread.currentThread().isInterrupted()) {
+			throw new CancellationException("Revisión del índice interrumpida.");
+		}
+
+		long fechaCarpeta;
+		try {
+			fechaCarpeta = Files.getLastModifiedTime(carpeta).toMillis();
+		} catch (IOException | SecurityException e) {
+			return; // La carpeta ya no existe o no es accesible: todo su contenido desaparece del índice.
+		}
+
+		CarpetaIndexada previa = previas.get(rutaRelativa);
+		CarpetaIndexada actual;
+		if (previa != null && previa.fechaModificacion() == fechaCarpeta && fechaCarpeta < limiteConfianza) {
+			actual = comprobarArchivos(carpeta, previa);
+		} else {
+			actual = listarCarpeta(carpeta, rutaRelativa, fechaCarpeta, filtroImagen);
+			listadas[0]++;
+		}
+		nuevas.put(rutaRelativa, actual);
+
+		if (profundidadRestante > 1) {
+			for (String sub : actual.subcarpetas()) {
+				String rutaSub = rutaRelativa.isEmpty() ? sub : rutaRelativa + "/" + sub;
+				revisarCarpeta(carpeta.resolve(sub), rutaSub, profundidadRestante - 1, previas, limiteConfianza, filtroImagen, nuevas, listadas);
+			}
+		}
+	} // --- Fin del método revisarCarpeta ---
+
+
+	/**
+	 * Revisa con un stat cada imagen de una carpeta que no ha cambiado de fecha, por si se ha
+	 * sobrescrito alguna. Devuelve la misma instancia si ninguna ha cambiado, que es lo que
+	 * {@link #calcularCambios} interpreta como carpeta sin cambios.
+	 */
+	private static CarpetaIndexada comprobarArchivos(Path carpeta, CarpetaIndexada previa) {
+		List<ArchivoIndexado> archivos = null;
+		for (int i = 0; i < previa.archivos().size(); i++) {
+			ArchivoIndexado archivo = previa.archivos().get(i);
+			ArchivoIndexado actual = archivo;
+			try {
+				BasicFileAttributes attrs = Files.readAttributes(carpeta.resolve(archivo.nombre()), BasicFileAttributes.class);
+				long fecha = attrs.lastModifiedTime().toMillis();
+				if (attrs.size() != archivo.tamano() || fecha != archivo.fechaModificacion()) {
+					actual = new ArchivoIndexado(archivo.nombre(), attrs.size(), fecha);
+				}
+			} catch (IOException | SecurityException e) {
+				// Se conserva la entrada: si el archivo se hubiera borrado, la fecha de la carpeta habría cambiado.
+			}
+			if (actual != archivo && archivos == null) {
+				archivos = new ArrayList<>(previa.archivos().subList(0, i));
+			}
+			if (archivos != null) {
+				archivos.add(actual);
+			}
+		}
+		if (archivos == null) {
+			return previa;
+		}
+		return new CarpetaIndexada(previa.rutaRelativa(), previa.fechaModificacion(), previa.subcarpetas(), archivos);
+	} // --- Fin del método comprobarArchivos ---
+
+
+	/**
+	 * Lista una carpeta con walkFileTree a profundidad 1 (los atributos vienen con cada
+	 * entrada), con el mismo criterio que el escaneo normal para enlaces simbólicos.
+	 */
+	private static CarpetaIndexada listarCarpeta(Path carpeta, String rutaRelativa, long fechaCarpeta, BiPredicate<Path, BasicFileAttributes> filtroImagen) {
+		List<String> subcarpetas = new ArrayList<>();
+		List<ArchivoIndexado> archivos = new ArrayList<>();
+		try {
+			Files.walkFileTree(carpeta, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+					if (attrs.isDirectory()) {
+						subcarpetas.add(path.getFileName().toString());
+						return FileVisitResult.CONTINUE;
+					}
+					BasicFileAttributes atributosArchivo = attrs;
+					if (attrs.isSymbolicLink()) {
+						try {
+							atributosArchivo = Files.readAttributes(path, BasicFileAttributes.class);
+						} catch (IOException | SecurityException e) {
+							return FileVisitResult.CONTINUE;
+						}
+					}
+					if (atributosArchivo.isRegularFile() && filtroImagen.test(path, atributosArchivo)) {
+						archivos.add(new ArchivoIndexado(path.getFileName().toString(), atributosArchivo.size(), atributosArchivo.lastModifiedTime().toMillis()));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path path, IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException | SecurityException e) {
+			logger.debug("[FolderIndexCache] No se pudo listar {}: {}", carpeta, e.getMessage());
+		}
+		return new CarpetaIndexada(rutaRelativa, fechaCarpeta, subcarpetas, archivos);
+	} // --- Fin del método listarCarpeta ---
+
+
+	private static String claveDe(String rutaRelativaCarpeta, String nombre) {
+		return rutaRelativaCarpeta.isEmpty() ? nombre : rutaRelativaCarpeta + "/" + nombre;
+	} // --- Fin del método claveDe ---
+
+
+	private Path resolverArchivoIndice(Path raiz, int profundidad) {
+		return carpetaIndices.resolve(sha1Hex(normalizar(raiz) + "|" + profundidad) + EXTENSION);
+	} // --- Fin del método resolverArchivoIndice ---
+
+
+	private static String normalizar(Path raiz) {
+		return raiz.toAbsolutePath().normalize().toString();
+	} // --- Fin del método normalizar ---
+
+
+	private static String sha1Hex(String texto) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			return HexFormat.of().formatHex(digest.digest(texto.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			return Integer.toHexString(texto.hashCode()) + "_" + texto.length();
+		}
+	} // --- Fin del método sha1Hex ---
+
+
+	private static void borrarSilencioso(Path archivo) {
+		try {
+			Files.deleteIfExists(archivo);
+		} catch (IOException e) {
+			logger.trace("[FolderIndexCache] No se pudo borrar {}: {}", archivo, e.getMessage());
+		}
+	} // --- Fin del método borrarSilencioso ---
+
+} // --- FIN de la clase FolderIndexCache ---
@@ -0,0 +1,411 @@
+package servicios.cache;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import servicios.ConfigKeys;
+import servicios.ConfigurationManager;
+import servicios.image.ImageDecoder;
+
+/**
+ * Caché de segundo nivel en disco para las miniaturas ya codificadas.
+ *
+ * Cada entrada se guarda en un archivo cuyo nombre es un hash de la ruta absoluta
+ * del original y de las dimensiones pedidas. Dentro del archivo, una pequeña cabecera
+ * guarda el tamaño y la fecha de modificación del original: si al leer no coinciden
+ * con los actuales, la entrada se considera obsoleta y se borra. Así la caché se
+ * invalida sola cuando el archivo fuente cambia, sin dejar huérfanos por cada versión.
+ *
+ * Es segura para varios hilos y para varias instancias de ThumbnailService apuntando
+ * a la misma carpeta: las escrituras se hacen en un temporal y se mueven atómicamente.
+ *
+ * Las entradas de originales borrados o movidos nunca se vuelven a leer, así que al
+ * arrancar se poda la carpeta en segundo plano: se borran las entradas sin usar en más de
+ * {@code miniaturas.cache.disco.dias_maximos} días y, si aun así se supera
+ * {@code miniaturas.cache.disco.maxima_mb}, las usadas hace más tiempo. La fecha de
+ * modificación de cada entrada hace de fecha de último uso: se renueva (como mucho una vez
+ * al día) cada vez que la entrada se lee o se comprueba.
+ */
+public class ThumbnailDiskCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(ThumbnailDiskCache.class);
+
+	private static final int MAGIC = 0x564D5431; // "VMT1"
+	private static final String EXTENSION = ".vmt";
+	private static final String FORMATO_CODIFICACION = "png";
+	private static final String PREFIJO_TEMPORAL = "tmp_";
+
+	private static final long MS_POR_DIA = 24L * 60 * 60 * 1000;
+	/** Una entrada usada se renueva como mucho una vez en este intervalo, para no escribir en cada lectura. */
+	private static final long INTERVALO_RENOVACION_MS = MS_POR_DIA;
+	/** Temporales más antiguos que esto son restos de escrituras interrumpidas. */
+	private static final long EDAD_TEMPORAL_HUERFANO_MS = 60L * 60 * 1000;
+	/** Al superar el límite de tamaño se poda hasta esta fracción, para no podar en cada arranque. */
+	private static final double FRACCION_TRAS_PODA = 0.9;
+
+	// Carpetas ya podadas en esta ejecución (varias instancias pueden compartir carpeta).
+	private static final Set<Path> carpetasPodadas = ConcurrentHashMap.newKeySet();
+
+	private final Path carpetaCache;
+	private final boolean activa;
+	private final long maximoBytes;
+	private final int diasMaximos;
+
+	/** Archivo de la caché con sus datos para la poda. */
+	private record EntradaCache(Path archivo, long fechaUso, long tamano) {}
+
+	/**
+	 * Crea la caché leyendo su configuración de {@link ConfigurationManager}.
+	 * Si la carpeta configurada es relativa, se resuelve bajo ~/.miVisorImagenesApp,
+	 * igual que la carpeta de proyectos.
+	 */
+	public ThumbnailDiskCache() {
+		ConfigurationManager config = ConfigurationManager.getInstance();
+		boolean activada = config.getBoolean(ConfigKeys.MINIATURAS_CACHE_DISCO_ACTIVADA, true);
+		String carpetaStr = config.getString(ConfigKeys.MINIATURAS_CACHE_DISCO_CARPETA, ".thumbnail_cache");
+
+		Path carpeta = Paths.get(carpetaStr);
+		if (!carpeta.isAbsolute()) {
+			carpeta = Paths.get(System.getProperty("user.home"), ".miVisorImagenesApp", carpetaStr).toAbsolutePath();
+		}
+
+		if (activada) {
+			try {
+				Files.createDirectories(carpeta);
+			} catch (IOException e) {
+				logger.warn("WARN [ThumbnailDiskCache]: No se pudo crear la carpeta de caché {}. Caché en disco desactivada.", carpeta, e);
+				activada = false;
+			}
+		}
+
+		this.carpetaCache = carpeta;
+		this.activa = activada;
+		this.maximoBytes = Math.max(0, config.getInt(ConfigKeys.MINIATURAS_CACHE_DISCO_MAX_MB, 1024)) * 1024L * 1024L;
+		this.diasMaximos = Math.max(0, config.getInt(ConfigKeys.MINIATURAS_CACHE_DISCO_DIAS_MAX, 90));
+		logger.debug("[ThumbnailDiskCache] Inicializada. Activa: {}. Carpeta: {}. Máximo: {} MB, {} días.", this.activa, this.carpetaCache, this.maximoBytes / (1024 * 1024), this.diasMaximos);
+
+		if (this.activa && carpetasPodadas.add(this.carpetaCache)) {
+			Thread poda = new Thread(this::podar, "ThumbnailDiskCachePruner");
+			poda.setDaemon(true);
+			poda.setPriority(Thread.MIN_PRIORITY);
+			poda.start();
+		}
+	} // --- Fin del constructor ThumbnailDiskCache ---
+
+
+	/**
+	 * Busca una miniatura en disco para el archivo y las dimensiones dadas.
+	 *
+	 * @param rutaArchivo Ruta del archivo original.
+	 * @param ancho Ancho pedido para la miniatura.
+	 * @param alto Alto pedido para la miniatura (<= 0 si se mantiene proporción).
+	 * @return La miniatura decodificada, o null si no existe, está obsoleta o no se pudo leer.
+	 */
+	public BufferedImage leer(Path rutaArchivo, int ancho, int alto) {
+		if (!activa || rutaArchivo == null) {
+			return null;
+		}
+
+		BasicFileAttributes atributos = leerAtributos(rutaArchivo);
+		if (atributos == null) {
+			return null;
+		}
+
+		Path archivoCache = resolverArchivoCache(rutaArchivo, ancho, alto);
+		BasicFileAttributes atributosEntrada = leerAtributos(archivoCache);
+		if (atributosEntrada == null || !atributosEntrada.isRegularFile()) {
+			return null;
+		}
+
+		boolean obsoleta = false;
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(archivoCache));
+			 DataInputStream data = new DataInputStream(in)) {
+
+			if (data.readInt() != MAGIC) {
+				obsoleta = true;
+			} else {
+				long tamanoGuardado = data.readLong();
+				long mtimeGuardado = data.readLong();
+				if (tamanoGuardado != atributos.size() || mtimeGuardado != atributos.lastModifiedTime().toMillis()) {
+					obsoleta = true;
+				} else {
+					BufferedImage imagen = ImageDecoder.leerDeStream(data);
+					if (imagen == null) {
+						obsoleta = true;
+					} else {
+						renovarUso(archivoCache, atributosEntrada);
+						return imagen;
+					}
+				}
+			}
+		} catch (IOException e) {
+			logger.debug("[ThumbnailDiskCache] No se pudo leer la entrada {}: {}", archivoCache, e.getMessage());
+			obsoleta = true;
+		}
+
+		if (obsoleta) {
+			borrarSilencioso(archivoCache);
+		}
+		return null;
+	} // --- Fin del método leer ---
+
+
+	/**
+	 * Guarda una miniatura en disco. Los errores se registran pero no se propagan:
+	 * la caché en disco es una optimización y nunca debe impedir mostrar una miniatura.
+	 *
+	 * @param rutaArchivo Ruta del archivo original.
+	 * @param ancho Ancho pedido para la miniatura.
+	 * @param alto Alto pedido para la miniatura.
+	 * @param miniatura La imagen ya escalada a guardar.
+	 */
+	public void guardar(Path rutaArchivo, int ancho, int alto, BufferedImage miniatura) {
+		if (!activa || rutaArchivo == null || miniatura == null) {
+			return;
+		}
+
+		BasicFileAttributes atributos = leerAtributos(rutaArchivo);
+		if (atributos == null) {
+			return;
+		}
+
+		Path archivoCache = resolverArchivoCache(rutaArchivo, ancho, alto);
+		Path temporal = null;
+		try {
+			Files.createDirectories(archivoCache.getParent());
+			temporal = Files.createTempFile(archivoCache.getParent(), PREFIJO_TEMPORAL, EXTENSION);
+
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporal));
+				 DataOutputStream data = new DataOutputStream(out)) {
+				data.writeInt(MAGIC);
+				data.writeLong(atributos.size());
+				data.writeLong(atributos.lastModifiedTime().toMillis());
+				if (!ImageIO.write(miniatura, FORMATO_CODIFICACION, data)) {
+					throw new IOException("No hay escritor " + FORMATO_CODIFICACION + " disponible.");
+				}
+			}
+
+			try {
+				Files.move(temporal, archivoCache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporal, archivoCache, StandardCopyOption.REPLACE_EXISTING);
+			}
+			temporal = null;
+
+		} catch (IOException e) {
+			logger.debug("[ThumbnailDiskCache] No se pudo guardar la miniatura de {}: {}", rutaArchivo, e.getMessage());
+		} finally {
+			if (temporal != null) {
+				borrarSilencioso(temporal);
+			}
+		}
+	} // --- Fin del método guardar ---
+
+
+	/**
+	 * Indica si hay en disco una miniatura al día para el archivo y las dimensiones dadas,
+	 * leyendo sólo la cabecera de la entrada (sin decodificar la imagen).
+	 */
+	public boolean estaVigente(Path rutaArchivo, int ancho, int alto) {
+		if (!activa || rutaArchivo == null) {
+			return false;
+		}
+		BasicFileAttributes atributos = leerAtributos(rutaArchivo);
+		if (atributos == null) {
+			return false;
+		}
+		Path archivoCache = resolverArchivoCache(rutaArchivo, ancho, alto);
+		BasicFileAttributes atributosEntrada = leerAtributos(archivoCache);
+		if (atributosEntrada == null || !atributosEntrada.isRegularFile()) {
+			return false;
+		}
+		boolean vigente;
+		try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivoCache), 32))) {
+			vigente = data.readInt() == MAGIC
+					&& data.readLong() == atributos.size()
+					&& data.readLong() == atributos.lastModifiedTime().toMillis();
+		} catch (IOException e) {
+			return false;
+		}
+		if (vigente) {
+			renovarUso(archivoCache, atributosEntrada);
+		}
+		return vigente;
+	} // --- Fin del método estaVigente ---
+
+
+	/**
+	 * Elimina de disco la miniatura de un archivo para unas dimensiones concretas.
+	 */
+	public void eliminar(Path rutaArchivo, int ancho, int alto) {
+		if (!activa || rutaArchivo == null) {
+			return;
+		}
+		borrarSilencioso(resolverArchivoCache(rutaArchivo, ancho, alto));
+	} // --- Fin del método eliminar ---
+
+
+	public boolean isActiva() {
+		return activa;
+	} // --- Fin del método isActiva ---
+
+
+	public Path getCarpetaCache() {
+		return carpetaCache;
+	} // --- Fin del método getCarpetaCache ---
+
+
+	/**
+	 * Borra las entradas sin usar en más de 'diasMaximos' días y, si la carpeta sigue
+	 * superando 'maximoBytes', las de uso más antiguo hasta dejarla en el 90 % del límite.
+	 * También borra los temporales que hayan quedado de escrituras interrumpidas.
+	 * Recorre toda la carpeta: se ejecuta una vez, en un hilo de fondo, al crear la caché.
+	 */
+	private void podar() {
+		long ahora = System.currentTimeMillis();
+		long limiteUso = (diasMaximos > 0) ? ahora - diasMaximos * MS_POR_DIA : Long.MIN_VALUE;
+		List<EntradaCache> conservadas = new ArrayList<>();
+		long[] bytesConservados = new long[1];
+		int[] borradas = new int[1];
+
+		try {
+			Files.walkFileTree(carpetaCache, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path archivo, BasicFileAttributes attrs) {
+					if (!attrs.isRegularFile()) {
+						return FileVisitResult.CONTINUE;
+					}
+					String nombre = archivo.getFileName().toString();
+					long fecha = attrs.lastModifiedTime().toMillis();
+					if (nombre.startsWith(PREFIJO_TEMPORAL)) {
+						if (fecha < ahora - EDAD_TEMPORAL_HUERFANO_MS) {
+							borrarSilencioso(archivo);
+							borradas[0]++;
+						}
+					} else if (nombre.endsWith(EXTENSION)) {
+						if (fecha < limiteUso) {
+							borrarSilencioso(archivo);
+							borradas[0]++;
+						} else {
+							conservadas.add(new EntradaCache(archivo, fecha, attrs.size()));
+							bytesConservados[0] += attrs.size();
+						}
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path archivo, IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException | SecurityException e) {
+			logger.debug("[ThumbnailDiskCache] No se pudo recorrer la carpeta de caché {}: {}", carpetaCache, e.getMessage());
+			return;
+		}
+
+		long total = bytesConservados[0];
+		if (maximoBytes > 0 && total > maximoBytes) {
+			long objetivo = (long) (maximoBytes * FRACCION_TRAS_PODA);
+			conservadas.sort(Comparator.comparingLong(EntradaCache::fechaUso));
+			for (EntradaCache entrada : conservadas) {
+				if (total <= objetivo) {
+					break;
+				}
+				borrarSilencioso(entrada.archivo());
+				total -= entrada.tamano();
+				borradas[0]++;
+			}
+		}
+		logger.debug("[ThumbnailDiskCache] Poda terminada en {} ms. Borradas: {}. Ocupación: {} MB.",
+				System.currentTimeMillis() - ahora, borradas[0], total / (1024 * 1024));
+	} // --- Fin del método podar ---
+
+
+	// --- MÉTODOS PRIVADOS ---
+
+	/**
+	 * Marca la entrada como usada ahora, si no se ha hecho en el último día.
+	 */
+	private static void renovarUso(Path archivoCache, BasicFileAttributes atributosEntrada) {
+		long ahora = System.currentTimeMillis();
+		if (ahora - atributosEntrada.lastModifiedTime().toMillis() < INTERVALO_RENOVACION_MS) {
+			return;
+		}
+		try {
+			Files.setLastModifiedTime(archivoCache, FileTime.fromMillis(ahora));
+		} catch (IOException e) {
+			logger.trace("[ThumbnailDiskCache] No se pudo renovar {}: {}", archivoCache, e.getMessage());
+		}
+	} // --- Fin del método renovarUso ---
+
+
+	/**
+	 * Calcula el archivo de caché. Se reparte en subcarpetas por los dos primeros
+	 * caracteres del hash para no acumular decenas de miles de archivos en una sola carpeta.
+	 */
+	private Path resolverArchivoCache(Path rutaArchivo, int ancho, int alto) {
+		String identidad = rutaArchivo.toAbsolutePath().normalize().toString() + "|" + ancho + "x" + alto;
+		String hash = sha1Hex(identidad);
+		return carpetaCache.resolve(hash.substring(0, 2)).resolve(hash + EXTENSION);
+	} // --- Fin del método resolverArchivoCache ---
+
+
+	private static BasicFileAttributes leerAtributos(Path rutaArchivo) {
+		try {
+			return Files.readAttributes(rutaArchivo, BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+	} // --- Fin del método leerAtributos ---
+
+
+	private static String sha1Hex(String texto) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			return HexFormat.of().formatHex(digest.digest(texto.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-1 está garantizado en toda JVM; esto no debería ocurrir nunca.
+			return Integer.toHexString(texto.hashCode()) + "_" + texto.length();
+		}
+	} // --- Fin del método sha1Hex ---
+
+
+	private static void borrarSilencioso(Path archivo) {
+		try {
+			Files.deleteIfExists(archivo);
+		} catch (IOException e) {
+			logger.trace("[ThumbnailDiskCache] No se pudo borrar {}: {}", archivo, e.getMessage());
+		}
+	} // --- Fin del método borrarSilencioso ---
+
+} // --- FIN de la clase ThumbnailDiskCache ---
@@ -0,0 +1,183 @@
+package servicios.image;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * ImageInputStream sobre un {@link FileChannel} con lecturas posicionadas en bloques
+ * grandes.
+ *
+ * El {@code FileImageInputStream} que crea ImageIO para un archivo usa un
+ * RandomAccessFile con un búfer pequeño, de modo que decodificar una foto supone miles de
+ * llamadas al sistema. Aquí cada acceso fuera del bloque actual lee {@value #TAMANO_BLOQUE}
+ * bytes de una vez, y las lecturas mayores que un bloque van directas al destino.
+ *
+ * El primer bloque del archivo se conserva aparte: en un JPEG contiene los segmentos
+ * EXIF, y {@link ImageDecoder} lo pasa a {@link ImageMetadataService} para no tener que
+ * volver a abrir el archivo sólo para leer la orientación.
+ *
+ * No se usa un mapeo en memoria (MappedByteBuffer): en Java 21, sin la API FFM de
+ * {@code Arena} (todavía en preview), no hay forma soportada de liberarlo, y se queda
+ * mapeado hasta que el recolector lo recoge. En Windows, mientras sigue mapeado el
+ * archivo está bloqueado y no se puede borrar ni renombrar.
+ */
+final class FileChannelImageInputStream extends ImageInputStreamImpl {
+
+	static final int TAMANO_BLOQUE = 128 * 1024;
+
+	private final FileChannel canal;
+	private final long tamano;
+
+	private final byte[] cabecera;       // Primer bloque del archivo (puede ser más corto).
+	private final int longitudCabecera;
+
+	private byte[] bloque;               // Bloque actual: la cabecera o 'bufferLectura'.
+	private byte[] bufferLectura;        // Se crea al salir de la cabecera.
+	private long inicioBloque = 0;
+	private int longitudBloque;
+
+
+	FileChannelImageInputStream(Path ruta) throws IOException {
+		this.canal = FileChannel.open(ruta, StandardOpenOption.READ);
+		try {
+			this.tamano = canal.size();
+			this.cabecera = new byte[(int) Math.min(TAMANO_BLOQUE, Math.max(0, tamano))];
+			this.longitudCabecera = leerEn(0, cabecera, 0, cabecera.length);
+		} catch (IOException | RuntimeException e) {
+			canal.close();
+			throw e;
+		}
+		this.bloque = cabecera;
+		this.longitudBloque = longitudCabecera;
+	} // --- Fin del constructor FileChannelImageInputStream ---
+
+
+	/**
+	 * Primeros bytes del archivo, ya leídos al abrirlo. No debe modificarse.
+	 */
+	byte[] getCabecera() {
+		return cabecera;
+	} // --- Fin del método getCabecera ---
+
+
+	int getLongitudCabecera() {
+		return longitudCabecera;
+	} // --- Fin del método getLongitudCabecera ---
+
+
+	@Override
+	public int read() throws IOException {
+		checkClosed();
+		bitOffset = 0;
+		if (!situarBloqueEn(streamPos)) {
+			return -1;
+		}
+		return bloque[(int) (streamPos++ - inicioBloque)] & 0xFF;
+	} // --- Fin del método read ---
+
+
+	@Override
+	public int read(byte[] destino, int desde, int longitud) throws IOException {
+		checkClosed();
+		if (desde < 0 || longitud < 0 || desde + longitud > destino.length) {
+			throw new IndexOutOfBoundsException("desde: " + desde + ", longitud: " + longitud);
+		}
+		bitOffset = 0;
+		if (longitud == 0) {
+			return 0;
+		}
+		if (streamPos >= tamano) {
+			return -1;
+		}
+
+		// Lectura grande fuera del bloque actual: directa al destino, sin pasar por el búfer.
+		boolean dentroDelBloque = streamPos >= inicioBloque && streamPos < inicioBloque + longitudBloque;
+		if (!dentroDelBloque && longitud >= TAMANO_BLOQUE) {
+			int leidos = leerEn(streamPos, destino, desde, longitud);
+			if (leidos <= 0) {
+				return -1;
+			}
+			streamPos += leidos;
+			return leidos;
+		}
+
+		if (!situarBloqueEn(streamPos)) {
+			return -1;
+		}
+		int offset = (int) (streamPos - inicioBloque);
+		int n = Math.min(longitud, longitudBloque - offset);
+		System.arraycopy(bloque, offset, destino, desde, n);
+		streamPos += n;
+		return n;
+	} // --- Fin del método read(byte[], int, int) ---
+
+
+	@Override
+	public long length() {
+		return tamano;
+	} // --- Fin del método length ---
+
+
+	@Override
+	public void close() throws IOException {
+		super.close();
+		canal.close();
+	} // --- Fin del método close ---
+
+
+	// --- MÉTODOS PRIVADOS ---
+
+	/**
+	 * Deja en 'bloque' los bytes que empiezan en 'posicion' si no lo estaban ya.
+	 *
+	 * @return false si 'posicion' está al final del archivo.
+	 */
+	private boolean situarBloqueEn(long posicion) throws IOException {
+		if (posicion >= inicioBloque && posicion < inicioBloque + longitudBloque) {
+			return true;
+		}
+		if (posicion < longitudCabecera) {
+			bloque = cabecera;
+			inicioBloque = 0;
+			longitudBloque = longitudCabecera;
+			return true;
+		}
+		if (bufferLectura == null) {
+			bufferLectura = new byte[TAMANO_BLOQUE];
+		}
+		bloque = bufferLectura;
+		int leidos = leerEn(posicion, bloque, 0, bloque.length);
+		if (leidos <= 0) {
+			longitudBloque = 0;
+			return false;
+		}
+		inicioBloque = posicion;
+		longitudBloque = leidos;
+		return true;
+	} // --- Fin del método situarBloqueEn ---
+
+
+	/**
+	 * Lee del canal a partir de 'posicion' hasta llenar la longitud pedida o llegar al final.
+	 *
+	 * @return Bytes leídos (0 si 'posicion' está al final del archivo).
+	 */
+	private int leerEn(long posicion, byte[] destino, int desde, int longitud) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(destino, desde, longitud);
+		long actual = posicion;
+		while (buffer.hasRemaining()) {
+			int n = canal.read(buffer, actual);
+			if (n < 0) {
+				break;
+			}
+			actual += n;
+		}
+		return (int) (actual - posicion);
+	} // --- Fin del método leerEn ---
+
+} // --- FIN de la clase FileChannelImageInputStream ---
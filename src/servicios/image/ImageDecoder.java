@@ -0,0 +1,313 @@
+package servicios.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.function.ToDoubleBiFunction;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Punto único de decodificación de imágenes desde disco.
+ *
+ * Los archivos se leen con {@link FileChannelImageInputStream} (bloques grandes en lugar
+ * de las lecturas pequeñas de ImageIO), y sus primeros bytes se reutilizan para los
+ * metadatos EXIF.
+ *
+ * Además de la lectura completa, ofrece una lectura "submuestreada" pensada para
+ * miniaturas: en lugar de decodificar la imagen a resolución completa y luego escalarla,
+ * pide al ImageReader que lea sólo una de cada N filas/columnas, o usa directamente la
+ * miniatura embebida (EXIF/JFIF) si es lo bastante grande. Para una foto de 50 MP que
+ * acaba siendo un icono de 90x90 esto reduce la memoria de cientos de MB a unos pocos.
+ */
+public final class ImageDecoder {
+
+	private static final Logger logger = LoggerFactory.getLogger(ImageDecoder.class);
+
+	/** Tolerancia al comparar la proporción de la miniatura embebida con la de la imagen. */
+	private static final double TOLERANCIA_PROPORCION = 0.02;
+
+	/**
+	 * Imagen decodificada junto con su escala respecto al original.
+	 *
+	 * @param imagen La imagen leída.
+	 * @param escala Píxeles del original por cada píxel de la imagen (1.0 si es completa).
+	 */
+	public record ImagenDecodificada(BufferedImage imagen, double escala) {}
+
+	private ImageDecoder() {}
+
+
+	/**
+	 * Lee la imagen a resolución completa. Equivale a {@code ImageIO.read(File)}, pero usa
+	 * el lector detectado durante el escaneo si lo hay.
+	 *
+	 * @param rutaArchivo Ruta de la imagen.
+	 * @return La imagen decodificada, o null si ningún lector la reconoce.
+	 * @throws IOException Si hay un error de lectura.
+	 */
+	public static BufferedImage leerCompleta(Path rutaArchivo) throws IOException {
+		try (FileChannelImageInputStream iis = new FileChannelImageInputStream(rutaArchivo)) {
+			BufferedImage imagen = conLector(rutaArchivo, iis, reader -> reader.read(0, reader.getDefaultReadParam()));
+			compartirCabecera(rutaArchivo, iis, imagen != null);
+			return imagen;
+		}
+	} // --- Fin del método leerCompleta ---
+
+
+	/**
+	 * Lee una imagen de un stream en memoria o ya abierto (por ejemplo, una entrada de la
+	 * caché de miniaturas en disco), con el mismo lector reutilizable que los archivos.
+	 *
+	 * @param entrada Stream posicionado al inicio de la imagen. No se cierra.
+	 * @return La imagen, o null si ningún lector la reconoce.
+	 * @throws IOException Si hay un error de lectura.
+	 */
+	public static BufferedImage leerDeStream(InputStream entrada) throws IOException {
+		try (ImageInputStream iis = ImageIO.createImageInputStream(entrada)) {
+			if (iis == null) {
+				return null;
+			}
+			return conLector(null, iis, reader -> reader.read(0, reader.getDefaultReadParam()));
+		}
+	} // --- Fin del método leerDeStream ---
+
+
+	/**
+	 * Lee la imagen a una resolución cercana (pero nunca inferior) a la necesaria para
+	 * encajarla en un rectángulo de {@code anchoObjetivo x altoObjetivo}.
+	 *
+	 * El factor de submuestreo se calcula sobre el lado corto de la imagen y el lado
+	 * largo del objetivo, de modo que el resultado sigue siendo suficiente aunque después
+	 * se aplique una rotación EXIF de 90/270 grados.
+	 *
+	 * @param rutaArchivo Ruta de la imagen.
+	 * @param anchoObjetivo Ancho del destino.
+	 * @param altoObjetivo Alto del destino (<= 0 si sólo importa el ancho).
+	 * @return La imagen decodificada a resolución reducida, o null si ningún lector la reconoce.
+	 * @throws IOException Si hay un error de lectura.
+	 */
+	public static BufferedImage leerSubmuestreada(Path rutaArchivo, int anchoObjetivo, int altoObjetivo) throws IOException {
+		int ladoObjetivo = Math.max(1, Math.max(anchoObjetivo, altoObjetivo));
+
+		try (FileChannelImageInputStream iis = new FileChannelImageInputStream(rutaArchivo)) {
+			BufferedImage resultado = conLector(rutaArchivo, iis, reader -> {
+				int anchoOriginal = reader.getWidth(0);
+				int altoOriginal = reader.getHeight(0);
+
+				// 1. Intentar la miniatura embebida: es la vía más barata con diferencia.
+				BufferedImage embebida = leerMiniaturaEmbebida(reader, anchoOriginal, altoOriginal, ladoObjetivo);
+				if (embebida != null) {
+					logger.trace("[ImageDecoder] Usando miniatura embebida {}x{} para {}", embebida.getWidth(), embebida.getHeight(), rutaArchivo);
+					return embebida;
+				}
+
+				// 2. Lectura submuestreada de la imagen principal.
+				int factor = calcularFactorSubmuestreo(anchoOriginal, altoOriginal, ladoObjetivo);
+				ImageReadParam param = reader.getDefaultReadParam();
+				if (factor > 1) {
+					param.setSourceSubsampling(factor, factor, 0, 0);
+				}
+				return reader.read(0, param);
+			});
+			compartirCabecera(rutaArchivo, iis, resultado != null);
+			return resultado;
+		}
+	} // --- Fin del método leerSubmuestreada ---
+
+
+	/**
+	 * Lee la imagen a la resolución que realmente se va a mostrar.
+	 *
+	 * El llamador indica, para unas dimensiones dadas, qué escala de pantalla se aplicará
+	 * (por ejemplo, {@code min(panelAncho/ancho, panelAlto/alto)} al ajustar a pantalla).
+	 * Se evalúa con las dimensiones en ambos sentidos, porque la rotación EXIF se aplica
+	 * después, y se usa el mayor submuestreo entero que no deja la imagen por debajo de esa
+	 * escala. Si la escala es >= 1 la imagen se lee completa.
+	 *
+	 * @param rutaArchivo Ruta de la imagen.
+	 * @param escalaPantalla Escala de pantalla (píxeles de pantalla por píxel del original) según ancho y alto.
+	 * @return La imagen y su escala respecto al original, o null si ningún lector la reconoce.
+	 * @throws IOException Si hay un error de lectura.
+	 */
+	public static ImagenDecodificada leerParaPantalla(Path rutaArchivo, ToDoubleBiFunction<Integer, Integer> escalaPantalla) throws IOException {
+		try (FileChannelImageInputStream iis = new FileChannelImageInputStream(rutaArchivo)) {
+			ImagenDecodificada resultado = conLector(rutaArchivo, iis, reader -> {
+				int anchoOriginal = reader.getWidth(0);
+				int altoOriginal = reader.getHeight(0);
+
+				double escala = Math.max(escalaPantalla.applyAsDouble(anchoOriginal, altoOriginal),
+										 escalaPantalla.applyAsDouble(altoOriginal, anchoOriginal));
+				int factor = (escala > 0 && escala < 1.0) ? Math.max(1, (int) Math.floor(1.0 / escala)) : 1;
+
+				ImageReadParam param = reader.getDefaultReadParam();
+				if (factor > 1) {
+					param.setSourceSubsampling(factor, factor, 0, 0);
+				}
+				BufferedImage imagen = reader.read(0, param);
+				if (imagen == null) {
+					return null;
+				}
+				if (factor > 1) {
+					logger.trace("[ImageDecoder] {} leída a {}x{} (submuestreo {}) para pantalla.", rutaArchivo.getFileName(), imagen.getWidth(), imagen.getHeight(), factor);
+				}
+				return new ImagenDecodificada(imagen, (double) anchoOriginal / imagen.getWidth());
+			});
+			compartirCabecera(rutaArchivo, iis, resultado != null);
+			return resultado;
+		}
+	} // --- Fin del método leerParaPantalla ---
+
+
+	/**
+	 * Lee sólo la miniatura embebida (EXIF/JFIF) del archivo, sin decodificar la imagen
+	 * principal. Sirve como vista previa inmediata: aunque sea pequeña, cuesta poco más
+	 * que leer la cabecera.
+	 *
+	 * @param rutaArchivo Ruta de la imagen.
+	 * @return La miniatura, o null si no tiene o su proporción no coincide con la de la imagen.
+	 * @throws IOException Si hay un error de lectura.
+	 */
+	public static BufferedImage leerMiniaturaEmbebida(Path rutaArchivo) throws IOException {
+		try (FileChannelImageInputStream iis = new FileChannelImageInputStream(rutaArchivo)) {
+			BufferedImage miniatura = conLector(rutaArchivo, iis,
+					reader -> leerMiniaturaEmbebida(reader, reader.getWidth(0), reader.getHeight(0), 1));
+			compartirCabecera(rutaArchivo, iis, miniatura != null);
+			return miniatura;
+		}
+	} // --- Fin del método leerMiniaturaEmbebida ---
+
+
+	/**
+	 * Pasa a {@link ImageMetadataService} los primeros bytes del archivo, ya leídos por el
+	 * stream, para que la orientación EXIF que se consulta a continuación no obligue a
+	 * abrir y leer el archivo otra vez.
+	 */
+	private static void compartirCabecera(Path rutaArchivo, FileChannelImageInputStream iis, boolean decodificada) {
+		if (decodificada) {
+			ImageMetadataService.getInstance().registrarDesdeCabecera(rutaArchivo, iis.getCabecera(), iis.getLongitudCabecera());
+		}
+	} // --- Fin del método compartirCabecera ---
+
+
+	/**
+	 * Ejecuta una lectura con el lector adecuado para el stream.
+	 *
+	 * El lector sale de la reserva del hilo ({@link ImageReaderPool}) para el proveedor que
+	 * indica {@link ImageFormatDetector}, sin recorrer la lista de proveedores de ImageIO.
+	 * Sólo si no se reconoce el formato, o ese lector falla, se pregunta a ImageIO por los
+	 * demás, y si uno de ellos falla se prueba el siguiente. Para poder reintentar, ningún
+	 * intento descarta lo ya leído del stream (con un archivo eso no cuesta memoria).
+	 *
+	 * @return El resultado de la lectura, o null si ningún lector reconoce el stream.
+	 * @throws IOException El error del primer lector que falló, si todos los que reconocen el stream fallan.
+	 */
+	private static <T> T conLector(Path rutaArchivo, ImageInputStream iis, Lectura<T> lectura) throws IOException {
+		ImageReaderSpi preferido = ImageFormatDetector.getInstance().proveedorPreferido(rutaArchivo, iis);
+		IOException primerError = null;
+		if (preferido != null) {
+			ImageReader reader = ImageReaderPool.tomar(preferido);
+			boolean correcta = false;
+			try {
+				reader.setInput(iis, false, true);
+				T resultado = lectura.leer(reader);
+				correcta = true;
+				return resultado;
+			} catch (IOException | RuntimeException e) {
+				primerError = (e instanceof IOException io) ? io : new IOException(e.getMessage(), e);
+				logger.debug("[ImageDecoder] El lector {} no pudo leer {}: {}. Probando el resto.", preferido.getClass().getSimpleName(),
+						(rutaArchivo != null) ? rutaArchivo.getFileName() : "stream", e.getMessage());
+				iis.seek(0);
+			} finally {
+				ImageReaderPool.devolver(reader, correcta);
+			}
+		}
+
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+		while (readers.hasNext()) {
+			ImageReader reader = readers.next();
+			if (preferido != null && preferido.equals(reader.getOriginatingProvider())) {
+				reader.dispose();
+				continue; // Ya ha fallado.
+			}
+			boolean correcta = false;
+			try {
+				reader.setInput(iis, false, true);
+				T resultado = lectura.leer(reader);
+				correcta = true;
+				return resultado;
+			} catch (IOException | RuntimeException e) {
+				if (primerError == null) {
+					primerError = (e instanceof IOException io) ? io : new IOException(e.getMessage(), e);
+				}
+				logger.debug("[ImageDecoder] El lector {} no pudo leer {}: {}. Probando el siguiente.", reader.getClass().getSimpleName(),
+						(rutaArchivo != null) ? rutaArchivo.getFileName() : "stream", e.getMessage());
+				iis.seek(0);
+			} finally {
+				ImageReaderPool.devolver(reader, correcta);
+			}
+		}
+		if (primerError != null) {
+			throw primerError; // Todos los lectores que reconocen el stream han fallado: el primer error es el más relevante.
+		}
+		return null;
+	} // --- Fin del método conLector ---
+
+
+	/** Operación sobre un lector ya asociado al stream. */
+	@FunctionalInterface
+	private interface Lectura<T> {
+		T leer(ImageReader reader) throws IOException;
+	}
+
+
+	/**
+	 * Calcula el mayor factor de submuestreo entero que mantiene el lado corto de la
+	 * imagen por encima del lado objetivo.
+	 */
+	static int calcularFactorSubmuestreo(int anchoOriginal, int altoOriginal, int ladoObjetivo) {
+		int ladoCorto = Math.min(anchoOriginal, altoOriginal);
+		if (ladoCorto <= 0 || ladoObjetivo <= 0) {
+			return 1;
+		}
+		return Math.max(1, ladoCorto / ladoObjetivo);
+	} // --- Fin del método calcularFactorSubmuestreo ---
+
+
+	/**
+	 * Devuelve la miniatura embebida si existe, cubre el lado objetivo y conserva la
+	 * proporción de la imagen (algunas cámaras guardan miniaturas 4:3 con bandas negras).
+	 */
+	private static BufferedImage leerMiniaturaEmbebida(ImageReader reader, int anchoOriginal, int altoOriginal, int ladoObjetivo) {
+		try {
+			if (!reader.readerSupportsThumbnails() || !reader.hasThumbnails(0)) {
+				return null;
+			}
+			int anchoMini = reader.getThumbnailWidth(0, 0);
+			int altoMini = reader.getThumbnailHeight(0, 0);
+			if (Math.min(anchoMini, altoMini) < ladoObjetivo) {
+				return null;
+			}
+			double proporcionOriginal = (double) anchoOriginal / Math.max(1, altoOriginal);
+			double proporcionMini = (double) anchoMini / Math.max(1, altoMini);
+			if (Math.abs(proporcionOriginal - proporcionMini) / proporcionOriginal > TOLERANCIA_PROPORCION) {
+				return null;
+			}
+			return reader.readThumbnail(0, 0);
+		} catch (IOException | RuntimeException e) {
+			// Una miniatura embebida corrupta no es un error: simplemente se ignora.
+			logger.trace("[ImageDecoder] Miniatura embebida no utilizable: {}", e.getMessage());
+			return null;
+		}
+	} // --- Fin del método leerMiniaturaEmbebida ---
+
+} // --- FIN de la clase ImageDecoder ---
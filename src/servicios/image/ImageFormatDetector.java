@@ -0,0 +1,338 @@
+package servicios.image;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Detecta el formato de un archivo de imagen por sus primeros bytes ("números mágicos")
+ * en lugar de por la extensión.
+ *
+ * Es opcional (comportamiento.carpeta.deteccion_por_contenido.activada, desactivada por
+ * defecto) y sólo se aplica a candidatos: archivos con extensión de imagen, para descartar
+ * los mal etiquetados (un .jpg que en realidad es un HTML, una descarga a medias
+ * vacía...), y archivos sin extensión, para aceptar las imágenes válidas. El resto de
+ * archivos de la carpeta no se abre. El veredicto se guarda por ruta, validado por tamaño y
+ * fecha, junto con el {@link ImageReaderSpi} que le corresponde; {@link ImageDecoder} lo
+ * usa después para elegir el lector directamente sin que ImageIO pruebe todos los
+ * proveedores registrados.
+ *
+ * TGA no tiene cabecera identificable, así que para él se sigue usando la extensión.
+ */
+public final class ImageFormatDetector {
+
+	private static final Logger logger = LoggerFactory.getLogger(ImageFormatDetector.class);
+
+	/** Bytes de cabecera que se leen de cada archivo. BMP necesita 18 (tamaño de la cabecera DIB). */
+	private static final int BYTES_CABECERA = 32;
+
+	/**
+	 * Extensiones de formatos RAW de cámara. Casi todos son contenedores TIFF y empiezan
+	 * por la misma firma, pero los lectores TIFF no los abren bien (o sólo sacan la
+	 * miniatura), así que no se aceptan como TIFF.
+	 */
+	private static final Set<String> EXTENSIONES_RAW = Set.of(
+			"cr2", "crw", "nef", "nrw", "arw", "sr2", "srf", "dng", "orf", "rw2", "raf", "pef",
+			"srw", "3fr", "erf", "kdc", "mrw", "x3f", "iiq", "rwl");
+
+	/** Extensiones que la aplicación lista como imágenes. */
+	private static final Set<String> EXTENSIONES_IMAGEN = Set.of(
+			"jpg", "jpeg", "png", "gif", "bmp", "tiff", "psd", "webp", "tga", "pcx");
+
+	/** Tamaños válidos de la cabecera DIB de un BMP (CORE, INFO, V2, V3, OS/2 v2, V4, V5). */
+	private static final Set<Integer> TAMANOS_CABECERA_DIB = Set.of(12, 40, 52, 56, 64, 108, 124);
+
+	private static final int MAX_ENTRADAS = 50_000;
+
+	private static final ImageFormatDetector INSTANCIA = new ImageFormatDetector();
+
+	/**
+	 * Veredicto para un archivo. 'formato' y 'proveedor' son null si no es una imagen.
+	 */
+	private record Veredicto(String formato, ImageReaderSpi proveedor, long tamano, long fechaModificacion) {}
+
+	private final Cache<Path, Veredicto> veredictos;
+
+	// Proveedor preferido por ImageIO para cada formato (el mismo que elegiría ImageIO.read).
+	private final Map<String, Optional<ImageReaderSpi>> proveedoresPorFormato = new ConcurrentHashMap<>();
+
+
+	private ImageFormatDetector() {
+		this.veredictos = Caffeine.newBuilder()
+				.maximumSize(MAX_ENTRADAS)
+				.build();
+	} // --- Fin del constructor ImageFormatDetector ---
+
+
+	public static ImageFormatDetector getInstance() {
+		return INSTANCIA;
+	} // --- Fin del método getInstance ---
+
+
+	/**
+	 * Indica si el archivo es una imagen que la aplicación puede leer, mirando su cabecera.
+	 *
+	 * @param ruta Archivo a comprobar.
+	 * @param atributos Atributos ya leídos (los del recorrido de la carpeta), o null.
+	 * @return true si la cabecera corresponde a un formato con lector disponible.
+	 */
+	public boolean esImagen(Path ruta, BasicFileAttributes atributos) {
+		Veredicto veredicto = obtenerVeredicto(ruta, atributos);
+		return veredicto != null && veredicto.proveedor() != null;
+	} // --- Fin del método esImagen ---
+
+
+	/**
+	 * Criterio común para decidir si un archivo se trata como imagen (lista del visor y
+	 * pregeneración de miniaturas). La extensión es el primer filtro: así no se abre ningún
+	 * archivo que no sea candidato (vídeos, PDF, comprimidos, sidecars...), lo que en una
+	 * unidad de red costaría una apertura por archivo. Con la detección por contenido
+	 * activada, los candidatos se confirman por su cabecera y los archivos sin extensión se
+	 * examinan. No comprueba si el archivo es normal u oculto; eso lo hace quien llama.
+	 *
+	 * @param ruta Archivo a comprobar.
+	 * @param atributos Atributos ya leídos (los del recorrido de la carpeta), o null.
+	 * @param porContenido Valor de comportamiento.carpeta.deteccion_por_contenido.activada.
+	 * @return true si el archivo debe tratarse como imagen.
+	 */
+	public boolean esImagenSoportada(Path ruta, BasicFileAttributes atributos, boolean porContenido) {
+		Path nombre = (ruta != null) ? ruta.getFileName() : null;
+		if (nombre == null) {
+			return false;
+		}
+		String nombreArchivo = nombre.toString();
+		int ultimoPunto = nombreArchivo.lastIndexOf('.');
+		if (ultimoPunto <= 0 || ultimoPunto == nombreArchivo.length() - 1) {
+			boolean sinExtension = ultimoPunto < 0;
+			return porContenido && sinExtension && esImagen(ruta, atributos);
+		}
+		String extension = nombreArchivo.substring(ultimoPunto + 1).toLowerCase(Locale.ROOT);
+		return EXTENSIONES_IMAGEN.contains(extension) && (!porContenido || esImagen(ruta, atributos));
+	} // --- Fin del método esImagenSoportada ---
+
+
+	/**
+	 * Devuelve el proveedor de lector ya resuelto para el archivo, si se detectó durante
+	 * el escaneo y el archivo no ha cambiado de tamaño. No lee el archivo.
+	 *
+	 * @return El proveedor, o null si no se conoce.
+	 */
+	public ImageReaderSpi proveedorConocido(Path ruta, long tamano) {
+		Veredicto veredicto = (ruta != null) ? veredictos.getIfPresent(ruta) : null;
+		if (veredicto == null || veredicto.tamano() != tamano) {
+			return null;
+		}
+		return veredicto.proveedor();
+	} // --- Fin del método proveedorConocido ---
+
+
+	/**
+	 * Elige el proveedor de lector para un stream sin preguntar a todos los registrados:
+	 * primero el detectado en el escaneo (si sigue reconociendo el contenido) y, si no, el
+	 * que corresponde a la cabecera del propio stream. La posición del stream no cambia.
+	 *
+	 * @param ruta Archivo de origen, o null si el stream no viene de un archivo.
+	 * @return El proveedor, o null si hay que recurrir a la búsqueda normal de ImageIO.
+	 */
+	public ImageReaderSpi proveedorPreferido(Path ruta, ImageInputStream iis) throws IOException {
+		ImageReaderSpi conocido = proveedorConocido(ruta, iis.length());
+		if (conocido != null && conocido.canDecodeInput(iis)) {
+			return conocido;
+		}
+		byte[] cabecera = new byte[BYTES_CABECERA];
+		int leidos = 0;
+		iis.mark();
+		try {
+			int n;
+			while (leidos < cabecera.length && (n = iis.read(cabecera, leidos, cabecera.length - leidos)) > 0) {
+				leidos += n;
+			}
+		} finally {
+			iis.reset();
+		}
+		String extension = (ruta != null) ? extensionDe(ruta) : "";
+		String formato = detectarFormato(Arrays.copyOf(cabecera, leidos), extension, iis.length());
+		return (formato != null) ? proveedorPara(formato) : null;
+	} // --- Fin del método proveedorPreferido ---
+
+
+	public void invalidar(Path ruta) {
+		if (ruta != null) {
+			veredictos.invalidate(ruta);
+		}
+	} // --- Fin del método invalidar ---
+
+
+	// --- MÉTODOS PRIVADOS ---
+
+	private Veredicto obtenerVeredicto(Path ruta, BasicFileAttributes atributos) {
+		if (ruta == null) {
+			return null;
+		}
+		try {
+			BasicFileAttributes attrs = (atributos != null) ? atributos : Files.readAttributes(ruta, BasicFileAttributes.class);
+			long tamano = attrs.size();
+			long fecha = attrs.lastModifiedTime().toMillis();
+
+			Veredicto enCache = veredictos.getIfPresent(ruta);
+			if (enCache != null && enCache.tamano() == tamano && enCache.fechaModificacion() == fecha) {
+				return enCache;
+			}
+
+			String extension = extensionDe(ruta);
+			String formato = detectarFormato(leerCabecera(ruta), extension, tamano);
+			if (formato == null && "tga".equals(extension)) {
+				formato = "tga";
+			}
+			Veredicto veredicto = new Veredicto(formato, (formato != null) ? proveedorPara(formato) : null, tamano, fecha);
+			veredictos.put(ruta, veredicto);
+			if (veredicto.proveedor() == null && esExtensionDeImagen(ruta)) {
+				logger.debug("[ImageFormatDetector] {} tiene extensión de imagen pero su contenido no lo es. Se descarta.", ruta.getFileName());
+			}
+			return veredicto;
+		} catch (IOException | SecurityException e) {
+			logger.trace("[ImageFormatDetector] No se pudo leer la cabecera de {}: {}", ruta, e.getMessage());
+			return null;
+		}
+	} // --- Fin del método obtenerVeredicto ---
+
+
+	private static byte[] leerCabecera(Path ruta) throws IOException {
+		try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BYTES_CABECERA);
+			while (buffer.hasRemaining() && canal.read(buffer) > 0) {
+				// Seguir hasta llenar la cabecera o llegar al final del archivo.
+			}
+			byte[] cabecera = new byte[buffer.position()];
+			buffer.flip();
+			buffer.get(cabecera);
+			return cabecera;
+		}
+	} // --- Fin del método leerCabecera ---
+
+
+	/**
+	 * Identifica el formato por la cabecera. Las firmas cortas o poco específicas se
+	 * contrastan con la extensión y el tamaño del archivo para no confundir otros
+	 * archivos con imágenes.
+	 *
+	 * @param c Primeros bytes del archivo.
+	 * @param extension Extensión en minúsculas ("" si no tiene o no se conoce).
+	 * @param tamano Tamaño del archivo en bytes, o negativo si no se conoce.
+	 * @return El nombre de formato de ImageIO, o null si no se reconoce.
+	 */
+	static String detectarFormato(byte[] c, String extension, long tamano) {
+		if (empiezaPor(c, 0xFF, 0xD8, 0xFF)) {
+			return "jpeg";
+		}
+		if (empiezaPor(c, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+			return "png";
+		}
+		if (empiezaPor(c, 'G', 'I', 'F', '8') && c.length >= 6 && (c[4] == '7' || c[4] == '9') && c[5] == 'a') {
+			return "gif";
+		}
+		if (empiezaPor(c, 'I', 'I', 0x2A, 0x00) || empiezaPor(c, 'M', 'M', 0x00, 0x2A)) {
+			// Los RAW comparten la firma TIFF. CR2 se reconoce además por su marca "CR" en el byte 8.
+			boolean esCr2 = c.length >= 10 && c[8] == 'C' && c[9] == 'R';
+			return (esCr2 || EXTENSIONES_RAW.contains(extension)) ? null : "tiff";
+		}
+		if (empiezaPor(c, '8', 'B', 'P', 'S')) {
+			return "psd";
+		}
+		if (empiezaPor(c, 'R', 'I', 'F', 'F') && c.length >= 12 && c[8] == 'W' && c[9] == 'E' && c[10] == 'B' && c[11] == 'P') {
+			return "webp";
+		}
+		// BMP: "BM", tamaño del archivo en los bytes 2-5 y tamaño de cabecera DIB conocido en 14-17.
+		if (empiezaPor(c, 'B', 'M') && c.length >= 18
+				&& TAMANOS_CABECERA_DIB.contains(enteroLittleEndian(c, 14))
+				&& (tamano < 0 || (enteroLittleEndian(c, 2) & 0xFFFFFFFFL) == tamano)) {
+			return "bmp";
+		}
+		// PCX: fabricante 0x0A, versión 0-5, codificación 0 ó 1, bits por píxel 1/2/4/8. La
+		// firma es tan corta que sólo se acepta con extensión .pcx.
+		if ("pcx".equals(extension) && c.length >= 4 && (c[0] & 0xFF) == 0x0A && (c[1] & 0xFF) <= 5 && (c[2] & 0xFF) <= 1
+				&& ((c[3] & 0xFF) == 1 || (c[3] & 0xFF) == 2 || (c[3] & 0xFF) == 4 || (c[3] & 0xFF) == 8)) {
+			return "pcx";
+		}
+		return null;
+	} // --- Fin del método detectarFormato ---
+
+
+	private static boolean empiezaPor(byte[] datos, int... prefijo) {
+		if (datos.length < prefijo.length) {
+			return false;
+		}
+		for (int i = 0; i < prefijo.length; i++) {
+			if ((datos[i] & 0xFF) != prefijo[i]) {
+				return false;
+			}
+		}
+		return true;
+	} // --- Fin del método empiezaPor ---
+
+
+	private static int enteroLittleEndian(byte[] datos, int desde) {
+		return (datos[desde] & 0xFF) | (datos[desde + 1] & 0xFF) << 8
+				| (datos[desde + 2] & 0xFF) << 16 | (datos[desde + 3] & 0xFF) << 24;
+	} // --- Fin del método enteroLittleEndian ---
+
+
+	private ImageReaderSpi proveedorPara(String formato) {
+		return proveedoresPorFormato.computeIfAbsent(formato, f -> {
+			Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(f);
+			if (!readers.hasNext()) {
+				logger.debug("[ImageFormatDetector] No hay lector de ImageIO para el formato {}.", f);
+				return Optional.empty();
+			}
+			ImageReader reader = readers.next();
+			ImageReaderSpi proveedor = reader.getOriginatingProvider();
+			reader.dispose();
+			return Optional.ofNullable(proveedor);
+		}).orElse(null);
+	} // --- Fin del método proveedorPara ---
+
+
+	private static String extensionDe(Path ruta) {
+		Path nombre = ruta.getFileName();
+		if (nombre == null) {
+			return "";
+		}
+		String texto = nombre.toString();
+		int punto = texto.lastIndexOf('.');
+		return (punto > 0) ? texto.substring(punto + 1).toLowerCase(Locale.ROOT) : "";
+	} // --- Fin del método extensionDe ---
+
+
+	private static boolean esExtensionDeImagen(Path ruta) {
+		switch (extensionDe(ruta)) {
+			case "jpg": case "jpeg": case "png": case "gif": case "bmp":
+			case "tiff": case "psd": case "webp": case "tga": case "pcx":
+				return true;
+			default:
+				return false;
+		}
+	} // --- Fin del método esExtensionDeImagen ---
+
+} // --- FIN de la clase ImageFormatDetector ---
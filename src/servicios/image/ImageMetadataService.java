@@ -0,0 +1,213 @@
+package servicios.image;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.MetadataException;
+import com.drew.metadata.exif.ExifIFD0Directory;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Caché de los metadatos de imagen que usa la aplicación (orientación EXIF, fecha de
+ * captura, cámara, tamaño y fecha del archivo).
+ *
+ * Antes cada corrección de orientación volvía a abrir y analizar el archivo con
+ * metadata-extractor: en la carga principal, en cada miniatura, en la precarga... Ahora
+ * el archivo se analiza una sola vez y el resultado, que es muy pequeño, se guarda
+ * indexado por ruta. Cada consulta compara tamaño y fecha de modificación con los del
+ * disco (una única llamada a readAttributes) y, si el archivo ha cambiado, se vuelve a leer.
+ */
+public final class ImageMetadataService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ImageMetadataService.class);
+
+	/** Máximo de entradas en memoria. Cada una ocupa unas decenas de bytes. */
+	private static final int MAX_ENTRADAS = 20_000;
+
+	private static final ImageMetadataService INSTANCIA = new ImageMetadataService();
+
+	/**
+	 * Metadatos de un archivo de imagen.
+	 *
+	 * @param orientacion Orientación EXIF (1..8). 1 si no tiene o no se pudo leer.
+	 * @param fechaCaptura Fecha de captura EXIF, o null.
+	 * @param camara Marca y modelo de la cámara, o null.
+	 * @param tamanoBytes Tamaño del archivo.
+	 * @param fechaModificacion Fecha de modificación del archivo (ms).
+	 */
+	public record MetadatosImagen(int orientacion, Date fechaCaptura, String camara, long tamanoBytes, long fechaModificacion) {}
+
+	private final Cache<Path, MetadatosImagen> cache;
+
+
+	private ImageMetadataService() {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(MAX_ENTRADAS)
+				.build();
+	} // --- Fin del constructor ImageMetadataService ---
+
+
+	public static ImageMetadataService getInstance() {
+		return INSTANCIA;
+	} // --- Fin del método getInstance ---
+
+
+	/**
+	 * Devuelve los metadatos del archivo, leyéndolos sólo si no están en caché o el archivo
+	 * ha cambiado desde la última lectura.
+	 *
+	 * @param ruta Ruta del archivo de imagen.
+	 * @return Los metadatos, o null si el archivo no existe o no se puede acceder a él.
+	 */
+	public MetadatosImagen obtener(Path ruta) {
+		if (ruta == null) {
+			return null;
+		}
+		BasicFileAttributes atributos;
+		try {
+			atributos = Files.readAttributes(ruta, BasicFileAttributes.class);
+		} catch (IOException e) {
+			cache.invalidate(ruta);
+			return null;
+		}
+		long tamano = atributos.size();
+		long fecha = atributos.lastModifiedTime().toMillis();
+
+		MetadatosImagen enCache = cache.getIfPresent(ruta);
+		if (enCache != null && enCache.tamanoBytes() == tamano && enCache.fechaModificacion() == fecha) {
+			return enCache;
+		}
+
+		MetadatosImagen leidos = leerMetadatos(ruta, tamano, fecha);
+		cache.put(ruta, leidos);
+		return leidos;
+	} // --- Fin del método obtener ---
+
+
+	/**
+	 * Atajo para la orientación EXIF del archivo (1 si no tiene o no se puede leer).
+	 */
+	public int obtenerOrientacion(Path ruta) {
+		MetadatosImagen metadatos = obtener(ruta);
+		return (metadatos != null) ? metadatos.orientacion() : 1;
+	} // --- Fin del método obtenerOrientacion ---
+
+
+	/**
+	 * Olvida los metadatos de un archivo (por ejemplo, tras borrarlo o renombrarlo).
+	 */
+	public void invalidar(Path ruta) {
+		if (ruta != null) {
+			cache.invalidate(ruta);
+		}
+	} // --- Fin del método invalidar ---
+
+
+	/**
+	 * Registra los metadatos a partir de los primeros bytes del archivo que ya ha leído otro
+	 * (el decodificador, al abrirlo), para que la consulta posterior de la orientación no
+	 * vuelva a abrir el archivo. Sólo se usa si los bytes contienen el archivo entero o si
+	 * es un JPEG, cuyos segmentos EXIF van al principio; si el análisis no termina dentro
+	 * de esos bytes no se registra nada y la lectura normal se hará cuando se pida.
+	 *
+	 * @param ruta Archivo de origen.
+	 * @param cabecera Primeros bytes del archivo.
+	 * @param longitud Bytes válidos en 'cabecera'.
+	 */
+	public void registrarDesdeCabecera(Path ruta, byte[] cabecera, int longitud) {
+		if (ruta == null || cabecera == null || longitud <= 0) {
+			return;
+		}
+		try {
+			BasicFileAttributes atributos = Files.readAttributes(ruta, BasicFileAttributes.class);
+			long tamano = atributos.size();
+			long fecha = atributos.lastModifiedTime().toMillis();
+
+			MetadatosImagen enCache = cache.getIfPresent(ruta);
+			if (enCache != null && enCache.tamanoBytes() == tamano && enCache.fechaModificacion() == fecha) {
+				return;
+			}
+			boolean esJpeg = longitud >= 3 && (cabecera[0] & 0xFF) == 0xFF && (cabecera[1] & 0xFF) == 0xD8 && (cabecera[2] & 0xFF) == 0xFF;
+			if (longitud < tamano && !esJpeg) {
+				return;
+			}
+			Metadata metadata = ImageMetadataReader.readMetadata(new ByteArrayInputStream(cabecera, 0, longitud));
+			cache.put(ruta, extraerMetadatos(metadata, tamano, fecha));
+		} catch (Exception e) {
+			// Segmentos que no caben en la cabecera, archivo sin metadatos legibles...: se leerá aparte.
+			logger.trace("[ImageMetadataService] Cabecera insuficiente para {}: {}", ruta.getFileName(), e.getMessage());
+		}
+	} // --- Fin del método registrarDesdeCabecera ---
+
+
+	public void limpiar() {
+		cache.invalidateAll();
+	} // --- Fin del método limpiar ---
+
+
+	// --- MÉTODOS PRIVADOS ---
+
+	/**
+	 * Lectura única del archivo con metadata-extractor. Todo lo que la aplicación
+	 * necesita se extrae en esta pasada; un archivo sin EXIF no es un error.
+	 */
+	private static MetadatosImagen leerMetadatos(Path ruta, long tamano, long fecha) {
+		try {
+			return extraerMetadatos(ImageMetadataReader.readMetadata(ruta.toFile()), tamano, fecha);
+		} catch (Exception e) {
+			logger.trace("[ImageMetadataService] Sin metadatos legibles para {}: {}", ruta.getFileName(), e.getMessage());
+			return new MetadatosImagen(1, null, null, tamano, fecha);
+		}
+	} // --- Fin del método leerMetadatos ---
+
+
+	/**
+	 * Extrae de los metadatos ya analizados todo lo que la aplicación necesita.
+	 */
+	private static MetadatosImagen extraerMetadatos(Metadata metadata, long tamano, long fecha) throws MetadataException {
+		int orientacion = 1;
+		Date fechaCaptura = null;
+		String camara = null;
+
+		ExifIFD0Directory ifd0 = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
+		if (ifd0 != null) {
+			if (ifd0.containsTag(ExifIFD0Directory.TAG_ORIENTATION)) {
+				int valor = ifd0.getInt(ExifIFD0Directory.TAG_ORIENTATION);
+				orientacion = (valor >= 1 && valor <= 8) ? valor : 1;
+			}
+			camara = componerCamara(ifd0.getString(ExifIFD0Directory.TAG_MAKE), ifd0.getString(ExifIFD0Directory.TAG_MODEL));
+		}
+
+		ExifSubIFDDirectory subIfd = metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
+		if (subIfd != null) {
+			fechaCaptura = subIfd.getDateOriginal();
+		}
+		return new MetadatosImagen(orientacion, fechaCaptura, camara, tamano, fecha);
+	} // --- Fin del método extraerMetadatos ---
+
+
+	private static String componerCamara(String marca, String modelo) {
+		String m = (marca != null) ? marca.trim() : "";
+		String mo = (modelo != null) ? modelo.trim() : "";
+		if (m.isEmpty() && mo.isEmpty()) {
+			return null;
+		}
+		// Muchas cámaras repiten la marca al principio del modelo ("Canon" / "Canon EOS 80D").
+		if (!m.isEmpty() && mo.toLowerCase().startsWith(m.toLowerCase())) {
+			return mo;
+		}
+		return (m + " " + mo).trim();
+	} // --- Fin del método componerCamara ---
+
+} // --- FIN de la clase ImageMetadataService ---
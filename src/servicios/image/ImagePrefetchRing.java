@@ -0,0 +1,417 @@
+package servicios.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleBiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import servicios.image.ImageDecoder.ImagenDecodificada;
+import utils.ImageUtils;
+
+/**
+ * Anillo de precarga de imágenes principales ya decodificadas (y orientadas).
+ *
+ * Cada vez que cambia la selección, el anillo se recentra sobre la nueva posición:
+ * descarta lo que ha quedado fuera de la ventana y decodifica en segundo plano las
+ * N siguientes y M anteriores en orden de navegación (primero la siguiente, luego la
+ * anterior, luego la segunda siguiente...). Así avanzar o retroceder con el teclado o
+ * con el carrusel es un simple intercambio de imagen en lugar de una lectura completa.
+ *
+ * Las imágenes se decodifican con la misma política que la carga normal: a resolución de
+ * pantalla en los modos que ajustan al panel y completas en los demás. Cada entrada guarda
+ * su escala, y sólo se sirve si cubre la que se pide.
+ *
+ * La memoria total está limitada por un presupuesto en bytes. Para hacer sitio se liberan
+ * las entradas menos prioritarias de la ventana; si aun así la imagen no cabe, no se guarda
+ * y la precarga se detiene ahí.
+ *
+ * La fecha de modificación se lee al decodificar, en el hilo de fondo. {@link #obtener} no
+ * toca el disco (se llama desde el EDT); quien la use debe comprobar después, fuera del
+ * EDT, que el archivo no ha cambiado con {@link #validar}.
+ */
+public class ImagePrefetchRing {
+
+	private static final Logger logger = LoggerFactory.getLogger(ImagePrefetchRing.class);
+
+	private final int siguientes;
+	private final int anteriores;
+	private final long presupuestoBytes;
+
+	private final Map<Path, Entrada> entradas = new LinkedHashMap<>(); // Protegido por 'this'
+	private long bytesOcupados = 0;                                    // Protegido por 'this'
+	private List<Path> ventanaActual = List.of();                      // Por prioridad. Protegido por 'this'
+
+	private final ExecutorService ejecutor;
+	private final AtomicLong generacion = new AtomicLong();
+	private Future<?> tareaActual;
+
+	// Imagen que el hilo de precarga está decodificando en este momento (protegido por 'this').
+	private Path rutaEnCurso;
+	private CompletableFuture<ImagenDecodificada> decodificacionEnCurso;
+
+	/**
+	 * @param escala Píxeles del original por cada píxel de la imagen (1.0 si es completa).
+	 */
+	private record Entrada(BufferedImage imagen, double escala, long fechaModificacion, long bytes) {}
+
+
+	/**
+	 * @param siguientes Número de imágenes a precargar por delante de la seleccionada.
+	 * @param anteriores Número de imágenes a precargar por detrás.
+	 * @param presupuestoBytes Memoria máxima (estimada) que puede ocupar el anillo.
+	 */
+	public ImagePrefetchRing(int siguientes, int anteriores, long presupuestoBytes) {
+		this.siguientes = Math.max(0, siguientes);
+		this.anteriores = Math.max(0, anteriores);
+		this.presupuestoBytes = Math.max(0, presupuestoBytes);
+		this.ejecutor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "ImagePrefetchThread");
+			t.setDaemon(true);
+			t.setPriority(Thread.NORM_PRIORITY - 1);
+			return t;
+		});
+		logger.debug("[ImagePrefetchRing] Inicializado. Siguientes: {}, anteriores: {}, presupuesto: {} MB", this.siguientes, this.anteriores, this.presupuestoBytes / (1024 * 1024));
+	} // --- Fin del constructor ImagePrefetchRing ---
+
+
+	public int getSiguientes() {
+		return siguientes;
+	} // --- Fin del método getSiguientes ---
+
+
+	public int getAnteriores() {
+		return anteriores;
+	} // --- Fin del método getAnteriores ---
+
+
+	/**
+	 * Devuelve la imagen precargada para la ruta si está lista y tiene resolución suficiente.
+	 * No bloquea ni lee del disco: la fecha del archivo se comprueba aparte con {@link #validar}.
+	 *
+	 * @param escalaPantalla Escala de pantalla que se va a aplicar, o null si hace falta la imagen completa.
+	 */
+	public synchronized ImagenDecodificada obtener(Path ruta, ToDoubleBiFunction<Integer, Integer> escalaPantalla) {
+		Entrada entrada = (ruta != null) ? entradas.get(ruta) : null;
+		if (entrada == null || !cubre(entrada.imagen(), entrada.escala(), escalaPantalla)) {
+			return null;
+		}
+		return new ImagenDecodificada(entrada.imagen(), entrada.escala());
+	} // --- Fin del método obtener ---
+
+
+	/**
+	 * Como {@link #obtener}, pero si el hilo de precarga está decodificando justo esa ruta,
+	 * espera a que termine en lugar de lanzar una segunda lectura. Debe llamarse desde un
+	 * hilo de fondo; la espera responde a interrupciones.
+	 *
+	 * @return La imagen, o null si no está precargada ni en curso, o no tiene resolución suficiente.
+	 */
+	public ImagenDecodificada obtenerOEsperar(Path ruta, ToDoubleBiFunction<Integer, Integer> escalaPantalla) throws InterruptedException {
+		CompletableFuture<ImagenDecodificada> enCurso;
+		synchronized (this) {
+			ImagenDecodificada lista = obtener(ruta, escalaPantalla);
+			if (lista != null) {
+				return lista;
+			}
+			enCurso = (ruta != null && ruta.equals(rutaEnCurso)) ? decodificacionEnCurso : null;
+		}
+		if (enCurso == null) {
+			return null;
+		}
+		try {
+			ImagenDecodificada decodificada = enCurso.get();
+			return (decodificada != null && cubre(decodificada.imagen(), decodificada.escala(), escalaPantalla)) ? decodificada : null;
+		} catch (ExecutionException | CancellationException e) {
+			return null;
+		}
+	} // --- Fin del método obtenerOEsperar ---
+
+
+	/**
+	 * Comprueba que el archivo de una entrada no ha cambiado desde que se decodificó y, si
+	 * ha cambiado, la descarta. Lee del disco: no debe llamarse desde el EDT.
+	 *
+	 * @return false si la entrada se ha descartado por estar desfasada.
+	 */
+	public boolean validar(Path ruta) {
+		long fecha = leerFechaModificacion(ruta);
+		synchronized (this) {
+			Entrada entrada = entradas.get(ruta);
+			if (entrada != null && entrada.fechaModificacion() != fecha) {
+				quitar(ruta);
+				return false;
+			}
+			return true;
+		}
+	} // --- Fin del método validar ---
+
+
+	/**
+	 * Registra una imagen decodificada fuera del anillo (la carga normal de la imagen
+	 * principal), para que volver a ella sea inmediato mientras siga dentro de la ventana.
+	 * Sustituye a la entrada existente si ésta tiene menos resolución. Respeta el
+	 * presupuesto igual que la precarga. Lee la fecha del archivo: sólo desde hilos de fondo.
+	 *
+	 * @param escala Escala de decodificación de la imagen (1.0 si es completa).
+	 */
+	public void registrar(Path ruta, BufferedImage imagen, double escala) {
+		if (ruta == null || imagen == null) {
+			return;
+		}
+		long fecha = leerFechaModificacion(ruta);
+		synchronized (this) {
+			Entrada existente = entradas.get(ruta);
+			if (existente != null && existente.escala() <= escala) {
+				return;
+			}
+			guardarSiCabe(ruta, imagen, escala, fecha);
+		}
+	} // --- Fin del método registrar ---
+
+
+	/**
+	 * Recentra el anillo. La lista debe venir en orden de prioridad: primero la imagen
+	 * seleccionada y después las vecinas alternando siguiente/anterior.
+	 * Lo que no esté en la lista se libera; lo que falte se decodifica en segundo plano.
+	 *
+	 * @param rutasVentana Rutas de la nueva ventana, por orden de prioridad.
+	 * @param escalaPantalla Escala de pantalla del modo de zoom actual, o null para decodificar completas.
+	 */
+	public void recentrar(List<Path> rutasVentana, ToDoubleBiFunction<Integer, Integer> escalaPantalla) {
+		Objects.requireNonNull(rutasVentana, "La lista de rutas no puede ser nula.");
+		final long miGeneracion = generacion.incrementAndGet();
+		final List<Path> ventana = new ArrayList<>(rutasVentana);
+
+		synchronized (this) {
+			ventanaActual = List.copyOf(ventana);
+			Set<Path> enVentana = new HashSet<>(ventana);
+			List<Path> fuera = new ArrayList<>();
+			for (Path p : entradas.keySet()) {
+				if (!enVentana.contains(p)) {
+					fuera.add(p);
+				}
+			}
+			fuera.forEach(this::quitar);
+
+			// La tarea anterior deja de tener sentido, pero no la interrumpimos: si está a mitad
+			// de una decodificación que sigue en la ventana, alguien puede estar esperándola.
+			if (tareaActual != null) {
+				tareaActual.cancel(false);
+			}
+			if (ejecutor.isShutdown()) {
+				return;
+			}
+			tareaActual = ejecutor.submit(() -> precargar(ventana, escalaPantalla, miGeneracion));
+		}
+	} // --- Fin del método recentrar ---
+
+
+	/**
+	 * Libera todas las imágenes precargadas (cambio de carpeta, falta de memoria...).
+	 */
+	public void vaciar() {
+		generacion.incrementAndGet();
+		synchronized (this) {
+			if (tareaActual != null) {
+				tareaActual.cancel(false);
+			}
+			entradas.clear();
+			bytesOcupados = 0;
+			ventanaActual = List.of();
+		}
+	} // --- Fin del método vaciar ---
+
+
+	public void apagar() {
+		vaciar();
+		ejecutor.shutdownNow();
+	} // --- Fin del método apagar ---
+
+
+	// --- MÉTODOS PRIVADOS ---
+
+	private void precargar(Collection<Path> ventana, ToDoubleBiFunction<Integer, Integer> escalaPantalla, long miGeneracion) {
+		for (Path ruta : ventana) {
+			if (generacion.get() != miGeneracion || Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			CompletableFuture<ImagenDecodificada> futuro;
+			synchronized (this) {
+				Entrada existente = entradas.get(ruta);
+				if (existente != null && cubre(existente.imagen(), existente.escala(), escalaPantalla)) {
+					continue;
+				}
+				if (bytesOcupados - bytesDe(menosPrioritarias(ruta)) >= presupuestoBytes) {
+					logger.trace("[ImagePrefetchRing] Presupuesto agotado ({} KB). Precarga detenida.", bytesOcupados / 1024);
+					return;
+				}
+				futuro = new CompletableFuture<>();
+				rutaEnCurso = ruta;
+				decodificacionEnCurso = futuro;
+			}
+
+			ImagenDecodificada decodificada = null;
+			try {
+				long fecha = leerFechaModificacion(ruta);
+				decodificada = decodificar(ruta, escalaPantalla);
+				if (decodificada != null) {
+					synchronized (this) {
+						// Sólo se guarda si sigue siendo útil y cabe en el presupuesto.
+						if (generacion.get() == miGeneracion) {
+							guardarSiCabe(ruta, decodificada.imagen(), decodificada.escala(), fecha);
+						}
+					}
+				}
+			} catch (IOException e) {
+				logger.debug("[ImagePrefetchRing] No se pudo precargar {}: {}", ruta, e.getMessage());
+			} catch (OutOfMemoryError oom) {
+				logger.warn("[ImagePrefetchRing] OutOfMemoryError precargando {}. Se vacía el anillo.", ruta);
+				decodificada = null;
+				vaciar();
+			} finally {
+				synchronized (this) {
+					if (decodificacionEnCurso == futuro) {
+						rutaEnCurso = null;
+						decodificacionEnCurso = null;
+					}
+				}
+				futuro.complete(decodificada);
+			}
+		}
+	} // --- Fin del método precargar ---
+
+
+	/**
+	 * Decodifica (y orienta) la imagen con la misma política que la carga de la imagen principal.
+	 */
+	private static ImagenDecodificada decodificar(Path ruta, ToDoubleBiFunction<Integer, Integer> escalaPantalla) throws IOException {
+		ImagenDecodificada leida;
+		if (escalaPantalla != null) {
+			leida = ImageDecoder.leerParaPantalla(ruta, escalaPantalla);
+		} else {
+			BufferedImage completa = ImageDecoder.leerCompleta(ruta);
+			leida = (completa != null) ? new ImagenDecodificada(completa, 1.0) : null;
+		}
+		if (leida == null) {
+			return null;
+		}
+		return new ImagenDecodificada(ImageUtils.correctImageOrientation(leida.imagen(), ruta), leida.escala());
+	} // --- Fin del método decodificar ---
+
+
+	/**
+	 * Indica si una imagen decodificada a 'escala' tiene resolución suficiente para la escala
+	 * de pantalla pedida. Con escalaPantalla null sólo sirve la imagen completa. La imagen ya
+	 * está orientada, así que se evalúa en ambos sentidos igual que al decodificar.
+	 */
+	private static boolean cubre(BufferedImage imagen, double escala, ToDoubleBiFunction<Integer, Integer> escalaPantalla) {
+		if (escala <= 1.0) {
+			return true;
+		}
+		if (escalaPantalla == null) {
+			return false;
+		}
+		int anchoOriginal = (int) Math.round(imagen.getWidth() * escala);
+		int altoOriginal = (int) Math.round(imagen.getHeight() * escala);
+		double necesaria = Math.max(escalaPantalla.applyAsDouble(anchoOriginal, altoOriginal),
+									escalaPantalla.applyAsDouble(altoOriginal, anchoOriginal));
+		return necesaria * escala <= 1.0 + 1e-6;
+	} // --- Fin del método cubre ---
+
+
+	/**
+	 * Guarda la entrada si cabe en el presupuesto, liberando antes las entradas menos
+	 * prioritarias que ella (las que van detrás en la ventana, o no están en ella).
+	 * Debe llamarse con el monitor tomado.
+	 */
+	private void guardarSiCabe(Path ruta, BufferedImage imagen, double escala, long fechaModificacion) {
+		long bytes = ThumbnailService.estimarBytes(imagen);
+		Entrada anterior = entradas.get(ruta);
+		long disponibles = presupuestoBytes - bytesOcupados + ((anterior != null) ? anterior.bytes() : 0);
+		if (bytes > disponibles) {
+			List<Path> menosPrioritarias = menosPrioritarias(ruta);
+			if (bytes > disponibles + bytesDe(menosPrioritarias)) {
+				logger.trace("[ImagePrefetchRing] {} no cabe en el presupuesto ({} KB). No se guarda.", ruta.getFileName(), bytes / 1024);
+				return;
+			}
+			for (Path otra : menosPrioritarias) {
+				if (bytes <= disponibles) {
+					break;
+				}
+				disponibles += entradas.get(otra).bytes();
+				quitar(otra);
+			}
+		}
+		Entrada sustituida = entradas.put(ruta, new Entrada(imagen, escala, fechaModificacion, bytes));
+		if (sustituida != null) {
+			bytesOcupados -= sustituida.bytes();
+		}
+		bytesOcupados += bytes;
+	} // --- Fin del método guardarSiCabe ---
+
+
+	/**
+	 * Entradas que pueden liberarse para hacer sitio a 'ruta', en el orden en que deben
+	 * liberarse: primero las que no están en la ventana y después desde el final de la
+	 * ventana hacia delante. Debe llamarse con el monitor tomado.
+	 */
+	private List<Path> menosPrioritarias(Path ruta) {
+		int prioridad = ventanaActual.indexOf(ruta);
+		List<Path> resultado = new ArrayList<>();
+		for (Path otra : entradas.keySet()) {
+			int prioridadOtra = ventanaActual.indexOf(otra);
+			if (!otra.equals(ruta) && (prioridadOtra < 0 || (prioridad >= 0 && prioridadOtra > prioridad))) {
+				resultado.add(otra);
+			}
+		}
+		// Comparadas sin signo, las que no están en la ventana (-1) quedan las primeras.
+		resultado.sort((a, b) -> Integer.compareUnsigned(ventanaActual.indexOf(b), ventanaActual.indexOf(a)));
+		return resultado;
+	} // --- Fin del método menosPrioritarias ---
+
+
+	private long bytesDe(List<Path> rutas) {
+		long total = 0;
+		for (Path ruta : rutas) {
+			total += entradas.get(ruta).bytes();
+		}
+		return total;
+	} // --- Fin del método bytesDe ---
+
+
+	private void quitar(Path ruta) {
+		Entrada entrada = entradas.remove(ruta);
+		if (entrada != null) {
+			bytesOcupados -= entrada.bytes();
+		}
+	} // --- Fin del método quitar ---
+
+
+	private static long leerFechaModificacion(Path ruta) {
+		try {
+			return Files.getLastModifiedTime(ruta).toMillis();
+		} catch (IOException e) {
+			return -1L;
+		}
+	} // --- Fin del método leerFechaModificacion ---
+
+} // --- FIN de la clase ImagePrefetchRing ---
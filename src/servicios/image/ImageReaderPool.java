@@ -0,0 +1,65 @@
+package servicios.image;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.imageio.ImageReader;
+import javax.imageio.spi.ImageReaderSpi;
+
+/**
+ * Reserva de ImageReader ya creados, uno por proveedor y por hilo.
+ *
+ * Crear un lector no es gratis (los de TwelveMonkeys y el JPEG nativo reservan tablas y
+ * estructuras internas) y en una ráfaga de miniaturas cada hilo decodifica cientos de
+ * archivos del mismo formato. Aquí cada hilo guarda el último lector de cada proveedor y
+ * lo reutiliza tras un {@code reset()}. Un lector que ha fallado no se reutiliza.
+ *
+ * Al ser por hilo no hace falta sincronizar: un lector sólo lo usa el hilo que lo tomó.
+ * Mientras está en uso se saca de la reserva, así que una lectura anidada en el mismo
+ * hilo obtiene otro lector.
+ */
+final class ImageReaderPool {
+
+	private static final ThreadLocal<Map<ImageReaderSpi, ImageReader>> LECTORES = ThreadLocal.withInitial(HashMap::new);
+
+	private ImageReaderPool() {}
+
+
+	/**
+	 * Toma el lector reservado para el proveedor o crea uno nuevo.
+	 */
+	static ImageReader tomar(ImageReaderSpi proveedor) throws IOException {
+		ImageReader lector = LECTORES.get().remove(proveedor);
+		return (lector != null) ? lector : proveedor.createReaderInstance();
+	} // --- Fin del método tomar ---
+
+
+	/**
+	 * Devuelve un lector a la reserva del hilo. Si la lectura falló, o ya hay otro lector
+	 * reservado para el mismo proveedor, se libera.
+	 *
+	 * @param lector Lector tomado con {@link #tomar} (o creado por ImageIO).
+	 * @param reutilizable false si la lectura terminó con error.
+	 */
+	static void devolver(ImageReader lector, boolean reutilizable) {
+		if (lector == null) {
+			return;
+		}
+		ImageReaderSpi proveedor = lector.getOriginatingProvider();
+		if (!reutilizable || proveedor == null) {
+			lector.dispose();
+			return;
+		}
+		try {
+			lector.reset();
+		} catch (RuntimeException e) {
+			lector.dispose();
+			return;
+		}
+		if (LECTORES.get().putIfAbsent(proveedor, lector) != null) {
+			lector.dispose();
+		}
+	} // --- Fin del método devolver ---
+
+} // --- FIN de la clase ImageReaderPool ---
@@ -0,0 +1,240 @@
+package servicios.image;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Planificador de tareas de generación de miniaturas ordenado por cercanía al área visible.
+ *
+ * Sustituye a la cola FIFO de un {@code Executors.newFixedThreadPool}: cada tarea lleva la
+ * vista que la pide y el índice de su imagen en esa vista, y se atiende antes cuanto más
+ * cerca esté del rango visible que esa vista informa. Cada vista (tira de miniaturas, grid
+ * del visualizador, grid del proyecto) numera sus elementos a su manera, así que se guarda
+ * un rango por vista y una tarea sólo se compara con el de la suya. Cuando un rango cambia
+ * (scroll, cambio de selección) la cola se reordena y las tareas de esa vista que han quedado
+ * muy lejos se descartan, de modo que el tiempo hasta ver la primera miniatura no depende
+ * del tamaño de la carpeta.
+ *
+ * Las tareas sin índice conocido (índice < 0) se consideran visibles: son peticiones de
+ * un renderer que está pintando la celda en este momento.
+ */
+public class ThumbnailScheduler {
+
+	private static final Logger logger = LoggerFactory.getLogger(ThumbnailScheduler.class);
+
+	/** Distancia mínima (en elementos) a partir de la cual una tarea pendiente se descarta. */
+	private static final int DISTANCIA_DESCARTE_MINIMA = 200;
+	/** La distancia de descarte crece con el tamaño del rango visible (pantallas grandes). */
+	private static final int FACTOR_DESCARTE_POR_RANGO = 4;
+
+	private final PriorityBlockingQueue<TareaMiniatura> cola = new PriorityBlockingQueue<>();
+	private final List<Thread> hilos = new ArrayList<>();
+	private final AtomicLong secuencia = new AtomicLong();
+	private final Object cerrojoReordenacion = new Object();
+
+	/** Rango visible de una vista. */
+	private record Rango(int primera, int ultima) {}
+
+	private final Map<String, Rango> rangosVisibles = new ConcurrentHashMap<>();
+	private volatile boolean apagado = false;
+
+
+	/**
+	 * Crea el planificador y arranca sus hilos de trabajo (daemon).
+	 *
+	 * @param numHilos Número de hilos que generarán miniaturas en paralelo.
+	 * @param nombreHilos Prefijo para el nombre de los hilos (útil en los volcados).
+	 */
+	public ThumbnailScheduler(int numHilos, String nombreHilos) {
+		for (int i = 0; i < Math.max(1, numHilos); i++) {
+			Thread t = new Thread(this::bucleTrabajo, nombreHilos + "-" + i);
+			t.setDaemon(true);
+			t.setPriority(Thread.NORM_PRIORITY - 1);
+			hilos.add(t);
+			t.start();
+		}
+	} // --- Fin del constructor ThumbnailScheduler ---
+
+
+	/**
+	 * Encola un trabajo de generación.
+	 *
+	 * @param clave Clave de la miniatura (sólo informativa).
+	 * @param vista Vista que pide la miniatura, o null si se desconoce.
+	 * @param indice Índice de la imagen en esa vista, o -1 si se desconoce.
+	 * @param trabajo El trabajo a ejecutar.
+	 * @param alDescartar Se ejecuta si la tarea se descarta sin llegar a ejecutarse. Puede ser null.
+	 */
+	public void programar(String clave, String vista, int indice, Runnable trabajo, Runnable alDescartar) {
+		if (apagado) {
+			if (alDescartar != null) {
+				alDescartar.run();
+			}
+			return;
+		}
+		TareaMiniatura tarea = new TareaMiniatura(clave, vista, indice, secuencia.getAndIncrement(), trabajo, alDescartar);
+		tarea.prioridad = calcularDistancia(tarea);
+		cola.add(tarea);
+	} // --- Fin del método programar ---
+
+
+	/**
+	 * Informa del rango de índices que el usuario está viendo en una vista. Reordena la cola
+	 * pendiente y descarta las tareas de esa vista que han quedado demasiado lejos.
+	 *
+	 * @param vista Vista que informa del rango.
+	 * @param primera Primer índice visible (o -1 si no hay nada visible).
+	 * @param ultima Último índice visible.
+	 */
+	public void actualizarRangoVisible(String vista, int primera, int ultima) {
+		Rango nuevo = new Rango(primera, Math.max(primera, ultima));
+		if (vista == null || nuevo.equals(rangosVisibles.get(vista))) {
+			return;
+		}
+		synchronized (cerrojoReordenacion) {
+			rangosVisibles.put(vista, nuevo);
+
+			List<TareaMiniatura> pendientes = new ArrayList<>(cola.size());
+			cola.drainTo(pendientes);
+
+			int umbral = calcularUmbralDescarte(nuevo);
+			int descartadas = 0;
+			for (TareaMiniatura tarea : pendientes) {
+				tarea.prioridad = calcularDistancia(tarea);
+				if (vista.equals(tarea.vista) && tarea.prioridad > umbral) {
+					descartadas++;
+					tarea.descartar();
+				} else {
+					cola.add(tarea);
+				}
+			}
+			if (descartadas > 0) {
+				logger.trace("[ThumbnailScheduler] Rango visible de '{}' [{}-{}]. Descartadas {} tareas lejanas. Pendientes: {}", vista, primera, ultima, descartadas, cola.size());
+			}
+		}
+	} // --- Fin del método actualizarRangoVisible ---
+
+
+	/**
+	 * Vacía la cola pendiente sin ejecutar nada (las tareas en curso terminan normalmente).
+	 */
+	public void vaciar() {
+		List<TareaMiniatura> pendientes = new ArrayList<>();
+		cola.drainTo(pendientes);
+		pendientes.forEach(TareaMiniatura::descartar);
+	} // --- Fin del método vaciar ---
+
+
+	public void apagar() {
+		apagado = true;
+		vaciar();
+		hilos.forEach(Thread::interrupt);
+	} // --- Fin del método apagar ---
+
+
+	public boolean isApagado() {
+		return apagado;
+	} // --- Fin del método isApagado ---
+
+
+	public int getPendientes() {
+		return cola.size();
+	} // --- Fin del método getPendientes ---
+
+
+	// --- MÉTODOS PRIVADOS ---
+
+	private void bucleTrabajo() {
+		while (!apagado) {
+			TareaMiniatura tarea;
+			try {
+				tarea = cola.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			try {
+				tarea.trabajo.run();
+			} catch (RuntimeException e) {
+				logger.error("[ThumbnailScheduler] Error inesperado generando miniatura '{}': {}", tarea.clave, e.getMessage(), e);
+			}
+		}
+	} // --- Fin del método bucleTrabajo ---
+
+
+	/**
+	 * Distancia (en elementos) del índice de una tarea al rango visible de su vista.
+	 * 0 si está dentro o si el índice se desconoce.
+	 */
+	private int calcularDistancia(TareaMiniatura tarea) {
+		int indice = tarea.indice;
+		if (indice < 0) {
+			return 0;
+		}
+		Rango rango = (tarea.vista != null) ? rangosVisibles.get(tarea.vista) : null;
+		if (rango == null || rango.primera() < 0) {
+			// Aún no hay rango: se respeta el orden natural de la lista.
+			return indice;
+		}
+		if (indice < rango.primera()) {
+			return rango.primera() - indice;
+		}
+		if (indice > rango.ultima()) {
+			return indice - rango.ultima();
+		}
+		return 0;
+	} // --- Fin del método calcularDistancia ---
+
+
+	private static int calcularUmbralDescarte(Rango rango) {
+		if (rango.primera() < 0) {
+			return Integer.MAX_VALUE;
+		}
+		int tamanoRango = rango.ultima() - rango.primera() + 1;
+		return Math.max(DISTANCIA_DESCARTE_MINIMA, tamanoRango * FACTOR_DESCARTE_POR_RANGO);
+	} // --- Fin del método calcularUmbralDescarte ---
+
+
+	/**
+	 * Tarea pendiente. La prioridad sólo se modifica mientras la tarea está fuera de la cola,
+	 * así el orden interno del montículo nunca se corrompe.
+	 */
+	private static final class TareaMiniatura implements Comparable<TareaMiniatura> {
+		private final String clave;
+		private final String vista;
+		private final int indice;
+		private final long orden;
+		private final Runnable trabajo;
+		private final Runnable alDescartar;
+		private int prioridad;
+
+		TareaMiniatura(String clave, String vista, int indice, long orden, Runnable trabajo, Runnable alDescartar) {
+			this.clave = clave;
+			this.vista = vista;
+			this.indice = indice;
+			this.orden = orden;
+			this.trabajo = trabajo;
+			this.alDescartar = alDescartar;
+		}
+
+		void descartar() {
+			if (alDescartar != null) {
+				alDescartar.run();
+			}
+		}
+
+		@Override
+		public int compareTo(TareaMiniatura otra) {
+			int cmp = Integer.compare(this.prioridad, otra.prioridad);
+			return (cmp != 0) ? cmp : Long.compare(this.orden, otra.orden);
+		}
+	} // --- Fin de la clase TareaMiniatura ---
+
+} // --- FIN de la clase ThumbnailScheduler ---
@@ -5,14 +5,18 @@ import net.coobird.thumbnailator.resizers.configurations.Antialiasing;
 import net.coobird.thumbnailator.resizers.configurations.Rendering;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ExecutorService; 
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.SwingUtilities; 
 
@@ -21,47 +25,99 @@ import org.slf4j.LoggerFactory;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
 import servicios.ConfigKeys;
 import servicios.ConfigurationManager;
+import servicios.cache.ThumbnailDiskCache;
 import utils.ImageUtils; 
 
+/**
+ * Almacén único de miniaturas de la aplicación. Lo comparten la tira de miniaturas,
+ * los grids (visor y proyecto) y el previsualizador de doble clic.
+ *
+ * Tiene dos niveles en memoria:
+ * - Los iconos ya escalados, indexados por clave relativa y tamaño ({@code clave|AnchoxAlto}),
+ *   de modo que la tira y el grid pueden convivir con tamaños distintos sin pisarse.
+ * - Las imágenes decodificadas y orientadas a unas pocas resoluciones fijas ("niveles"),
+ *   indexadas por ruta absoluta y fecha de modificación. Cualquier tamaño de miniatura se
+ *   obtiene escalando desde el nivel inmediatamente superior, así cambiar el tamaño del
+ *   grid o abrir la previsualización no vuelve a leer el archivo.
+ */
 public class ThumbnailService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
 
+	/** Vistas que informan de su rango visible. Cada una numera sus elementos a su manera. */
+	public static final String VISTA_TIRA = "tira";
+	public static final String VISTA_GRID_VISUALIZADOR = "grid.visualizador";
+	public static final String VISTA_GRID_PROYECTO = "grid.proyecto";
+
+	/** Resoluciones (lado corto mínimo, en píxeles) a las que se guardan las imágenes decodificadas. */
+	private static final int[] NIVELES = {128, 256, 512, 1024};
+
 	private final Cache<String, ImageIcon> mapaMiniaturasCacheadas;
-    private final ExecutorService executor; //  Para generación asíncrona
+	private final Cache<String, BufferedImage> nivelesDecodificados; // Imágenes orientadas por resolución fija
+    private final ThumbnailScheduler planificador; // Generación asíncrona priorizada por cercanía al área visible
+    private final ThumbnailDiskCache cacheDisco; // Segundo nivel: miniaturas ya codificadas en disco
+    private final boolean decodificacionSubmuestreada; // Leer a resolución reducida en lugar de completa
+    private final Set<String> clavesFallidas = ConcurrentHashMap.newKeySet(); // Claves que no se pudieron generar
+    private final ConcurrentHashMap<String, CompletableFuture<ImageIcon>> generacionesEnCurso = new ConcurrentHashMap<>(); // Una sola decodificación por clave y tamaño
     
     @FunctionalInterface
     public interface ThumbnailListener {
         void onThumbnailCreated(String key);
     }
 
+    /**
+     * Instantánea de las estadísticas de la caché en memoria.
+     */
+    public record EstadisticasCache(long aciertos, long fallos, long expulsiones, long entradas, long bytesEstimados, long bytesMaximos) {
+        public double tasaAciertos() {
+            long peticiones = aciertos + fallos;
+            return (peticiones == 0) ? 1.0 : (double) aciertos / peticiones;
+        }
+    }
+
     public ThumbnailService() {
         ConfigurationManager config = ConfigurationManager.getInstance();
-        int tamanoMaximoCache = config.getInt(ConfigKeys.MINIATURAS_CACHE_MAX_SIZE, 200);
+        long memoriaMaximaBytes = Math.max(1, config.getInt(ConfigKeys.MINIATURAS_CACHE_MEMORIA_MAX_MB, 64)) * 1024L * 1024L;
         
         // Usamos el "builder" de Caffeine para construir nuestra caché.
-        // Es muy legible y nos permitiría añadir más reglas en el futuro (como expiración por tiempo).
+        // El límite es de MEMORIA estimada, no de número de entradas: una miniatura del grid
+        // puede ocupar varias veces lo que una de la tira, y un límite por cuenta o desperdicia
+        // memoria o expulsa continuamente.
         this.mapaMiniaturasCacheadas = Caffeine.newBuilder()
-                .maximumSize(tamanoMaximoCache) // Le decimos el tamaño máximo de elementos
-                .build();                       // Y la construimos.
+                .maximumWeight(memoriaMaximaBytes)                          // Presupuesto total en bytes
+                .weigher((String clave, ImageIcon icono) -> estimarBytes(icono)) // Peso de cada entrada
+                .recordStats()                                              // Aciertos, fallos y expulsiones
+                .build();
+        
+        // Los niveles tienen su propio presupuesto: una imagen de 1024 px pesa como cientos de iconos
+        // y no debe expulsar a las miniaturas visibles. No se vacían al cambiar de carpeta porque
+        // su clave es la ruta absoluta.
+        long memoriaNivelesBytes = Math.max(1, config.getInt(ConfigKeys.MINIATURAS_CACHE_NIVELES_MAX_MB, 96)) * 1024L * 1024L;
+        this.nivelesDecodificados = Caffeine.newBuilder()
+                .maximumWeight(memoriaNivelesBytes)
+                .weigher((String clave, BufferedImage imagen) -> estimarBytes(imagen))
+                .build();
         
-        // Inicializar el ExecutorService
+        this.decodificacionSubmuestreada = config.getBoolean(ConfigKeys.MINIATURAS_DECODIFICACION_SUBMUESTREADA, true);
+        
+        // Caché persistente en disco. Sobrevive a limpiarCache() y a reinicios de la aplicación.
+        this.cacheDisco = new ThumbnailDiskCache();
+        
+        // Inicializar el planificador (cola priorizada en lugar de FIFO)
         int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
-        this.executor = Executors.newFixedThreadPool(numThreads, (r) -> {
-            Thread t = new Thread(r, "ThumbnailGeneratorThread");
-            t.setDaemon(true);
-            return t;
-        });
+        this.planificador = new ThumbnailScheduler(numThreads, "ThumbnailGeneratorThread");
         
-        logger.debug("[ThumbnailService] Servicio inicializado. LruCache (tamaño: {}) y Executor (threads: {}) creados.", tamanoMaximoCache, numThreads);
+        logger.debug("[ThumbnailService] Servicio inicializado. Caché (memoria máx: {} MB) y planificador (threads: {}) creados.", memoriaMaximaBytes / (1024 * 1024), numThreads);
     } // end of constructor
     
     /**
-     * MÉTODO ORIGINAL SOBRECARGADO (SIN TOCARLO)
-     * Para mantener la compatibilidad con el resto de la aplicación (barra de miniaturas).
+     * MÉTODO ORIGINAL SOBRECARGADO (SÍNCRONO)
+     * Bloquea hasta tener la miniatura: sólo debe usarse desde hilos de fondo
+     * (precalentamiento de caché). Los renderers usan la versión con ThumbnailListener.
      */
     
     public ImageIcon obtenerOCrearMiniatura(Path rutaArchivo, String claveUnica, int anchoObjetivo, int altoObjetivo, boolean esTamanoNormal) {
@@ -74,7 +130,7 @@ public class ThumbnailService {
         // NOTA: Con este cambio, ahora cacheamos *todas* las miniaturas, no solo las de "tamaño normal".
         // Esto es una simplificación bienvenida y buena para el rendimiento general.
         if (esTamanoNormal) {
-            return mapaMiniaturasCacheadas.get(claveUnica, k -> generarYEscalarMiniatura(rutaArchivo, k, anchoObjetivo, altoObjetivo));
+            return mapaMiniaturasCacheadas.get(claveConTamano(claveUnica, anchoObjetivo, altoObjetivo), k -> generarYEscalarMiniatura(rutaArchivo, claveUnica, anchoObjetivo, altoObjetivo));
         } else {
             // Para tamaños no normales (ej. miniatura seleccionada más grande), no la guardamos en la caché principal
             // para no expulsar miniaturas de tamaño estándar que son más reutilizadas.
@@ -84,34 +140,198 @@ public class ThumbnailService {
     
     
     public ImageIcon obtenerOCrearMiniatura(Path rutaArchivo, String claveUnica, int anchoObjetivo, int altoObjetivo, boolean esTamanoNormal, ThumbnailListener listener) {
+        // Sin índice conocido: el planificador la trata como visible (la está pintando un renderer).
+        return obtenerOCrearMiniatura(rutaArchivo, claveUnica, anchoObjetivo, altoObjetivo, esTamanoNormal, listener, null, -1);
+    } // end of obtenerOCrearMiniatura (asíncrono)
+    
+    
+    /**
+     * Versión asíncrona con vista e índice. El índice permite al planificador atender
+     * antes las miniaturas más cercanas al rango visible de esa vista y descartar las que
+     * quedan lejos.
+     *
+     * @param vista Vista que pide la miniatura (ver VISTA_*), o null si se desconoce.
+     * @param indice Índice de la imagen en esa vista, o -1 si se desconoce.
+     * @return La miniatura si ya estaba en caché; null si se ha encolado su generación.
+     */
+    public ImageIcon obtenerOCrearMiniatura(Path rutaArchivo, String claveUnica, int anchoObjetivo, int altoObjetivo, boolean esTamanoNormal, ThumbnailListener listener, String vista, int indice) {
         Objects.requireNonNull(rutaArchivo, "La ruta del archivo no puede ser nula.");
         Objects.requireNonNull(claveUnica, "La clave única no puede ser nula.");
 
         // El método de Caffeine `getIfPresent` busca en la caché y devuelve el valor si existe, o null si no.
         // No bloquea ni intenta generar nada, es perfecto para una comprobación rápida.
-        final ImageIcon cachedIcon = mapaMiniaturasCacheadas.getIfPresent(claveUnica);
+        final String claveCache = claveConTamano(claveUnica, anchoObjetivo, altoObjetivo);
+        final ImageIcon cachedIcon = mapaMiniaturasCacheadas.getIfPresent(claveCache);
         if (cachedIcon != null) {
             return cachedIcon;
         }
+        if (clavesFallidas.contains(claveUnica)) {
+            return null;
+        }
+        
+        // Si no está en la caché, nos unimos a la generación en curso o lanzamos una nueva.
+        // Durante el scroll el renderer pide la misma clave en cada repintado: sin esta
+        // deduplicación la misma imagen se decodificaba varias veces en paralelo.
+        CompletableFuture<ImageIcon> nuevaGeneracion = new CompletableFuture<>();
+        CompletableFuture<ImageIcon> generacion = generacionesEnCurso.putIfAbsent(claveCache, nuevaGeneracion);
+        boolean somosLosPrimeros = (generacion == null);
+        if (somosLosPrimeros) {
+            generacion = nuevaGeneracion;
+        }
         
-        // Si no está en la caché, lanzamos la tarea asíncrona para generarla.
-        if (executor != null && !executor.isShutdown()) {
-            executor.submit(() -> {
+        // Cada petición registra su propio listener sobre el futuro compartido. También se
+        // avisa si la tarea se descarta: la generación en curso ya se ha retirado, así que si
+        // la celda sigue a la vista su repintado vuelve a pedir la miniatura.
+        if (listener != null) {
+            generacion.whenComplete((icono, error) -> SwingUtilities.invokeLater(() -> listener.onThumbnailCreated(claveUnica)));
+        }
+        
+        if (somosLosPrimeros) {
+            final CompletableFuture<ImageIcon> generacionFinal = generacion;
+            planificador.programar(claveUnica, vista, indice, () -> {
                 ImageIcon generatedIcon = generarYEscalarMiniatura(rutaArchivo, claveUnica, anchoObjetivo, altoObjetivo);
                 if (generatedIcon != null) {
+                    clavesFallidas.remove(claveUnica);
                     // Solo la guardamos en la caché si es de tamaño normal.
                     if (esTamanoNormal) {
-                        mapaMiniaturasCacheadas.put(claveUnica, generatedIcon);
-                    }
-                    if (listener != null) {
-                        SwingUtilities.invokeLater(() -> listener.onThumbnailCreated(claveUnica));
+                        mapaMiniaturasCacheadas.put(claveCache, generatedIcon);
                     }
+                } else {
+                    // Recordamos el fallo para que el renderer pinte el icono de error
+                    // en lugar del de "cargando", y no reintentemos en cada repintado.
+                    clavesFallidas.add(claveUnica);
                 }
+                // Primero se publica el resultado en caché y después se retira la generación en curso,
+                // así una petición que llegue entre medias nunca lanza una segunda decodificación.
+                generacionesEnCurso.remove(claveCache, generacionFinal);
+                // Avisamos en ambos casos: la celda tiene que cambiar de placeholder a miniatura o a error.
+                generacionFinal.complete(generatedIcon);
+            }, () -> {
+                generacionesEnCurso.remove(claveCache, generacionFinal);
+                generacionFinal.cancel(false);
             });
         }
         // Devolvemos null inmediatamente, como antes, para no bloquear la UI.
         return null;
-    } // end of obtenerOCrearMiniatura (asíncrono)
+    } // end of obtenerOCrearMiniatura (asíncrono con índice)
+    
+    
+    /**
+     * Informa del rango de índices visible en una vista. Las tareas pendientes se reordenan
+     * y las de esa vista que quedan muy alejadas se descartan.
+     *
+     * @param vista Vista que informa (ver VISTA_*).
+     */
+    public void actualizarRangoVisible(String vista, int primerIndice, int ultimoIndice) {
+        planificador.actualizarRangoVisible(vista, primerIndice, ultimoIndice);
+    } // end of actualizarRangoVisible
+    
+    
+    /**
+     * Devuelve la imagen (ya orientada) decodificada a la resolución fija más pequeña cuyo lado
+     * corto cubre {@code ladoMinimo}. Si ya hay en memoria un nivel igual o mayor, se reutiliza
+     * sin tocar el disco. Bloquea mientras decodifica: sólo para hilos de fondo.
+     *
+     * @param rutaArchivo Ruta absoluta de la imagen.
+     * @param ladoMinimo Lado (en píxeles) que debe cubrir el resultado.
+     * @return La imagen del nivel, o null si no se pudo leer.
+     */
+    public BufferedImage obtenerImagenDeNivel(Path rutaArchivo, int ladoMinimo) {
+        Objects.requireNonNull(rutaArchivo, "La ruta del archivo no puede ser nula.");
+        String prefijo = prefijoNivel(rutaArchivo);
+        if (prefijo == null) {
+            logger.error("[ThumbnailService] ERROR: No se pudo acceder a: {}", rutaArchivo);
+            return null;
+        }
+        int indiceNivel = indiceNivelPara(ladoMinimo);
+        
+        // 1. Cualquier nivel igual o superior ya decodificado sirve.
+        for (int i = indiceNivel; i < NIVELES.length; i++) {
+            BufferedImage enMemoria = nivelesDecodificados.getIfPresent(prefijo + NIVELES[i]);
+            if (enMemoria != null) {
+                return enMemoria;
+            }
+        }
+        
+        // 2. Decodificar a ese nivel. `get` es atómico: dos hilos que pidan el mismo nivel
+        //    a la vez (tira y grid, por ejemplo) comparten una única lectura.
+        final int nivel = NIVELES[indiceNivel];
+        return nivelesDecodificados.get(prefijo + nivel, k -> decodificarNivel(rutaArchivo, nivel));
+    } // end of obtenerImagenDeNivel
+    
+    
+    /**
+     * Devuelve el mayor nivel de la imagen que ya esté en memoria, sin decodificar nada.
+     * Pensado para mostrar algo en el mismo frame mientras llega la resolución completa.
+     *
+     * @return La imagen del nivel más grande disponible, o null si no hay ninguno.
+     */
+    public BufferedImage buscarImagenDeNivelEnMemoria(Path rutaArchivo) {
+        if (rutaArchivo == null) {
+            return null;
+        }
+        String prefijo = prefijoNivel(rutaArchivo);
+        if (prefijo == null) {
+            return null;
+        }
+        for (int i = NIVELES.length - 1; i >= 0; i--) {
+            BufferedImage enMemoria = nivelesDecodificados.getIfPresent(prefijo + NIVELES[i]);
+            if (enMemoria != null) {
+                return enMemoria;
+            }
+        }
+        return null;
+    } // end of buscarImagenDeNivelEnMemoria
+    
+    
+    /**
+     * Prefijo de las claves de nivel: ruta absoluta y fecha de modificación, para que
+     * un archivo editado nunca devuelva una versión antigua. Null si no se puede leer.
+     */
+    private static String prefijoNivel(Path rutaArchivo) {
+        try {
+            FileTime fechaModificacion = Files.getLastModifiedTime(rutaArchivo);
+            return rutaArchivo.toAbsolutePath().normalize() + "|" + fechaModificacion.toMillis() + "|";
+        } catch (IOException e) {
+            return null;
+        }
+    } // end of prefijoNivel
+    
+    
+    /**
+     * Clave de la caché de iconos y de deduplicación: la misma imagen pedida a dos
+     * tamaños distintos son dos entradas y dos trabajos distintos.
+     */
+    private static String claveConTamano(String claveUnica, int ancho, int alto) {
+        return claveUnica + "|" + ancho + "x" + alto;
+    } // end of claveConTamano
+    
+    
+    /**
+     * Índice del menor nivel que cubre el lado pedido (o el mayor si ninguno lo cubre).
+     */
+    private static int indiceNivelPara(int ladoMinimo) {
+        for (int i = 0; i < NIVELES.length; i++) {
+            if (NIVELES[i] >= ladoMinimo) {
+                return i;
+            }
+        }
+        return NIVELES.length - 1;
+    } // end of indiceNivelPara
+    
+    
+    private BufferedImage decodificarNivel(Path rutaArchivo, int nivel) {
+        try {
+            BufferedImage imagen = ImageDecoder.leerSubmuestreada(rutaArchivo, nivel, nivel);
+            if (imagen == null) {
+                return null; // Caffeine no guarda los null: se reintentará en la próxima petición.
+            }
+            return ImageUtils.correctImageOrientation(imagen, rutaArchivo);
+        } catch (IOException e) {
+            logger.error("[ThumbnailService] ERROR DE E/S al decodificar nivel {} de: {}. Mensaje: {}", nivel, rutaArchivo, e.getMessage());
+            return null;
+        }
+    } // end of decodificarNivel
     
 
     /**
@@ -125,28 +345,32 @@ public class ThumbnailService {
                 return null;
             }
             
-            // Thumbnailator puede leer directamente de un File, lo que es muy eficiente.
-            // Primero, aplicamos nuestra corrección de orientación EXIF.
-            BufferedImage imagenOriginal = ImageIO.read(rutaArchivo.toFile());
-            if (imagenOriginal == null) {
-                logger.error("[ThumbnailService] ERROR: ImageIO.read devolvió null para: {}", rutaArchivo);
+            // Antes de decodificar nada, consultamos la caché en disco.
+            // Si el original ha cambiado (tamaño o fecha), la propia caché descarta la entrada.
+            BufferedImage desdeDisco = cacheDisco.leer(rutaArchivo, anchoObjetivo, altoObjetivo);
+            if (desdeDisco != null) {
+                return new ImageIcon(desdeDisco);
+            }
+            
+            // Partimos del nivel compartido que cubre el tamaño pedido (ya orientado y, si otra
+            // vista lo pidió antes, ya en memoria). Sólo con el submuestreo desactivado se lee
+            // la imagen completa, y ésa no se guarda como nivel.
+            BufferedImage imagenCorregida;
+            if (decodificacionSubmuestreada) {
+                imagenCorregida = obtenerImagenDeNivel(rutaArchivo, Math.max(anchoObjetivo, altoObjetivo));
+            } else {
+                BufferedImage imagenOriginal = ImageDecoder.leerCompleta(rutaArchivo);
+                imagenCorregida = (imagenOriginal != null) ? ImageUtils.correctImageOrientation(imagenOriginal, rutaArchivo) : null;
+            }
+            if (imagenCorregida == null) {
+                logger.error("[ThumbnailService] ERROR: No se pudo decodificar: {}", rutaArchivo);
                 return null;
             }
-            BufferedImage imagenCorregida = ImageUtils.correctImageOrientation(imagenOriginal, rutaArchivo);
-
-            // 2. Lógica de escalado con Thumbnailator
-            boolean mantenerProporcion = (altoObjetivo <= 0);
-            int anchoFinal = Math.max(1, anchoObjetivo);
-            // Si no mantenemos proporción, el alto es el objetivo, si no, lo calculamos.
-            int altoFinal = mantenerProporcion ? Integer.MAX_VALUE : Math.max(1, altoObjetivo);
-
-            // 3. Creación de la miniatura usando la API fluida de Thumbnailator
-            BufferedImage imagenEscalada = Thumbnails.of(imagenCorregida)
-                    .size(anchoFinal, altoFinal)                // Establece el tamaño máximo
-                    .keepAspectRatio(mantenerProporcion)         // Indica si mantener la proporción o no
-                    .rendering(Rendering.QUALITY)              // Equivalente a VALUE_RENDER_QUALITY
-                    .antialiasing(Antialiasing.ON)             // Equivalente a VALUE_ANTIALIAS_ON
-                    .asBufferedImage();                          // Obtiene el resultado como BufferedImage
+
+            // 2. Escalado con Thumbnailator
+            BufferedImage imagenEscalada = escalarMiniatura(imagenCorregida, anchoObjetivo, altoObjetivo);
+
+            cacheDisco.guardar(rutaArchivo, anchoObjetivo, altoObjetivo, imagenEscalada);
 
             return new ImageIcon(imagenEscalada);
 
@@ -156,6 +380,7 @@ public class ThumbnailService {
         } catch (OutOfMemoryError oom) {
             logger.error("[ThumbnailService] ERROR CRÍTICO: OutOfMemoryError al procesar: {}", rutaArchivo);
             limpiarCache();
+            nivelesDecodificados.invalidateAll();
             return null;
         } catch (Exception e) {
             logger.error("[ThumbnailService] ERROR INESPERADO al crear miniatura para: {}. Mensaje: {}", rutaArchivo, e.getMessage(), e);
@@ -164,16 +389,152 @@ public class ThumbnailService {
     } // ---FIN de metodo generarYEscalarMiniatura---
     
     
+    /**
+     * Escala una imagen ya orientada al tamaño de miniatura pedido.
+     * Con {@code altoObjetivo <= 0} se mantiene la proporción y manda el ancho.
+     */
+    private static BufferedImage escalarMiniatura(BufferedImage imagenCorregida, int anchoObjetivo, int altoObjetivo) throws IOException {
+        boolean mantenerProporcion = (altoObjetivo <= 0);
+        int anchoFinal = Math.max(1, anchoObjetivo);
+        // Si no mantenemos proporción, el alto es el objetivo, si no, lo calculamos.
+        int altoFinal = mantenerProporcion ? Integer.MAX_VALUE : Math.max(1, altoObjetivo);
+
+        // Creación de la miniatura usando la API fluida de Thumbnailator
+        return Thumbnails.of(imagenCorregida)
+                .size(anchoFinal, altoFinal)                // Establece el tamaño máximo
+                .keepAspectRatio(mantenerProporcion)         // Indica si mantener la proporción o no
+                .rendering(Rendering.QUALITY)              // Equivalente a VALUE_RENDER_QUALITY
+                .antialiasing(Antialiasing.ON)             // Equivalente a VALUE_ANTIALIAS_ON
+                .asBufferedImage();                          // Obtiene el resultado como BufferedImage
+    } // ---FIN de metodo escalarMiniatura---
+    
+    
+    /**
+     * Genera y guarda en la caché de disco las miniaturas del archivo que aún no estén allí
+     * (o estén obsoletas) para los tamaños indicados. El archivo se decodifica una sola vez,
+     * al nivel que cubre el mayor tamaño pendiente, y no se toca la caché de iconos en
+     * memoria ni el planificador. Es lo que usa la pregeneración por lotes
+     * ({@code principal.GeneradorMiniaturas}); el resultado es el mismo que generaría la
+     * interfaz, así que después ésta lo encuentra en disco.
+     *
+     * @param rutaArchivo Archivo original.
+     * @param tamanos Pares {ancho, alto}, como los que piden las vistas.
+     * @return Número de miniaturas generadas (0 si todas estaban al día).
+     * @throws IOException Si el archivo no se pudo decodificar.
+     */
+    public int pregenerarEnDisco(Path rutaArchivo, List<int[]> tamanos) throws IOException {
+        List<int[]> pendientes = new ArrayList<>();
+        int ladoMayor = 0;
+        for (int[] tamano : tamanos) {
+            if (!cacheDisco.estaVigente(rutaArchivo, tamano[0], tamano[1])) {
+                pendientes.add(tamano);
+                ladoMayor = Math.max(ladoMayor, Math.max(tamano[0], tamano[1]));
+            }
+        }
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+
+        BufferedImage imagenCorregida;
+        if (decodificacionSubmuestreada) {
+            imagenCorregida = obtenerImagenDeNivel(rutaArchivo, ladoMayor);
+        } else {
+            BufferedImage imagenOriginal = ImageDecoder.leerCompleta(rutaArchivo);
+            imagenCorregida = (imagenOriginal != null) ? ImageUtils.correctImageOrientation(imagenOriginal, rutaArchivo) : null;
+        }
+        if (imagenCorregida == null) {
+            throw new IOException("No se pudo decodificar " + rutaArchivo);
+        }
+        for (int[] tamano : pendientes) {
+            cacheDisco.guardar(rutaArchivo, tamano[0], tamano[1], escalarMiniatura(imagenCorregida, tamano[0], tamano[1]));
+        }
+        return pendientes.size();
+    } // ---FIN de metodo pregenerarEnDisco---
+    
+    
+    public boolean isCacheDiscoActiva() {
+        return cacheDisco.isActiva();
+    } // ---FIN de metodo isCacheDiscoActiva---
+    
+    
+    public Path getCarpetaCacheDisco() {
+        return cacheDisco.getCarpetaCache();
+    } // ---FIN de metodo getCarpetaCacheDisco---
+    
+    
     public void limpiarCache() {
+        if (logger.isDebugEnabled()) {
+            EstadisticasCache stats = getEstadisticas();
+            logger.debug("[ThumbnailService] Estadísticas antes de limpiar: {} entradas, {} KB, aciertos {}, fallos {}, expulsiones {} ({}% aciertos).",
+                    stats.entradas(), stats.bytesEstimados() / 1024, stats.aciertos(), stats.fallos(), stats.expulsiones(),
+                    Math.round(stats.tasaAciertos() * 100));
+        }
+        // Lo pendiente pertenece a la lista anterior: ya no tiene sentido generarlo.
+        planificador.vaciar();
         // `invalidateAll` es el método equivalente en Caffeine a `clear`.
         mapaMiniaturasCacheadas.invalidateAll();
+        clavesFallidas.clear();
         logger.debug("[ThumbnailService] Caché de miniaturas limpiado.");
     } // end of limpiarCache
     
     
     public void eliminarDelCache(String claveUnica) {
-        // `invalidate` es el método equivalente en Caffeine a `remove`.
-        mapaMiniaturasCacheadas.invalidate(claveUnica);
+        // La clave puede estar cacheada a varios tamaños (tira, grid...): se eliminan todos.
+        String prefijo = claveUnica + "|";
+        mapaMiniaturasCacheadas.asMap().keySet().removeIf(k -> k.startsWith(prefijo));
+        clavesFallidas.remove(claveUnica);
     } // end of eliminarDelCache
     
+    
+    /**
+     * Indica si la última generación asíncrona de esta clave falló (archivo ilegible,
+     * formato no soportado...). Permite a los renderers distinguir "cargando" de "roto".
+     */
+    public boolean haFallado(String claveUnica) {
+        return claveUnica != null && clavesFallidas.contains(claveUnica);
+    } // end of haFallado
+    
+    
+    /**
+     * Devuelve las estadísticas acumuladas de la caché en memoria (aciertos, fallos y expulsiones
+     * desde que se creó el servicio) junto con su ocupación actual estimada.
+     */
+    public EstadisticasCache getEstadisticas() {
+        CacheStats stats = mapaMiniaturasCacheadas.stats();
+        long bytesEstimados = mapaMiniaturasCacheadas.policy().eviction()
+                .map(e -> e.weightedSize().orElse(0L))
+                .orElse(0L);
+        long bytesMaximos = mapaMiniaturasCacheadas.policy().eviction()
+                .map(e -> e.getMaximum())
+                .orElse(0L);
+        return new EstadisticasCache(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                mapaMiniaturasCacheadas.estimatedSize(), bytesEstimados, bytesMaximos);
+    } // end of getEstadisticas
+    
+    
+    /**
+     * Estima los bytes que ocupa en memoria una miniatura a partir de su raster real
+     * (o de ancho x alto x 4 si la imagen no es una BufferedImage).
+     */
+    static int estimarBytes(ImageIcon icono) {
+        if (icono == null) {
+            return 1;
+        }
+        if (icono.getImage() instanceof BufferedImage bi) {
+            return estimarBytes(bi);
+        }
+        long bytes = (long) Math.max(1, icono.getIconWidth()) * Math.max(1, icono.getIconHeight()) * 4L;
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    } // end of estimarBytes
+    
+    
+    static int estimarBytes(BufferedImage imagen) {
+        if (imagen == null) {
+            return 1;
+        }
+        DataBuffer buffer = imagen.getRaster().getDataBuffer();
+        long bytes = (long) buffer.getSize() * buffer.getNumBanks() * (DataBuffer.getDataTypeSize(buffer.getDataType()) / 8);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes));
+    } // end of estimarBytes (BufferedImage)
+    
 } // end of class ThumbnailService
\ No newline at end of file
@@ -28,6 +28,24 @@ public enum ZoomModeEnum {
     public String getAssociatedActionCommand() {
         return actionCommand;
     }
+    
+    /**
+     * Indica si el modo ajusta la imagen al tamaño del panel. En estos modos nunca se
+     * muestra la imagen por encima de la resolución del panel, así que basta con
+     * decodificarla a resolución de pantalla.
+     */
+    public boolean isAjusteAlPanel() {
+        switch (this) {
+            case FIT_TO_SCREEN:
+            case FIT_TO_HEIGHT:
+            case FIT_TO_WIDTH:
+            case FILL:
+            case SMART_FIT:
+                return true;
+            default:
+                return false;
+        }
+    }
 
     @Override 
     public String toString() { 
@@ -1,13 +1,16 @@
 package utils;
 
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.nio.file.Path;
+import java.util.Arrays;
 
-import com.drew.imaging.ImageMetadataReader;
-import com.drew.metadata.Metadata;
-import com.drew.metadata.exif.ExifIFD0Directory;
+import servicios.image.ImageMetadataService;
 
 public class ImageUtils {
 
@@ -24,8 +27,8 @@ public class ImageUtils {
 	
 	/**
      * Corrige la orientación de una BufferedImage basándose en sus metadatos EXIF.
-     * Lee la etiqueta de orientación del archivo original y aplica la transformación
-     * necesaria a la imagen cargada en memoria.
+     * La orientación se consulta en {@link ImageMetadataService}, que sólo analiza el
+     * archivo la primera vez (o si ha cambiado desde entonces).
      *
      * @param image La BufferedImage que se acaba de cargar.
      * @param imagePath El Path del archivo original, necesario para leer los metadatos.
@@ -36,83 +39,205 @@ public class ImageUtils {
         if (image == null || imagePath == null) {
             return image;
         }
+        return correctImageOrientation(image, ImageMetadataService.getInstance().obtenerOrientacion(imagePath));
+    } // ---FIN de metodo correctImageOrientation---
+    
+    
+    /**
+     * Aplica a la imagen la transformación correspondiente a una orientación EXIF ya conocida.
+     * <p>
+     * Las ocho orientaciones EXIF son giros de 90/180/270 grados y espejos, así que no hace
+     * falta interpolar: cada píxel se copia tal cual a su nueva posición. Para los tipos de
+     * raster habituales (enteros empaquetados y bytes intercalados, que cubren JPEG, PNG y
+     * escala de grises) la copia se hace directamente sobre los arrays del DataBuffer;
+     * el resto usa getDataElements/setDataElements, igual de exacto pero más lento.
+     *
+     * @param image La imagen a corregir.
+     * @param orientation Valor EXIF de orientación (1..8).
+     * @return Una nueva BufferedImage orientada, o la misma si no hace falta transformarla.
+     */
+    public static BufferedImage correctImageOrientation(BufferedImage image, int orientation) {
+        if (image == null || orientation < 2 || orientation > 8) {
+            return image;
+        }
 
         try {
-            Metadata metadata = ImageMetadataReader.readMetadata(imagePath.toFile());
-            ExifIFD0Directory directory = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
-
-            if (directory != null && directory.containsTag(ExifIFD0Directory.TAG_ORIENTATION)) {
-                int orientation = directory.getInt(ExifIFD0Directory.TAG_ORIENTATION);
-                AffineTransform transform = getExifTransform(orientation, image.getWidth(), image.getHeight());
+            int width = image.getWidth();
+            int height = image.getHeight();
+            boolean intercambiaEjes = orientation >= 5; // 5..8 giran 90/270 grados
+            int newWidth = intercambiaEjes ? height : width;
+            int newHeight = intercambiaEjes ? width : height;
 
-                if (transform != null) {
-                    // Determinar las nuevas dimensiones de la imagen
-                    int newWidth = image.getWidth();
-                    int newHeight = image.getHeight();
-                    if (orientation >= 5 && orientation <= 8) { // Rotaciones de 90/270 grados
-                        newWidth = image.getHeight();
-                        newHeight = image.getWidth();
-                    }
+            BufferedImage newImage = crearImagenCompatible(image, newWidth, newHeight);
+            WritableRaster origen = image.getRaster();
+            WritableRaster destino = newImage.getRaster();
 
-                    BufferedImage newImage = new BufferedImage(newWidth, newHeight, image.getType());
-                    AffineTransformOp op = new AffineTransformOp(transform, AffineTransformOp.TYPE_BICUBIC);
-                    op.filter(image, newImage);
-                    
-                    // logger.info("Orientación EXIF {} aplicada a la imagen {}", orientation, imagePath.getFileName());
-                    return newImage;
-                }
+            if (!copiarEnterosEmpaquetados(origen, destino, orientation, width, height)
+                    && !copiarBytesIntercalados(origen, destino, orientation, width, height)) {
+                copiarPixelAPixel(origen, destino, orientation, width, height);
             }
+            return newImage;
         } catch (Exception e) {
-            // No es un error crítico, simplemente no se pudo leer el EXIF.
-            // logger.debug("No se pudo leer/aplicar metadatos EXIF para {}: {}", imagePath.getFileName(), e.getMessage());
+            // No es un error crítico, simplemente no se pudo aplicar la transformación.
         }
 
         return image; // Devuelve la imagen original si no se aplicó ninguna transformación.
-    } // ---FIN de metodo correctImageOrientation---
+    } // ---FIN de metodo correctImageOrientation (orientación conocida)---
 
+    
     /**
-     * Calcula la transformación afín necesaria para una orientación EXIF dada.
+     * Imagen vacía con la misma disposición que la original. Para los tipos estándar se usa el
+     * constructor por tipo: conserva el orden de bandas (BGR, ABGR), así que la copia va por la
+     * ruta rápida y el resultado no es TYPE_CUSTOM, lento de pintar. Con TYPE_BYTE_INDEXED o
+     * TYPE_BYTE_BINARY ese constructor usa una paleta por defecto y los índices copiados
+     * mostrarían otros colores, por eso ahí (y en TYPE_CUSTOM) se parte del ColorModel.
      */
-    private static AffineTransform getExifTransform(int orientation, int width, int height) {
-        AffineTransform t = new AffineTransform();
+    private static BufferedImage crearImagenCompatible(BufferedImage image, int width, int height) {
+        int tipo = image.getType();
+        if (tipo != BufferedImage.TYPE_BYTE_INDEXED && tipo != BufferedImage.TYPE_BYTE_BINARY
+                && tipo != BufferedImage.TYPE_CUSTOM) {
+            return new BufferedImage(width, height, tipo);
+        }
+        ColorModel cm = image.getColorModel();
+        return new BufferedImage(cm, cm.createCompatibleWritableRaster(width, height), cm.isAlphaPremultiplied(), null);
+    } // ---FIN de metodo crearImagenCompatible---
+    
+    
+    /**
+     * Posición de destino (x, y) del píxel de origen (x, y) para cada orientación EXIF.
+     * Devuelve x en la parte alta y y en la baja para no crear objetos por píxel.
+     */
+    private static long posicionDestino(int orientation, int x, int y, int width, int height) {
+        int dx, dy;
         switch (orientation) {
-            case 1: // Normal
-                return null;
-            case 2: // Flip Horizontal
-                t.scale(-1.0, 1.0);
-                t.translate(-width, 0);
-                break;
-            case 3: // Rotar 180
-                t.translate(width, height);
-                t.rotate(Math.PI);
-                break;
-            case 4: // Flip Vertical
-                t.scale(1.0, -1.0);
-                t.translate(0, -height);
-                break;
-            case 5: // Transpose (Rotar 90 a la izq. y flip vertical)
-                t.translate(height, 0);
-                t.rotate(Math.PI / 2);
-                t.scale(1.0, -1.0);
-                break;
-            case 6: // Rotar 90 a la der.
-                t.translate(height, 0);
-                t.rotate(Math.PI / 2);
-                break;
-            case 7: // Transverse (Rotar 90 a la der. y flip vertical)
-                t.translate(0, 0);
-                t.rotate(-Math.PI / 2);
-                t.scale(1.0, -1.0);
-                t.translate(0, -width);
-                break;
-            case 8: // Rotar 90 a la izq.
-                t.translate(0, width);
-                t.rotate(-Math.PI / 2);
-                break;
-            default:
-                return null;
+            case 2:  dx = width - 1 - x;  dy = y;               break; // Flip horizontal
+            case 3:  dx = width - 1 - x;  dy = height - 1 - y;  break; // Rotar 180
+            case 4:  dx = x;              dy = height - 1 - y;  break; // Flip vertical
+            case 5:  dx = y;              dy = x;               break; // Transpose
+            case 6:  dx = height - 1 - y; dy = x;               break; // Rotar 90 a la der.
+            case 7:  dx = height - 1 - y; dy = width - 1 - x;   break; // Transverse
+            case 8:  dx = y;              dy = width - 1 - x;   break; // Rotar 90 a la izq.
+            default: dx = x;              dy = y;               break;
+        }
+        return ((long) dx << 32) | (dy & 0xFFFFFFFFL);
+    } // ---FIN de metodo posicionDestino---
+    
+    
+    /**
+     * Desplazamiento en el array de destino del primer píxel de la fila 'y' de origen y el
+     * salto entre píxeles consecutivos de esa fila. Como la transformación es afín, basta con
+     * calcular las posiciones de x = 0 y x = 1.
+     */
+    private static int[] inicioYSaltoDeFila(int orientation, int y, int width, int height, int scanlineDestino, int pixelStrideDestino) {
+        long p0 = posicionDestino(orientation, 0, y, width, height);
+        long p1 = posicionDestino(orientation, Math.min(1, width - 1), y, width, height);
+        int inicio = (int) p0 * scanlineDestino + (int) (p0 >> 32) * pixelStrideDestino;
+        int siguiente = (int) p1 * scanlineDestino + (int) (p1 >> 32) * pixelStrideDestino;
+        return new int[] { inicio, siguiente - inicio };
+    } // ---FIN de metodo inicioYSaltoDeFila---
+    
+    
+    /**
+     * Ruta rápida para TYPE_INT_RGB / ARGB / ARGB_PRE / BGR: un int por píxel.
+     * @return false si el raster no tiene esa disposición.
+     */
+    private static boolean copiarEnterosEmpaquetados(WritableRaster origen, WritableRaster destino, int orientation,
+            int width, int height) {
+        if (!(origen.getDataBuffer() instanceof DataBufferInt dbOrigen)
+                || !(destino.getDataBuffer() instanceof DataBufferInt dbDestino)
+                || !(origen.getSampleModel() instanceof SinglePixelPackedSampleModel smOrigen)
+                || !(destino.getSampleModel() instanceof SinglePixelPackedSampleModel smDestino)
+                || !esRasterSimple(origen) || !esRasterSimple(destino)) {
+            return false;
         }
-        return t;
-    } // ---FIN de metodo getExifTransform---
+        int[] src = dbOrigen.getData();
+        int[] dst = dbDestino.getData();
+        int scanOrigen = smOrigen.getScanlineStride();
+        int scanDestino = smDestino.getScanlineStride();
+
+        for (int y = 0; y < height; y++) {
+            int[] fila = inicioYSaltoDeFila(orientation, y, width, height, scanDestino, 1);
+            int d = fila[0];
+            int salto = fila[1];
+            int s = y * scanOrigen;
+            for (int x = 0; x < width; x++, s++, d += salto) {
+                dst[d] = src[s];
+            }
+        }
+        return true;
+    } // ---FIN de metodo copiarEnterosEmpaquetados---
+    
+    
+    /**
+     * Ruta rápida para TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR(_PRE) y TYPE_BYTE_GRAY: las muestras de
+     * cada píxel van seguidas en un único array de bytes.
+     * @return false si el raster no tiene esa disposición.
+     */
+    private static boolean copiarBytesIntercalados(WritableRaster origen, WritableRaster destino, int orientation,
+            int width, int height) {
+        if (!(origen.getDataBuffer() instanceof DataBufferByte dbOrigen)
+                || !(destino.getDataBuffer() instanceof DataBufferByte dbDestino)
+                || !(origen.getSampleModel() instanceof PixelInterleavedSampleModel smOrigen)
+                || !(destino.getSampleModel() instanceof PixelInterleavedSampleModel smDestino)
+                || !esRasterSimple(origen) || !esRasterSimple(destino)
+                || smOrigen.getPixelStride() != smDestino.getPixelStride()
+                || !Arrays.equals(smOrigen.getBandOffsets(), smDestino.getBandOffsets())) {
+            return false;
+        }
+        byte[] src = dbOrigen.getData();
+        byte[] dst = dbDestino.getData();
+        int ps = smOrigen.getPixelStride();
+        int scanOrigen = smOrigen.getScanlineStride();
+        int scanDestino = smDestino.getScanlineStride();
+
+        for (int y = 0; y < height; y++) {
+            int[] fila = inicioYSaltoDeFila(orientation, y, width, height, scanDestino, ps);
+            int d = fila[0];
+            int salto = fila[1];
+            int s = y * scanOrigen;
+            if (ps == 1) {
+                for (int x = 0; x < width; x++, s++, d += salto) {
+                    dst[d] = src[s];
+                }
+            } else {
+                for (int x = 0; x < width; x++, s += ps, d += salto) {
+                    System.arraycopy(src, s, dst, d, ps);
+                }
+            }
+        }
+        return true;
+    } // ---FIN de metodo copiarBytesIntercalados---
+    
+    
+    /**
+     * Ruta general (16 bits, paletas, bancos separados...): exacta, aunque más lenta.
+     */
+    private static void copiarPixelAPixel(WritableRaster origen, WritableRaster destino, int orientation,
+            int width, int height) {
+        Object pixel = null;
+        int minX = origen.getMinX();
+        int minY = origen.getMinY();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixel = origen.getDataElements(minX + x, minY + y, pixel);
+                long p = posicionDestino(orientation, x, y, width, height);
+                destino.setDataElements((int) (p >> 32), (int) p, pixel);
+            }
+        }
+    } // ---FIN de metodo copiarPixelAPixel---
+    
+    
+    /**
+     * Un solo banco, sin desplazamientos: el píxel (0,0) del raster es el elemento 0 del array.
+     * Las subimágenes (getSubimage) comparten el array del padre y no cumplen esta condición.
+     */
+    private static boolean esRasterSimple(WritableRaster raster) {
+        return raster.getDataBuffer().getNumBanks() == 1
+                && raster.getDataBuffer().getOffset() == 0
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && raster.getMinX() == 0
+                && raster.getMinY() == 0;
+    } // ---FIN de metodo esRasterSimple---
 
 } // --- FIN de la clase ImageUtils ---
\ No newline at end of file
@@ -29,6 +29,7 @@ import controlador.commands.AppActionCommands;
 import controlador.managers.ToolbarManager;
 import controlador.utils.ComponentRegistry;
 import modelo.VisorModel;
+import servicios.image.ThumbnailService;
 import vista.panels.GridDisplayPanel;
 import vista.panels.ImageDisplayPanel;
 import vista.panels.export.ExportPanel;
@@ -268,8 +269,9 @@ public class ProjectBuilder implements ThemeChangeListener {
         singleImageViewPanel.getInternalLabel().addMouseListener(sharedContextMenuListener);
 
         // --- Visor de Grid ---
-        ThumbnailPreviewer projectGridPreviewer = new ThumbnailPreviewer(null, this.model, this.themeManager, null, this.registry);
-        GridDisplayPanel gridViewPanel = new GridDisplayPanel(this.model, generalController.getVisorController().getServicioMiniaturas(), this.themeManager, generalController.getVisorController().getIconUtils(), projectGridPreviewer, projectController.getProjectManager(), this.projectController, this.registry);
+        ThumbnailService servicioMiniaturas = generalController.getVisorController().getServicioMiniaturas();
+        ThumbnailPreviewer projectGridPreviewer = new ThumbnailPreviewer(null, this.model, this.themeManager, null, this.registry, servicioMiniaturas);
+        GridDisplayPanel gridViewPanel = new GridDisplayPanel(this.model, servicioMiniaturas, this.themeManager, generalController.getVisorController().getIconUtils(), projectGridPreviewer, projectController.getProjectManager(), this.projectController, this.registry);
         
         // --- INICIO DE LA MODIFICACIÓN: Componer toolbars para el grid de proyecto ---
         if (this.toolbarManager != null) {
@@ -60,7 +60,6 @@ public class ViewBuilder{
     private final IconUtils iconUtils;
     
     private final ThumbnailService thumbnailService;
-    private final ThumbnailService gridThumbnailService;
     
     private ProjectBuilder projectBuilder;
     
@@ -75,14 +74,14 @@ public class ViewBuilder{
     
     
     /**
-     * Constructor modificado para aceptar AMBOS servicios de miniaturas.
+     * Constructor. La tira de miniaturas, el grid y el previsualizador comparten
+     * un único servicio de miniaturas.
      * @param registry
      * @param model
      * @param themeManager
      * @param configuration
      * @param iconUtils
-     * @param thumbnailService Servicio GLOBAL para la barra de miniaturas.
-     * @param gridThumbnailService Servicio DEDICADO para el GridDisplayPanel.
+     * @param thumbnailService Servicio de miniaturas compartido.
      * @param projectBuilder
      */
     public ViewBuilder(
@@ -92,7 +91,6 @@ public class ViewBuilder{
             ConfigurationManager configuration,
             IconUtils iconUtils,
             ThumbnailService thumbnailService,
-            ThumbnailService gridThumbnailService,
             ProjectBuilder projectBuilder
         ){
     	
@@ -103,8 +101,7 @@ public class ViewBuilder{
         this.themeManager = themeManager;
         this.configuration = configuration;
         this.iconUtils = iconUtils;
-        this.thumbnailService = Objects.requireNonNull(thumbnailService, "thumbnailService (global) no puede ser null");
-        this.gridThumbnailService = Objects.requireNonNull(gridThumbnailService, "gridThumbnailService no puede ser null");
+        this.thumbnailService = Objects.requireNonNull(thumbnailService, "thumbnailService no puede ser null");
         
     } // --- Fin del método ViewBuilder (constructor) ---
 
@@ -570,12 +567,12 @@ public class ViewBuilder{
 	    // 3. Crear una instancia ÚNICA del ThumbnailPreviewer para el grid.
         //    Le pasamos null como JList porque se usará con múltiples listas,
         //    y le pasamos TODAS las dependencias necesarias.
-        ThumbnailPreviewer gridPreviewer = new ThumbnailPreviewer(null, model, themeManager, null, registry);
+        ThumbnailPreviewer gridPreviewer = new ThumbnailPreviewer(null, model, themeManager, null, registry, this.thumbnailService);
         //    El 'null' para IViewManager es deliberado, ya que el previsualizador
         //    no necesita esta dependencia para la funcionalidad actual.
 		
 	    // 4. Crear una instancia del GridDisplayPanel, pasándole AHORA el previewer.
-	    GridDisplayPanel gridViewPanel = new GridDisplayPanel(this.model, this.gridThumbnailService, this.themeManager, this.iconUtils, gridPreviewer, this.registry);
+	    GridDisplayPanel gridViewPanel = new GridDisplayPanel(this.model, this.thumbnailService, this.themeManager, this.iconUtils, gridPreviewer, this.registry);
 	    
 	 // --- INICIO DE LA MODIFICACIÓN: Añadir la toolbar de tamaño al grid del visualizador ---
 	    if (this.toolbarManager != null) {
@@ -105,6 +105,16 @@ public class GridDisplayPanel extends JPanel {
         
         scrollPane.getVerticalScrollBar().setUnitIncrement(20);
         
+        final String vistaMiniaturas = (projectManager == null) ? ThumbnailService.VISTA_GRID_VISUALIZADOR : ThumbnailService.VISTA_GRID_PROYECTO;
+        
+        // Cada vez que se desplaza el grid, informamos al servicio de miniaturas del rango visible
+        // para que atienda primero lo que el usuario está viendo y descarte lo que ha quedado atrás.
+        scrollPane.getViewport().addChangeListener(e -> {
+            if (gridList.isShowing()) {
+                gridThumbnailService.actualizarRangoVisible(vistaMiniaturas, gridList.getFirstVisibleIndex(), gridList.getLastVisibleIndex());
+            }
+        });
+        
         add(scrollPane, BorderLayout.CENTER);
     } // ---FIN de Constructor GridDisplayPanel ---
 
@@ -41,6 +41,8 @@ public class ImageDisplayPanel extends JPanel {
     
     private BufferedImage welcomeImage; // Para almacenar la imagen de bienvenida
     private boolean showingWelcome = false; // Un flag para saber qué dibujar
+    
+    private BufferedImage imagenProvisional; // Vista previa de baja resolución mientras llega la imagen completa
 
     public ImageDisplayPanel(ThemeManager themeManager, VisorModel model) {
     	
@@ -149,6 +151,28 @@ public class ImageDisplayPanel extends JPanel {
             return; // Salimos para no dibujar la imagen principal.
         }
         
+        // --- VISTA PREVIA PROGRESIVA ---
+        // Mientras se decodifica la imagen completa se dibuja una versión reducida ajustada
+        // al panel (o estirada en modo FILL). La imagen del modelo sigue siendo la anterior.
+        if (imagenProvisional != null) {
+            int imgAncho = imagenProvisional.getWidth();
+            int imgAlto = imagenProvisional.getHeight();
+            int nuevoAncho, nuevoAlto;
+            if (model.getCurrentZoomMode() == servicios.zoom.ZoomModeEnum.FILL) {
+                nuevoAncho = panelAncho;
+                nuevoAlto = panelAlto;
+            } else {
+                double factorEscala = Math.min((double) panelAncho / imgAncho, (double) panelAlto / imgAlto);
+                nuevoAncho = (int) (imgAncho * factorEscala);
+                nuevoAlto = (int) (imgAlto * factorEscala);
+            }
+            Graphics2D g2d = (Graphics2D) g.create();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(imagenProvisional, (panelAncho - nuevoAncho) / 2, (panelAlto - nuevoAlto) / 2, nuevoAncho, nuevoAlto, this);
+            g2d.dispose();
+            return;
+        }
+        
         BufferedImage imagenADibujar = model.getCurrentImage();
         
         if (imagenADibujar != null) {
@@ -206,6 +230,7 @@ public class ImageDisplayPanel extends JPanel {
         this.internalLabel.setForeground(Color.RED);
         
         this.showingWelcome = false; // Desactivar bienvenida si hay un error
+        this.imagenProvisional = null;
         
         repaint(); // Forzamos repintado para que se vea el error y desaparezca la imagen vieja.
     } // --- Fin del método mostrarError ---
@@ -217,10 +242,36 @@ public class ImageDisplayPanel extends JPanel {
     	
         this.internalLabel.setText(null);
         this.internalLabel.setIcon(null);
+        this.imagenProvisional = null;
         repaint();
     } // --- Fin del método limpiar ---
     
     
+    /**
+     * Muestra una versión de baja resolución de la imagen que se está cargando
+     * (miniatura ampliada o decodificación submuestreada). Se retira sola al llamar a
+     * {@link #mostrarCargando(String)}, {@link #limpiar()} o {@link #mostrarError(String, ImageIcon)}.
+     *
+     * @param vistaPrevia La imagen provisional, ya con la orientación corregida.
+     */
+    public void mostrarVistaPrevia(BufferedImage vistaPrevia) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> mostrarVistaPrevia(vistaPrevia));
+            return;
+        }
+        if (vistaPrevia == null) {
+            return;
+        }
+        this.imagenProvisional = vistaPrevia;
+        this.showingWelcome = false;
+        if (this.internalLabel != null) {
+            this.internalLabel.setIcon(null);
+            this.internalLabel.setText(null);
+        }
+        repaint();
+    } // --- Fin del método mostrarVistaPrevia ---
+    
+    
     public void mostrarCargando(String mensaje) {
         if (!SwingUtilities.isEventDispatchThread()) {
             SwingUtilities.invokeLater(() -> mostrarCargando(mensaje));
@@ -233,6 +284,7 @@ public class ImageDisplayPanel extends JPanel {
         }
         
         this.showingWelcome = false;
+        this.imagenProvisional = null; // La vista previa era de la imagen anterior
         
         repaint();
     } // --- Fin del método mostrarCargando ---
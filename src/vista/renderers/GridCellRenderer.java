@@ -4,7 +4,6 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Graphics2D;
 import java.awt.Point;
-import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
@@ -53,6 +52,10 @@ public class GridCellRenderer implements ListCellRenderer<String> {
     private static int MARCO_ESTADO_HEIGHT = 20;
     private static int MARCO_ESTADO_WIDTH = 20;
     
+    // --- Iconos de estado (se escalan una sola vez) ---
+    private ImageIcon iconoCargando;
+    private ImageIcon iconoError;
+    
     public GridCellRenderer(
             ThumbnailService gridThumbnailService,
             VisorModel modeloVisor,
@@ -113,23 +116,22 @@ public class GridCellRenderer implements ListCellRenderer<String> {
         int anchoMiniatura = cellPanel.getPreferredSize().width - MARCO_ESTADO_WIDTH;
         int altoMiniatura = cellPanel.getPreferredSize().height - MARCO_ESTADO_HEIGHT;
         
+        // Petición ASÍNCRONA: nunca bloquea el EDT. Si no está en caché se pinta un
+        // placeholder y, cuando llega la miniatura, se repinta sólo esta celda.
         ImageIcon miniaturaIcono = null;
         if (rutaCompleta != null) {
             miniaturaIcono = this.gridThumbnailService.obtenerOCrearMiniatura(
                 rutaCompleta, value, anchoMiniatura, altoMiniatura, true,
-                (generatedKey) -> {
-                    if (list != null && list.isShowing()) {
-                        Rectangle cellBounds = list.getCellBounds(index, index);
-                        if (cellBounds != null && list.getVisibleRect().intersects(cellBounds)) {
-                            list.repaint(cellBounds);
-                        }
-                    }
-                }
+                (generatedKey) -> RepintadoCeldas.repintarCeldaDeClave(list, index, generatedKey),
+                (projectManager == null) ? ThumbnailService.VISTA_GRID_VISUALIZADOR : ThumbnailService.VISTA_GRID_PROYECTO,
+                index // El rango visible de esta vista se informa con los mismos índices de celda.
             );
         }
         
         if (miniaturaIcono == null) {
-            miniaturaIcono = this.iconUtils.getScaledCommonIcon("placeholder-grid.png", 32, 32);
+            miniaturaIcono = (value != null && this.gridThumbnailService.haFallado(value))
+                    ? getIconoError()
+                    : getIconoCargando();
         }
         
         String textoParaMostrar = null;
@@ -194,4 +196,20 @@ public class GridCellRenderer implements ListCellRenderer<String> {
         return this.cellPanel;
     } // ---FIN de metodo getListCellRendererComponent ---
     
+    
+    private ImageIcon getIconoCargando() {
+        if (this.iconoCargando == null) {
+            this.iconoCargando = this.iconUtils.getScaledCommonIcon("placeholder-grid.png", 32, 32);
+        }
+        return this.iconoCargando;
+    } // ---FIN de metodo getIconoCargando ---
+    
+    
+    private ImageIcon getIconoError() {
+        if (this.iconoError == null) {
+            this.iconoError = this.iconUtils.getScaledCommonIcon("imagen-rota.png", 32, 32);
+        }
+        return this.iconoError;
+    } // ---FIN de metodo getIconoError ---
+    
 } // --- FIN de clase GridCellRenderer ---
\ No newline at end of file
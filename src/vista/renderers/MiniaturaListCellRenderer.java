@@ -49,6 +49,10 @@ public class MiniaturaListCellRenderer extends JPanel implements ListCellRendere
     private final int altoMiniaturaObjetivo;
     private final int alturaTotalCeldaFija;
     private final int anchoTotalCeldaFijo;
+    
+    // --- Iconos de estado (se escalan una sola vez) ---
+    private ImageIcon iconoCargando;
+    private ImageIcon iconoError;
 
     public MiniaturaListCellRenderer(
             ThumbnailService servicioMiniaturas,
@@ -112,20 +116,26 @@ public class MiniaturaListCellRenderer extends JPanel implements ListCellRendere
         Tema temaActual = this.themeManager.getTemaActual();
         Path rutaCompleta = (value != null) ? this.modeloVisor.getRutaCompleta(value) : null;
         
+        // Petición ASÍNCRONA: si la miniatura no está en caché se encola su generación
+        // y se devuelve null al momento. El EDT nunca espera a disco ni a decodificación.
         ImageIcon miniaturaCargada = null;
         if (rutaCompleta != null) {
             miniaturaCargada = this.servicioMiniaturas.obtenerOCrearMiniatura(
-                rutaCompleta, value, this.anchoMiniaturaObjetivo, this.altoMiniaturaObjetivo, true);
+                rutaCompleta, value, this.anchoMiniaturaObjetivo, this.altoMiniaturaObjetivo, true,
+                (generatedKey) -> RepintadoCeldas.repintarCeldaDeClave(list, index, generatedKey));
         }
         
         if (miniaturaCargada != null) {
             this.etiquetaIcono.setIcon(miniaturaCargada);
             this.etiquetaIcono.setText(null);
-        } else {
-            ImageIcon iconoErrorParaCelda = this.iconUtils.getScaledCommonIcon(
-                "imagen-rota.png", this.anchoMiniaturaObjetivo, this.altoMiniaturaObjetivo);
+        } else if (rutaCompleta == null || this.servicioMiniaturas.haFallado(value)) {
+            ImageIcon iconoErrorParaCelda = getIconoError();
             this.etiquetaIcono.setIcon(iconoErrorParaCelda);
             this.etiquetaIcono.setText(iconoErrorParaCelda == null ? "X" : null);
+        } else {
+            ImageIcon iconoCargandoParaCelda = getIconoCargando();
+            this.etiquetaIcono.setIcon(iconoCargandoParaCelda);
+            this.etiquetaIcono.setText(iconoCargandoParaCelda == null ? "..." : null);
         }
 
         if (this.mostrarNombresConfigurado) {
@@ -164,5 +174,23 @@ public class MiniaturaListCellRenderer extends JPanel implements ListCellRendere
         return this;
     } // --- Fin del método getListCellRendererComponent ---
     
+    
+    private ImageIcon getIconoCargando() {
+        if (this.iconoCargando == null) {
+            int lado = Math.max(16, Math.min(this.anchoMiniaturaObjetivo, this.altoMiniaturaObjetivo) / 2);
+            this.iconoCargando = this.iconUtils.getScaledCommonIcon("placeholder-grid.png", lado, lado);
+        }
+        return this.iconoCargando;
+    } // --- Fin del método getIconoCargando ---
+    
+    
+    private ImageIcon getIconoError() {
+        if (this.iconoError == null) {
+            this.iconoError = this.iconUtils.getScaledCommonIcon(
+                "imagen-rota.png", this.anchoMiniaturaObjetivo, this.altoMiniaturaObjetivo);
+        }
+        return this.iconoError;
+    } // --- Fin del método getIconoError ---
+    
 } // --- Fin de la clase MiniaturaListCellRenderer ---
 
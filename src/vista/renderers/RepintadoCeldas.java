@@ -0,0 +1,51 @@
+package vista.renderers;
+
+import java.awt.Rectangle;
+
+import javax.swing.JList;
+
+/**
+ * Utilidad compartida por los renderers de miniaturas para repintar sólo la celda
+ * afectada cuando llega una miniatura generada en segundo plano.
+ */
+final class RepintadoCeldas {
+
+    private RepintadoCeldas() {}
+
+    /**
+     * Repinta sólo la celda que corresponde a la clave recién generada.
+     * Como la lista puede haber cambiado mientras se generaba la miniatura (scroll del grid,
+     * filtro, recarga), se comprueba que el índice siga apuntando a la misma clave; si no,
+     * se busca su posición actual entre las celdas visibles.
+     *
+     * @param list La lista que pintó la celda.
+     * @param index El índice que tenía la celda cuando se pidió la miniatura.
+     * @param clave La clave cuya miniatura acaba de generarse.
+     */
+    static void repintarCeldaDeClave(JList<? extends String> list, int index, String clave) {
+        if (list == null || !list.isShowing() || clave == null) {
+            return;
+        }
+        int indiceReal = index;
+        int tamano = list.getModel().getSize();
+        if (indiceReal < 0 || indiceReal >= tamano || !clave.equals(list.getModel().getElementAt(indiceReal))) {
+            indiceReal = -1;
+            int primero = list.getFirstVisibleIndex();
+            int ultimo = Math.min(list.getLastVisibleIndex(), tamano - 1);
+            for (int i = Math.max(0, primero); primero >= 0 && i <= ultimo; i++) {
+                if (clave.equals(list.getModel().getElementAt(i))) {
+                    indiceReal = i;
+                    break;
+                }
+            }
+        }
+        if (indiceReal == -1) {
+            return;
+        }
+        Rectangle cellBounds = list.getCellBounds(indiceReal, indiceReal);
+        if (cellBounds != null && list.getVisibleRect().intersects(cellBounds)) {
+            list.repaint(cellBounds);
+        }
+    } // --- Fin del método repintarCeldaDeClave ---
+
+} // --- FIN de la clase RepintadoCeldas ---
@@ -13,7 +13,6 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 
-import javax.imageio.ImageIO;
 import javax.swing.AbstractAction;
 import javax.swing.JComponent;
 import javax.swing.JDialog;
@@ -33,8 +32,8 @@ import controlador.managers.interfaces.IViewManager;
 import controlador.utils.ComponentRegistry;
 import modelo.VisorModel;
 import servicios.ConfigurationManager;
+import servicios.image.ThumbnailService;
 import servicios.zoom.ZoomModeEnum;
-import utils.ImageUtils;
 import vista.panels.ImageDisplayPanel;
 import vista.theme.ThemeManager;
 
@@ -47,6 +46,7 @@ public class ThumbnailPreviewer {
     private final ThemeManager themeManager;
     private final IViewManager viewManager;
     private final ComponentRegistry registry;
+    private final ThumbnailService thumbnailService; // Almacén compartido con la tira y el grid
 
     private JDialog previewDialog;
     private ImageDisplayPanel previewPanel;
@@ -56,13 +56,16 @@ public class ThumbnailPreviewer {
 
     private static final int PREVIEW_WIDTH = 500;
     private static final int PREVIEW_HEIGHT = 500;
+    // Resolución pedida al almacén: el doble del panel deja margen para el zoom interactivo.
+    private static final int PREVIEW_RESOLUTION = 2 * Math.max(PREVIEW_WIDTH, PREVIEW_HEIGHT);
 
-    public ThumbnailPreviewer(JList<String> targetList, VisorModel mainModel, ThemeManager themeManager, IViewManager viewManager, ComponentRegistry registry) {
+    public ThumbnailPreviewer(JList<String> targetList, VisorModel mainModel, ThemeManager themeManager, IViewManager viewManager, ComponentRegistry registry, ThumbnailService thumbnailService) {
         this.targetList = targetList;
         this.mainModel = mainModel;
         this.themeManager = themeManager;
         this.viewManager = viewManager;
         this.registry = registry;
+        this.thumbnailService = java.util.Objects.requireNonNull(thumbnailService, "thumbnailService no puede ser null");
         
         if (this.targetList != null) {
             installListeners();
@@ -177,14 +180,9 @@ public class ThumbnailPreviewer {
                 
                 if (imagePath != null && java.nio.file.Files.exists(imagePath)) {
                 	
-                	// 1. Cargamos la imagen original del disco.
-                    BufferedImage imagenOriginal = ImageIO.read(imagePath.toFile());
-                    
-                    // 2. Aplicamos la corrección de orientación EXIF.
-                    BufferedImage imagenCorregida = ImageUtils.correctImageOrientation(imagenOriginal, imagePath);
-                    
-                    // 3. Devolvemos la imagen YA CORREGIDA.
-                    return imagenCorregida;
+                	// Pedimos la imagen al almacén de miniaturas: ya viene orientada y,
+                    // si la tira o el grid la decodificaron a este nivel, no se relee del disco.
+                    return thumbnailService.obtenerImagenDeNivel(imagePath, PREVIEW_RESOLUTION);
                 	
                 }
                 return null;